@@ -0,0 +1,281 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Lexes many files concurrently, one virtual thread per file. A
+ * {@link FilePrefetcher} reads a bounded number of files ahead in list order,
+ * so reading overlaps lexing; with a {@link TokenCache} the files are read by
+ * the cache instead. Results are written in input order as soon as they are
+ * ready, so writing overlaps both, and a file holds one of a bounded number
+ * of permits from being taken until it is written, which bounds the sources
+ * and tokens held in memory. A failing file is reported without stopping
+ * the run.
+ */
+public final class BatchLexer {
+    static final int DEFAULT_MAX_CONCURRENT_READS = 16;
+
+    private final LexicalAnalyzer lexer;
+    private final int maxConcurrentReads;
+    private final int readBufferSize;
+    private final Semaphore inFlight;
+
+    public BatchLexer() {
+        this(new LexicalAnalyzer(), DEFAULT_MAX_CONCURRENT_READS);
+    }
+
+    public BatchLexer(LexicalAnalyzer lexer, int maxConcurrentReads) {
+        this(lexer, maxConcurrentReads, FilePrefetcher.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param maxConcurrentReads files read ahead of the lexing, each with a
+     *     pooled direct buffer of {@code readBufferSize} bytes, and files
+     *     read but not yet written
+     */
+    public BatchLexer(LexicalAnalyzer lexer, int maxConcurrentReads, int readBufferSize) {
+        if (maxConcurrentReads <= 0) {
+            throw new IllegalArgumentException("Concurrent reads must be positive: " + maxConcurrentReads);
+        }
+        this.lexer = lexer;
+        this.maxConcurrentReads = maxConcurrentReads;
+        this.readBufferSize = readBufferSize;
+        this.inFlight = new Semaphore(maxConcurrentReads);
+    }
+
+    public static class Summary {
+        public final int files;
+        public final long tokens;
+        public final long bytes;
+        public final long nanos;
+        public final Map<Path, String> failures;
+
+        Summary(int files, long tokens, long bytes, long nanos, Map<Path, String> failures) {
+            this.files = files;
+            this.tokens = tokens;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.failures = failures;
+        }
+
+        public double bytesPerSecond() {
+            return nanos == 0 ? 0 : bytes * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Lexed %d files (%d failed), %d tokens, %d bytes in %.1f ms (%.1f MB/s)",
+                files, failures.size(), tokens, bytes, nanos / 1e6, bytesPerSecond() / (1024 * 1024));
+        }
+    }
+
+    /**
+     * Expands command-line operands into a de-duplicated, ordered file list.
+     * An operand is a file, a directory (walked recursively, sorted), a glob
+     * such as {@code src/**}{@code /*.java}, or {@code @list} naming a file
+     * with one operand per line.
+     */
+    public static List<Path> collect(List<String> operands) throws IOException {
+        Set<Path> files = new LinkedHashSet<>();
+        for (String operand : operands) {
+            if (operand.startsWith("@")) {
+                List<String> listed = Files.readAllLines(Path.of(operand.substring(1))).stream()
+                    .map(String::strip)
+                    .filter(line -> !line.isEmpty())
+                    .toList();
+                files.addAll(collect(listed));
+            } else if (isGlob(operand)) {
+                files.addAll(expandGlob(operand));
+            } else {
+                Path path = Path.of(operand);
+                if (Files.isDirectory(path)) {
+                    files.addAll(walk(path, p -> true));
+                } else {
+                    files.add(path);
+                }
+            }
+        }
+        return new ArrayList<>(files);
+    }
+
+    public Summary run(List<Path> files, PrintStream out, PrintStream err) throws InterruptedException {
+        try (TokenWriter writer = TokenWriter.toStream(out, TokenWriter.Format.TEXT)) {
+            return run(files, writer, err);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes each file's tokens to {@code out} after a
+     * {@link TokenWriter#beginFile(String) file marker}. The writer is flushed
+     * before an error is reported, so messages on {@code err} stay in order
+     * with the output.
+     */
+    public Summary run(List<Path> files, TokenWriter out, PrintStream err) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        List<Future<FileResult>> results = new ArrayList<>(files.size());
+        Map<Path, String> failures = new LinkedHashMap<>();
+        long tokens = 0;
+        long bytes = 0;
+        int written = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             FilePrefetcher prefetcher = lexer.cache() != null ? null
+                 : new FilePrefetcher(files, maxConcurrentReads, readBufferSize)) {
+            while (written < files.size()) {
+                // Write the oldest file when it is ready, when none are left to start, or when no permit is free.
+                boolean pending = written < results.size();
+                if (pending && (results.get(written).isDone() || results.size() == files.size() || !inFlight.tryAcquire())) {
+                    Path file = files.get(written);
+                    FileResult result = write(file, results.get(written), out, err, failures);
+                    results.set(written++, null);
+                    inFlight.release();
+                    if (result != null) {
+                        tokens += result.tokens.size();
+                        bytes += result.bytes;
+                    }
+                    continue;
+                }
+                if (!pending) {
+                    inFlight.acquire();
+                }
+                Path file = files.get(results.size());
+                if (prefetcher == null) {
+                    results.add(executor.submit(() -> lexCached(file)));
+                    continue;
+                }
+                try {
+                    FilePrefetcher.Content content = prefetcher.next();
+                    results.add(executor.submit(() -> lex(content)));
+                } catch (IOException e) {
+                    results.add(CompletableFuture.failedFuture(e));
+                }
+            }
+        }
+        return new Summary(files.size(), tokens, bytes, System.nanoTime() - started, failures);
+    }
+
+    /**
+     * Waits for {@code result} and writes its tokens after a file marker, or
+     * reports its failure. Returns {@code null} if the file failed.
+     */
+    private FileResult write(Path file, Future<FileResult> result, TokenWriter out, PrintStream err,
+                             Map<Path, String> failures) throws IOException, InterruptedException {
+        try {
+            FileResult done = result.get();
+            out.beginFile(file.toString());
+            out.write(done.tokens);
+            BracketIndex brackets = done.tokens.brackets();
+            if (brackets != null && !brackets.isBalanced()) {
+                out.flush();
+                for (BracketIndex.Diagnostic diagnostic : brackets.diagnostics()) {
+                    err.println(file + ":" + diagnostic);
+                }
+            }
+            return done;
+        } catch (ExecutionException e) {
+            String message = describe(e.getCause());
+            failures.put(file, message);
+            out.flush();
+            err.println("Error: " + file + ": " + message);
+            return null;
+        }
+    }
+
+    private FileResult lexCached(Path file) throws IOException {
+        long started = System.nanoTime();
+        TokenCache.Result cached = lexer.cache().lookup(file, lexer);
+        LexerStats stats = lexer.stats();
+        if (stats != null) {
+            stats.recordRead(cached.readNanos);
+            stats.recordFile(cached.bytes, System.nanoTime() - started);
+        }
+        return new FileResult(cached.tokens, cached.bytes);
+    }
+
+    private FileResult lex(FilePrefetcher.Content content) {
+        long started = System.nanoTime();
+        TokenBuffer tokens = lexer.analyzeToBuffer(content.text);
+        LexerStats stats = lexer.stats();
+        if (stats != null) {
+            stats.recordRead(content.readNanos);
+            stats.recordFile(content.bytes, content.readNanos + System.nanoTime() - started);
+        }
+        return new FileResult(tokens, content.bytes);
+    }
+
+    private static class FileResult {
+        final TokenBuffer tokens;
+        final long bytes;
+
+        FileResult(TokenBuffer tokens, long bytes) {
+            this.tokens = tokens;
+            this.bytes = bytes;
+        }
+    }
+
+    private static String describe(Throwable error) {
+        if (error instanceof NoSuchFileException) {
+            return "File does not exist";
+        }
+        return error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+    }
+
+    private static boolean isGlob(String operand) {
+        for (char c : "*?[{".toCharArray()) {
+            if (operand.indexOf(c) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Path> expandGlob(String glob) throws IOException {
+        int firstWildcard = glob.length();
+        for (char c : "*?[{".toCharArray()) {
+            int index = glob.indexOf(c);
+            if (index >= 0) {
+                firstWildcard = Math.min(firstWildcard, index);
+            }
+        }
+        int separator = glob.lastIndexOf('/', firstWildcard);
+        Path base = separator < 0 ? Path.of("") : Path.of(glob.substring(0, separator + 1));
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        return walk(base, matcher);
+    }
+
+    private static List<Path> walk(Path root, PathMatcher filter) throws IOException {
+        Path start = root.toString().isEmpty() ? Path.of(".") : root;
+        if (!Files.isDirectory(start)) {
+            return List.of();
+        }
+        try (Stream<Path> paths = Files.walk(start)) {
+            return paths
+                .filter(Files::isRegularFile)
+                .map(path -> root.toString().isEmpty() ? start.relativize(path) : path)
+                .filter(filter::matches)
+                .sorted()
+                .toList();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Pairs the {@code ( ) [ ] { }} delimiter tokens of a {@link TokenBuffer} as
+ * the tokens are added, so the lexing pass builds it without a second scan.
+ * For every token index it keeps the index of the partner bracket and of the
+ * innermost enclosing opening bracket, both answered in constant time.
+ * <p>
+ * A closing bracket pairs with the nearest open bracket of its kind; brackets
+ * left open in between are unclosed, and a closing bracket with no open
+ * bracket of its kind is unmatched. Both are reported by
+ * {@link #diagnostics()} and have no partner.
+ */
+public final class BracketIndex {
+    private static final int MIN_CAPACITY = 16;
+
+    /** Kind of structural error. */
+    public enum Problem {
+        /** An opening bracket that is never closed. */
+        UNCLOSED,
+        /** A closing bracket with no opening bracket of its kind. */
+        UNMATCHED
+    }
+
+    /** A structural error at a bracket token, with its position in the source. */
+    public static final class Diagnostic {
+        public final Problem problem;
+        public final int token;
+        public final int offset;
+        public final int line;
+        public final int column;
+        public final String message;
+
+        Diagnostic(Problem problem, int token, int offset, int line, int column, String message) {
+            this.problem = problem;
+            this.token = token;
+            this.offset = offset;
+            this.line = line;
+            this.column = column;
+            this.message = message;
+        }
+
+        /** {@code line:column: message}. */
+        @Override
+        public String toString() {
+            return line + ":" + column + ": " + message;
+        }
+    }
+
+    private final TokenBuffer tokens;
+    private int[] partners;
+    private int[] enclosing;
+    private int size;
+    /** Token indexes of the brackets still open, innermost last, and their kinds: 0, 1 and 2 for round, square and curly. */
+    private int[] open = new int[MIN_CAPACITY];
+    private byte[] openKinds = new byte[MIN_CAPACITY];
+    private int depth;
+    /** Open brackets of each kind, so a closing bracket with none open is found unmatched without a search. */
+    private final int[] openCounts = new int[3];
+    /** Token indexes of the brackets left unclosed or unmatched so far, in the order they were found. */
+    private int[] errors = new int[0];
+    private int errorCount;
+
+    BracketIndex(TokenBuffer tokens, int initialCapacity) {
+        this.tokens = tokens;
+        int capacity = Math.max(MIN_CAPACITY, initialCapacity);
+        this.partners = new int[capacity];
+        this.enclosing = new int[capacity];
+    }
+
+    void reset() {
+        size = 0;
+        depth = 0;
+        errorCount = 0;
+        Arrays.fill(openCounts, 0);
+    }
+
+    /** Forgets the tokens from {@code size} on, as if they had never been added. */
+    void truncate(int size) {
+        this.size = size;
+        // The brackets open after the last kept token are that token, if it
+        // opens one, and then each one's enclosing bracket.
+        depth = 0;
+        Arrays.fill(openCounts, 0);
+        int top = -1;
+        if (size > 0) {
+            top = opening(size - 1) >= 0 ? size - 1 : enclosing[size - 1];
+        }
+        for (int bracket = top; bracket >= 0; bracket = enclosing[bracket]) {
+            open(bracket, opening(bracket));
+            partners[bracket] = -1;
+        }
+        for (int i = 0, j = depth - 1; i < j; i++, j--) {
+            int index = open[i];
+            open[i] = open[j];
+            open[j] = index;
+            byte kind = openKinds[i];
+            openKinds[i] = openKinds[j];
+            openKinds[j] = kind;
+        }
+        // Errors are found in order, so those found after the last kept token
+        // come last: dropped tokens and kept brackets that are open again.
+        while (errorCount > 0 && (errors[errorCount - 1] >= size
+                || Arrays.binarySearch(open, 0, depth, errors[errorCount - 1]) >= 0)) {
+            errorCount--;
+        }
+    }
+
+    /** The kind of the opening bracket at {@code index}, or -1 if it is not one. */
+    private int opening(int index) {
+        if (tokens.type(index) != TokenType.DELIMITER) {
+            return -1;
+        }
+        return switch (tokens.source().charAt(tokens.start(index))) {
+            case '(' -> 0;
+            case '[' -> 1;
+            case '{' -> 2;
+            default -> -1;
+        };
+    }
+
+    /** Records the token just added at {@code index}, which starts at {@code start}. */
+    void add(int index, int kind, int start) {
+        if (index == partners.length) {
+            int capacity = partners.length + (partners.length >> 1);
+            partners = Arrays.copyOf(partners, capacity);
+            enclosing = Arrays.copyOf(enclosing, capacity);
+        }
+        size = index + 1;
+        partners[index] = -1;
+        enclosing[index] = depth == 0 ? -1 : open[depth - 1];
+        if (kind != DfaLexer.DELIMITER) {
+            return;
+        }
+        switch (tokens.source().charAt(start)) {
+            case '(' -> open(index, 0);
+            case '[' -> open(index, 1);
+            case '{' -> open(index, 2);
+            case ')' -> close(index, 0);
+            case ']' -> close(index, 1);
+            case '}' -> close(index, 2);
+            default -> {
+            }
+        }
+    }
+
+    private void open(int index, int kind) {
+        if (depth == open.length) {
+            open = Arrays.copyOf(open, depth * 2);
+            openKinds = Arrays.copyOf(openKinds, depth * 2);
+        }
+        open[depth] = index;
+        openKinds[depth++] = (byte) kind;
+        openCounts[kind]++;
+    }
+
+    private void close(int index, int kind) {
+        if (openCounts[kind] == 0) {
+            error(index);
+            return;
+        }
+        // The brackets searched past are popped as unclosed, so each is searched past once.
+        int match = depth - 1;
+        while (openKinds[match] != kind) {
+            error(open[match]);
+            openCounts[openKinds[match]]--;
+            match--;
+        }
+        openCounts[kind]--;
+        depth = match;
+        int partner = open[match];
+        partners[index] = partner;
+        partners[partner] = index;
+        enclosing[index] = enclosing[partner];
+    }
+
+    private void error(int index) {
+        if (errorCount == errors.length) {
+            errors = Arrays.copyOf(errors, Math.max(8, errorCount * 2));
+        }
+        errors[errorCount++] = index;
+    }
+
+    /** Index of the bracket paired with the token at {@code index}, or -1 if it has none. */
+    public int partner(int index) {
+        return partners[Objects.checkIndex(index, size)];
+    }
+
+    /**
+     * Index of the innermost opening bracket that was open when the token at
+     * {@code index} was lexed, or -1 at the top level. For a closing bracket
+     * this is the bracket enclosing its pair.
+     */
+    public int enclosing(int index) {
+        return enclosing[Objects.checkIndex(index, size)];
+    }
+
+    /** Whether every bracket so far has a partner. */
+    public boolean isBalanced() {
+        return errorCount == 0 && depth == 0;
+    }
+
+    /**
+     * The unclosed and unmatched brackets in source order, with positions
+     * taken from the buffer's {@link TokenBuffer#lines() line index}. Brackets
+     * still open at the end of the tokens are reported as unclosed.
+     */
+    public List<Diagnostic> diagnostics() {
+        int[] found = Arrays.copyOf(errors, errorCount + depth);
+        System.arraycopy(open, 0, found, errorCount, depth);
+        Arrays.sort(found);
+        List<Diagnostic> diagnostics = new ArrayList<>(found.length);
+        for (int index : found) {
+            int offset = tokens.start(index);
+            char c = tokens.source().charAt(offset);
+            boolean opening = c == '(' || c == '[' || c == '{';
+            diagnostics.add(new Diagnostic(
+                opening ? Problem.UNCLOSED : Problem.UNMATCHED, index, offset,
+                tokens.lines().line(offset), tokens.lines().column(offset),
+                (opening ? "Unclosed '" : "Unmatched '") + c + "'"));
+        }
+        return diagnostics;
+    }
+}
@@ -3,6 +3,7 @@ package org.example;
 import java.nio.file.Path;
 import java.nio.file.Files;
 import java.io.IOException;
+import java.io.Reader;
 
 public class CustomFileReader implements Readable {
     private final Path path;
@@ -11,8 +12,22 @@ public class CustomFileReader implements Readable {
         this.path = path;
     }
 
+    Path path() {
+        return path;
+    }
+
+    @Override
+    public long size() throws IOException {
+        return Files.size(path);
+    }
+
     @Override
     public String read() throws IOException {
         return Files.readString(path);
     }
+
+    @Override
+    public Reader openReader() throws IOException {
+        return Files.newBufferedReader(path);
+    }
 }
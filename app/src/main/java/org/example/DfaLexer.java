@@ -0,0 +1,626 @@
+package org.example;
+
+import java.nio.CharBuffer;
+
+/**
+ * Table-driven scanner that recognises the same token language as the regular
+ * expression in {@link LexicalAnalyzer} in a single forward pass.
+ * <p>
+ * Every character is mapped to a character class, the class of the first
+ * character selects the rule, and numeric literals run through a small
+ * transition table that remembers the last accepting position. The priority
+ * of the regex alternation (HEX before OCTAL before FLOAT ...) and its
+ * {@code \b} word-boundary checks are reproduced exactly, so both engines
+ * produce identical tokens.
+ * <p>
+ * With {@link #setVectorized(boolean)}, runs of whitespace, word characters,
+ * comment and string bodies that are longer than {@link #SCALAR_RUN} chars are skipped with {@link VectorScanner},
+ * and the scalar loops finish them. Short runs, which are most of them, stay
+ * scalar because starting a vector scan costs more than it saves there. The
+ * vector scans read array-backed {@link CharBuffer} input in place, and other
+ * input from a copy made by {@link #mirror(CharSequence)}.
+ * <p>
+ * Scanning takes time linear in the input and constant stack. The one rule
+ * that can search far ahead and fail, a block comment without its end, also
+ * fails for every later start in the same input, so the lexer remembers
+ * where the failed search began instead of searching again.
+ * <p>
+ * A kind mask from {@link #setKindMask(int)} makes {@code tokenize} skip the
+ * tokens of unselected kinds: they are scanned to their end, which lexing the
+ * rest needs, but not added. With neither keywords nor identifiers selected,
+ * words are not looked up in the keyword table and are all reported as
+ * identifiers.
+ */
+final class DfaLexer {
+    // Token kinds are the ordinals of TokenType.
+    static final int HEX = 0;
+    static final int OCTAL = 1;
+    static final int FLOAT = 2;
+    static final int NUMBER = 3;
+    static final int STRING = 4;
+    static final int CHAR = 5;
+    static final int COMMENT = 6;
+    static final int RESERVED = 7;
+    static final int OPERATOR = 8;
+    static final int DELIMITER = 9;
+    static final int IDENTIFIER = 10;
+    static final int INVALID = 11;
+    /** Mask with the bit {@code 1 << kind} set for every token kind. */
+    static final int ALL_KINDS = (1 << (INVALID + 1)) - 1;
+    /** Largest mirror array, in chars, worth keeping for later inputs. */
+    static final int MAX_KEPT_MIRROR = 1 << 20;
+
+    // Character classes. Everything outside ASCII is C_OTHER.
+    private static final int C_OTHER = 0;
+    private static final int C_SPACE = 1;
+    private static final int C_NEWLINE = 2;
+    private static final int C_ZERO = 3;
+    private static final int C_OCT_DIGIT = 4;
+    private static final int C_DEC_DIGIT = 5;
+    private static final int C_HEX_LETTER = 6;
+    private static final int C_EXP_LETTER = 7;
+    private static final int C_FLOAT_SUFFIX = 8;
+    private static final int C_LONG_SUFFIX = 9;
+    private static final int C_HEX_PREFIX = 10;
+    private static final int C_LETTER = 11;
+    private static final int C_UNDERSCORE = 12;
+    private static final int C_DOT = 13;
+    private static final int C_SIGN = 14;
+    private static final int C_SLASH = 15;
+    private static final int C_STAR = 16;
+    private static final int C_OPERATOR = 17;
+    private static final int C_DOUBLE_QUOTE = 18;
+    private static final int C_SINGLE_QUOTE = 19;
+    private static final int C_BACKSLASH = 20;
+    private static final int C_DELIMITER = 21;
+    private static final int CLASS_COUNT = 22;
+
+    private static final byte[] CLASSES = new byte[128];
+
+    // States of the numeric literal automaton.
+    private static final int N_INT = 0;
+    private static final int N_FRACTION = 1;
+    private static final int N_EXP_MARK = 2;
+    private static final int N_EXP_SIGN = 3;
+    private static final int N_EXP = 4;
+    private static final int N_LONG = 5;
+    private static final int N_FLOAT = 6;
+    private static final int N_DEAD = -1;
+
+    private static final byte[][] NUMBER_TRANSITIONS = new byte[7][CLASS_COUNT];
+    private static final boolean[] NUMBER_ACCEPTS = {true, true, false, false, true, true, false};
+
+    static {
+        classify(C_SPACE, " \t\u000B\f");
+        classify(C_NEWLINE, "\n\r");
+        classify(C_ZERO, "0");
+        classify(C_OCT_DIGIT, "1234567");
+        classify(C_DEC_DIGIT, "89");
+        classify(C_HEX_LETTER, "abcdABCD");
+        classify(C_EXP_LETTER, "eE");
+        classify(C_FLOAT_SUFFIX, "fF");
+        classify(C_LONG_SUFFIX, "lL");
+        classify(C_LETTER, "ghijkmnopqrstuvwyzGHIJKMNOPQRSTUVWXYZ");
+        classify(C_HEX_PREFIX, "x");
+        classify(C_UNDERSCORE, "_");
+        classify(C_DOT, ".");
+        classify(C_SIGN, "+-");
+        classify(C_SLASH, "/");
+        classify(C_STAR, "*");
+        classify(C_OPERATOR, "=<>!&|");
+        classify(C_DOUBLE_QUOTE, "\"");
+        classify(C_SINGLE_QUOTE, "'");
+        classify(C_BACKSLASH, "\\");
+        classify(C_DELIMITER, ",;(){}[]");
+
+        for (byte[] row : NUMBER_TRANSITIONS) {
+            java.util.Arrays.fill(row, (byte) N_DEAD);
+        }
+        for (int digit : new int[]{C_ZERO, C_OCT_DIGIT, C_DEC_DIGIT}) {
+            NUMBER_TRANSITIONS[N_INT][digit] = N_INT;
+            NUMBER_TRANSITIONS[N_FRACTION][digit] = N_FRACTION;
+            NUMBER_TRANSITIONS[N_EXP_MARK][digit] = N_EXP;
+            NUMBER_TRANSITIONS[N_EXP_SIGN][digit] = N_EXP;
+            NUMBER_TRANSITIONS[N_EXP][digit] = N_EXP;
+        }
+        NUMBER_TRANSITIONS[N_INT][C_UNDERSCORE] = N_INT;
+        NUMBER_TRANSITIONS[N_INT][C_DOT] = N_FRACTION;
+        NUMBER_TRANSITIONS[N_FRACTION][C_UNDERSCORE] = N_FRACTION;
+        NUMBER_TRANSITIONS[N_EXP_MARK][C_SIGN] = N_EXP_SIGN;
+        for (int state : new int[]{N_INT, N_FRACTION}) {
+            NUMBER_TRANSITIONS[state][C_EXP_LETTER] = N_EXP_MARK;
+        }
+        for (int state : new int[]{N_INT, N_FRACTION, N_EXP}) {
+            NUMBER_TRANSITIONS[state][C_LONG_SUFFIX] = N_LONG;
+            NUMBER_TRANSITIONS[state][C_FLOAT_SUFFIX] = N_FLOAT;
+        }
+    }
+
+    /** Whether {@link VectorScanner} can be loaded, which needs {@code --add-modules jdk.incubator.vector}. */
+    static final boolean VECTOR_SUPPORTED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    static final int SCALAR_RUN = 16;
+
+    private static void classify(int cls, String chars) {
+        for (int i = 0; i < chars.length(); i++) {
+            CLASSES[chars.charAt(i)] = (byte) cls;
+        }
+    }
+
+    private final KeywordTable keywords;
+    private int tokenStart;
+    private int tokenEnd;
+    private int tokenKind;
+    private boolean hitEnd;
+    private boolean vectorized;
+    // Backing array of the input to next(), or null to scan char by char.
+    private char[] array;
+    private int arrayOffset;
+    // Input whose chars are copied into mirror, for inputs without an array.
+    private CharSequence mirrored;
+    private char[] mirror;
+    // Input and last position given to next(), and the offset from which it has no "*/".
+    private CharSequence scanned;
+    private int scannedPos;
+    private int noCommentEndFrom = Integer.MAX_VALUE;
+    private int maxTokenLength = Integer.MAX_VALUE;
+    private int kindMask = ALL_KINDS;
+    private boolean classifyWords = true;
+
+    DfaLexer() {
+        this(KeywordTable.java());
+    }
+
+    DfaLexer(KeywordTable keywords) {
+        this.keywords = keywords;
+    }
+
+    /**
+     * Turns the vector fast paths on or off. They are only used when the
+     * Vector API module is present, and the tokens are the same either way.
+     */
+    void setVectorized(boolean vectorized) {
+        this.vectorized = vectorized && VECTOR_SUPPORTED;
+        this.array = null;
+        this.mirrored = null;
+        this.mirror = null;
+    }
+
+    boolean isVectorized() {
+        return vectorized;
+    }
+
+    /**
+     * Copies {@code content} into an array for the vector scans, if they are
+     * on and it has none. Tokens are still read from {@code content} itself,
+     * which is faster through {@link String#charAt(int)} than a buffer. The
+     * copy costs a pass over the input and an array of its length; the array
+     * is reused for the next input to this lexer if it is long enough, so
+     * callers lexing many inputs should keep their lexer.
+     */
+    void mirror(CharSequence content) {
+        if (vectorized && !(content instanceof CharBuffer buffer && buffer.hasArray())) {
+            int length = content.length();
+            if (mirror == null || mirror.length < length) {
+                mirror = new char[length];
+            }
+            if (content instanceof String string) {
+                string.getChars(0, length, mirror, 0);
+            } else {
+                for (int i = 0; i < length; i++) {
+                    mirror[i] = content.charAt(i);
+                }
+            }
+            mirrored = content;
+        }
+    }
+
+    /** Length of the mirror array kept for reuse, or 0 if there is none. */
+    int mirrorCapacity() {
+        return mirror == null ? 0 : mirror.length;
+    }
+
+    /** Drops the references to the last input, keeping the mirror array for reuse. */
+    void release() {
+        array = null;
+        mirrored = null;
+        scanned = null;
+    }
+
+    /** Makes tokens longer than {@code maxTokenLength} chars throw {@link TokenLimitException}. */
+    void setMaxTokenLength(int maxTokenLength) {
+        this.maxTokenLength = maxTokenLength;
+    }
+
+    /** Selects the kinds whose bit {@code 1 << kind} is set in {@code kindMask}; see {@link #selects(int)}. */
+    void setKindMask(int kindMask) {
+        this.kindMask = kindMask;
+        this.classifyWords = (kindMask & (1 << RESERVED | 1 << IDENTIFIER)) != 0;
+    }
+
+    /** Whether tokens of {@code kind} are selected by the kind mask. */
+    boolean selects(int kind) {
+        return (kindMask >>> kind & 1) != 0;
+    }
+
+    /** Uses the copy {@code other} made by {@link #mirror(CharSequence)}, so lexers of one input can share it. */
+    void mirror(DfaLexer other) {
+        if (vectorized) {
+            mirrored = other.mirrored;
+            mirror = other.mirror;
+        }
+    }
+
+    void tokenize(CharSequence content, TokenBuffer result) {
+        tokenize(content, 0, content.length(), result);
+    }
+
+    /**
+     * Adds the selected tokens that start in {@code [from, to)} when lexing
+     * begins at {@code from}. The last token may extend past {@code to}.
+     */
+    void tokenize(CharSequence content, int from, int to, TokenBuffer result) {
+        int pos = from;
+        while (next(content, pos) && tokenStart < to) {
+            if (selects(tokenKind)) {
+                result.add(tokenKind, tokenStart, tokenEnd);
+            }
+            pos = tokenEnd;
+        }
+    }
+
+    int tokenStart() {
+        return tokenStart;
+    }
+
+    int tokenEnd() {
+        return tokenEnd;
+    }
+
+    int tokenKind() {
+        return tokenKind;
+    }
+
+    /**
+     * Whether the last call to {@link #next(CharSequence, int)} needed to look
+     * past the end of its input. If so, and the input is only a window over a
+     * longer source, the result may change once more characters are available.
+     */
+    boolean hitEnd() {
+        return hitEnd;
+    }
+
+    /**
+     * Finds the next token at or after {@code pos}. Returns {@code false} when
+     * only whitespace remains; otherwise the token is available through
+     * {@link #tokenStart()}, {@link #tokenEnd()} and {@link #tokenKind()}.
+     */
+    boolean next(CharSequence in, int pos) {
+        int length = in.length();
+        hitEnd = false;
+        if (vectorized) {
+            bind(in);
+        }
+        if (in != scanned || pos < scannedPos) {
+            // A new input, or the same one lexed again and possibly changed since.
+            scanned = in;
+            noCommentEndFrom = Integer.MAX_VALUE;
+        }
+        scannedPos = pos;
+        int probe = probe(pos);
+        while (has(pos, length) && isWhitespace(in.charAt(pos))) {
+            if (++pos == probe) {
+                pos = VectorScanner.skipWhitespace(array, arrayOffset + pos, arrayOffset + length) - arrayOffset;
+            }
+        }
+        if (!has(pos, length)) {
+            return false;
+        }
+        tokenStart = pos;
+        switch (classOf(in.charAt(pos))) {
+            case C_ZERO, C_OCT_DIGIT, C_DEC_DIGIT -> scanNumber(in, pos, length);
+            case C_HEX_LETTER, C_EXP_LETTER, C_FLOAT_SUFFIX, C_LONG_SUFFIX, C_HEX_PREFIX, C_LETTER, C_UNDERSCORE ->
+                scanWord(in, pos, length);
+            case C_DOUBLE_QUOTE -> scanString(in, pos, length);
+            case C_SINGLE_QUOTE -> scanChar(in, pos, length);
+            case C_SLASH -> scanSlash(in, pos, length);
+            case C_SIGN, C_STAR, C_OPERATOR -> scanOperator(in, pos, length);
+            case C_DELIMITER -> accept(DELIMITER, pos + 1);
+            default -> scanInvalid(in, pos, length);
+        }
+        return true;
+    }
+
+    private void scanNumber(CharSequence in, int pos, int length) {
+        if (in.charAt(pos) == '0' && has(pos + 1, length)) {
+            char second = in.charAt(pos + 1);
+            if (second == 'x' && has(pos + 2, length) && isHexBody(in.charAt(pos + 2))) {
+                int i = pos + 3;
+                while (has(i, length) && isHexBody(in.charAt(i))) {
+                    i++;
+                }
+                if (has(i, length) && classOf(in.charAt(i)) == C_LONG_SUFFIX) {
+                    i++;
+                }
+                accept(HEX, i);
+                return;
+            }
+            if (second >= '0' && second <= '7') {
+                int i = pos + 2;
+                while (has(i, length) && (isOctalDigit(in.charAt(i)) || in.charAt(i) == '_')) {
+                    i++;
+                }
+                accept(OCTAL, i);
+                return;
+            }
+        }
+        if (isWordBefore(in, pos)) {
+            scanInvalid(in, pos, length);
+            return;
+        }
+        int state = N_INT;
+        int numberEnd = -1;
+        int i = pos + 1;
+        while (true) {
+            if (state == N_FLOAT) {
+                if (isBoundary(in, i, length)) {
+                    accept(FLOAT, i);
+                    return;
+                }
+                break;
+            }
+            if (NUMBER_ACCEPTS[state] && isBoundary(in, i, length)) {
+                numberEnd = i;
+            }
+            if (!has(i, length)) {
+                break;
+            }
+            state = NUMBER_TRANSITIONS[state][classOf(in.charAt(i))];
+            if (state == N_DEAD) {
+                break;
+            }
+            i++;
+        }
+        if (numberEnd >= 0) {
+            accept(NUMBER, numberEnd);
+        } else {
+            scanInvalid(in, pos, length);
+        }
+    }
+
+    private void scanWord(CharSequence in, int pos, int length) {
+        if (isWordBefore(in, pos)) {
+            scanInvalid(in, pos, length);
+            return;
+        }
+        int i = pos + 1;
+        int probe = probe(i);
+        while (has(i, length) && isWordChar(in.charAt(i))) {
+            if (++i == probe) {
+                i = VectorScanner.skipWord(array, arrayOffset + i, arrayOffset + length) - arrayOffset;
+            }
+        }
+        // \w* is greedy, so the only possible end is where the word run stops.
+        if (!isBoundary(in, i, length)) {
+            scanInvalid(in, pos, length);
+            return;
+        }
+        accept(classifyWords && keywords.contains(in, pos, i) ? RESERVED : IDENTIFIER, i);
+    }
+
+    private void scanString(CharSequence in, int pos, int length) {
+        int i = pos + 1;
+        int probe = probe(i);
+        while (has(i, length)) {
+            char c = in.charAt(i);
+            if (c == '"') {
+                accept(STRING, i + 1);
+                return;
+            }
+            if (isLineTerminator(c)) {
+                break;
+            }
+            if (++i == probe) {
+                i = VectorScanner.findLineEnd(array, arrayOffset + i, arrayOffset + length, true) - arrayOffset;
+            }
+        }
+        scanInvalid(in, pos, length);
+    }
+
+    private void scanChar(CharSequence in, int pos, int length) {
+        int i = pos + 1;
+        if (has(i, length) && in.charAt(i) == '\\') {
+            int width = anyCharWidth(in, i + 1, length);
+            if (width > 0 && isCharAt(in, i + 1 + width, length, '\'')) {
+                accept(CHAR, i + 2 + width);
+                return;
+            }
+        }
+        int width = anyCharWidth(in, i, length);
+        if (width > 0 && isCharAt(in, i + width, length, '\'')) {
+            accept(CHAR, i + width + 1);
+            return;
+        }
+        scanInvalid(in, pos, length);
+    }
+
+    private void scanSlash(CharSequence in, int pos, int length) {
+        if (has(pos + 1, length)) {
+            char second = in.charAt(pos + 1);
+            if (second == '/') {
+                int i = pos + 2;
+                int probe = probe(i);
+                while (has(i, length) && !isLineTerminator(in.charAt(i))) {
+                    if (++i == probe) {
+                        i = VectorScanner.findLineEnd(array, arrayOffset + i, arrayOffset + length, false) - arrayOffset;
+                    }
+                }
+                accept(COMMENT, i);
+                return;
+            }
+            if (second == '*' && pos + 2 >= noCommentEndFrom) {
+                hitEnd = true;
+            } else if (second == '*') {
+                int i = pos + 2;
+                int probe = probe(i);
+                while (has(i + 1, length)) {
+                    if (in.charAt(i) == '*' && in.charAt(i + 1) == '/') {
+                        accept(COMMENT, i + 2);
+                        return;
+                    }
+                    if (++i == probe) {
+                        i = VectorScanner.findCommentEnd(array, arrayOffset + i, arrayOffset + length) - arrayOffset;
+                    }
+                }
+                noCommentEndFrom = pos + 2;
+            }
+        }
+        scanOperator(in, pos, length);
+    }
+
+    private void scanOperator(CharSequence in, int pos, int length) {
+        int i = pos + 1;
+        while (has(i, length) && isOperatorChar(in.charAt(i))) {
+            i++;
+        }
+        accept(OPERATOR, i);
+    }
+
+    private void scanInvalid(CharSequence in, int pos, int length) {
+        int i = pos + 1;
+        int probe = probe(i);
+        while (has(i, length) && !isWhitespace(in.charAt(i))) {
+            if (++i == probe) {
+                i = VectorScanner.skipNonWhitespace(array, arrayOffset + i, arrayOffset + length) - arrayOffset;
+            }
+        }
+        accept(INVALID, i);
+    }
+
+    /**
+     * Index at which a run starting at {@code i} switches to a vector scan,
+     * or -1 if the input is scanned char by char.
+     */
+    private int probe(int i) {
+        return array != null ? i + SCALAR_RUN : -1;
+    }
+
+    private void bind(CharSequence in) {
+        if (in == mirrored) {
+            array = mirror;
+            arrayOffset = 0;
+        } else if (in instanceof CharBuffer buffer && buffer.hasArray()) {
+            array = buffer.array();
+            arrayOffset = buffer.arrayOffset() + buffer.position();
+        } else {
+            array = null;
+        }
+    }
+
+    private boolean has(int i, int length) {
+        if (i < length) {
+            return true;
+        }
+        hitEnd = true;
+        return false;
+    }
+
+    private void accept(int kind, int end) {
+        if (end - tokenStart > maxTokenLength) {
+            throw new TokenLimitException(tokenStart, maxTokenLength);
+        }
+        tokenKind = kind;
+        tokenEnd = end;
+    }
+
+    private static int classOf(char c) {
+        return c < 128 ? CLASSES[c] : C_OTHER;
+    }
+
+    static boolean isWhitespace(char c) {
+        int cls = classOf(c);
+        return cls == C_SPACE || cls == C_NEWLINE;
+    }
+
+    static boolean isWordChar(char c) {
+        int cls = classOf(c);
+        return cls >= C_ZERO && cls <= C_UNDERSCORE;
+    }
+
+    static boolean isOperatorChar(char c) {
+        int cls = classOf(c);
+        return cls == C_SIGN || cls == C_SLASH || cls == C_STAR || cls == C_OPERATOR;
+    }
+
+    static boolean isHexBody(char c) {
+        int cls = classOf(c);
+        return cls >= C_ZERO && cls <= C_FLOAT_SUFFIX || cls == C_UNDERSCORE;
+    }
+
+    static boolean isOctalDigit(char c) {
+        return c >= '0' && c <= '7';
+    }
+
+    static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private boolean isCharAt(CharSequence in, int i, int length, char expected) {
+        return has(i, length) && in.charAt(i) == expected;
+    }
+
+    /** Width of the code point matched by the regex {@code .} at {@code i}, or 0 if it does not match. */
+    private int anyCharWidth(CharSequence in, int i, int length) {
+        if (!has(i, length) || isLineTerminator(in.charAt(i))) {
+            return 0;
+        }
+        if (Character.isHighSurrogate(in.charAt(i)) && has(i + 1, length) && Character.isLowSurrogate(in.charAt(i + 1))) {
+            return 2;
+        }
+        return 1;
+    }
+
+    // Word boundaries follow java.util.regex: \w is ASCII, and a non-spacing
+    // mark attached to a letter or digit also counts as a word character.
+
+    private boolean isBoundary(CharSequence in, int i, int length) {
+        return isWordBefore(in, i) != isWordAt(in, i, length);
+    }
+
+    static boolean isWordBefore(CharSequence in, int i) {
+        if (i <= 0) {
+            return false;
+        }
+        char c = in.charAt(i - 1);
+        if (c < 128) {
+            return isWordChar(c);
+        }
+        int cp = Character.codePointBefore(in, i);
+        return Character.getType(cp) == Character.NON_SPACING_MARK && hasBaseCharacter(in, i - 1);
+    }
+
+    private boolean isWordAt(CharSequence in, int i, int length) {
+        return has(i, length) && isWordCharAt(in, i);
+    }
+
+    static boolean isWordCharAt(CharSequence in, int i) {
+        char c = in.charAt(i);
+        if (c < 128) {
+            return isWordChar(c);
+        }
+        int cp = Character.codePointAt(in, i);
+        return Character.getType(cp) == Character.NON_SPACING_MARK && hasBaseCharacter(in, i);
+    }
+
+    private static boolean hasBaseCharacter(CharSequence in, int i) {
+        for (int x = i; x >= 0; x--) {
+            int cp = Character.codePointAt(in, x);
+            if (Character.isLetterOrDigit(cp)) {
+                return true;
+            }
+            if (Character.getType(cp) != Character.NON_SPACING_MARK) {
+                return false;
+            }
+        }
+        return false;
+    }
+}
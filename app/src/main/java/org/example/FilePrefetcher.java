@@ -0,0 +1,237 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Reads a list of files ahead of the code consuming them, so disks and
+ * network mounts are busy while earlier files are being lexed.
+ * <p>
+ * At most {@code maxInFlight} files are being read or waiting to be taken
+ * with {@link #next()} at a time; the next read starts only when a file is
+ * taken and its own read has finished, which holds back reading when lexing
+ * falls behind. Each read goes through an {@link AsynchronousFileChannel},
+ * chunk by chunk, into one of {@code maxInFlight} pooled direct buffers of
+ * {@code bufferSize} bytes; the channel would otherwise copy each chunk
+ * through a temporary direct buffer of its own. The buffer only stages the
+ * bytes: each chunk is decoded as UTF-8 into a char array as it arrives, and
+ * the array is copied once more into the file's String. Files that are not
+ * valid UTF-8 fail as {@link java.nio.file.Files#readString(Path)} would.
+ */
+public final class FilePrefetcher implements Closeable {
+    static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+    private static final int MIN_BUFFER_SIZE = 16;
+
+    /** A file's text, its size in bytes and the time from opening it until it was decoded. */
+    public static final class Content {
+        public final Path path;
+        public final String text;
+        public final long bytes;
+        public final long readNanos;
+
+        Content(Path path, String text, long bytes, long readNanos) {
+            this.path = path;
+            this.text = text;
+            this.bytes = bytes;
+            this.readNanos = readNanos;
+        }
+    }
+
+    private final List<Path> files;
+    private final int bufferSize;
+    private final BlockingQueue<ByteBuffer> buffers;
+    private final ArrayDeque<CompletableFuture<Content>> window;
+    private int started;
+
+    public FilePrefetcher(List<Path> files, int maxInFlight, int bufferSize) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Files in flight must be positive: " + maxInFlight);
+        }
+        if (bufferSize < MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("Buffer size must be at least " + MIN_BUFFER_SIZE + ": " + bufferSize);
+        }
+        this.files = List.copyOf(files);
+        this.bufferSize = bufferSize;
+        this.buffers = new ArrayBlockingQueue<>(maxInFlight);
+        this.window = new ArrayDeque<>(maxInFlight);
+        while (started < this.files.size() && window.size() < maxInFlight) {
+            window.add(read(this.files.get(started++)));
+        }
+    }
+
+    public boolean hasNext() {
+        return !window.isEmpty();
+    }
+
+    /**
+     * Waits for the next file in list order, then starts reading the one
+     * after the window. A file that could not be read throws, and the
+     * following files can still be taken.
+     */
+    public Content next() throws IOException, InterruptedException {
+        CompletableFuture<Content> head = window.poll();
+        if (head == null) {
+            throw new NoSuchElementException();
+        }
+        try {
+            return head.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            // The head's read has given its buffer back, so the next read can take it.
+            if (started < files.size()) {
+                window.add(read(files.get(started++)));
+            }
+        }
+    }
+
+    private CompletableFuture<Content> read(Path file) {
+        CompletableFuture<Content> result = new CompletableFuture<>();
+        long startedNanos = System.nanoTime();
+        AsynchronousFileChannel channel;
+        long size;
+        try {
+            channel = AsynchronousFileChannel.open(file, StandardOpenOption.READ);
+            try {
+                size = channel.size();
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        if (size > Integer.MAX_VALUE - 8) {
+            close(channel);
+            result.completeExceptionally(new IOException("Error: File is too large: " + file));
+            return result;
+        }
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            // A read returns its buffer before its file can be taken, and the next read
+            // starts only then, so at most maxInFlight buffers are ever allocated.
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+        new Read(file, channel, buffer, (int) size, startedNanos, result).next();
+        return result;
+    }
+
+    /** Reads one file chunk by chunk, each completion decoding its chunk and asking for the next. */
+    private final class Read implements CompletionHandler<Integer, Void> {
+        private final Path file;
+        private final AsynchronousFileChannel channel;
+        private final ByteBuffer buffer;
+        private final long startedNanos;
+        private final CompletableFuture<Content> result;
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+        private CharBuffer chars;
+        private long position;
+
+        Read(Path file, AsynchronousFileChannel channel, ByteBuffer buffer, int size, long startedNanos,
+             CompletableFuture<Content> result) {
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.startedNanos = startedNanos;
+            this.result = result;
+            // UTF-8 never has more chars than bytes.
+            this.chars = CharBuffer.allocate(size);
+        }
+
+        void next() {
+            try {
+                channel.read(buffer, position, null, this);
+            } catch (RuntimeException e) {
+                failed(e, null);
+            }
+        }
+
+        @Override
+        public void completed(Integer read, Void attachment) {
+            try {
+                boolean end = read < 0;
+                if (!end) {
+                    position += read;
+                }
+                buffer.flip();
+                decode(end);
+                buffer.compact();
+                if (!end) {
+                    next();
+                    return;
+                }
+                while (decoder.flush(chars).isOverflow()) {
+                    grow();
+                }
+                Content content = new Content(file, chars.flip().toString(), position, System.nanoTime() - startedNanos);
+                finish();
+                result.complete(content);
+            } catch (IOException | RuntimeException e) {
+                finish();
+                result.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public void failed(Throwable error, Void attachment) {
+            finish();
+            result.completeExceptionally(error);
+        }
+
+        private void decode(boolean end) throws IOException {
+            CoderResult coded;
+            while ((coded = decoder.decode(buffer, chars, end)).isOverflow()) {
+                grow();
+            }
+            if (coded.isError()) {
+                coded.throwException();
+            }
+        }
+
+        /** Makes room for a file that got longer while it was being read. */
+        private void grow() {
+            chars = CharBuffer.allocate(Math.max(16, chars.capacity() * 2)).put(chars.flip());
+        }
+
+        private void finish() {
+            close(channel);
+            buffer.clear();
+            buffers.offer(buffer);
+        }
+    }
+
+    private static void close(AsynchronousFileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Only read from; nothing is lost.
+        }
+    }
+
+    /** Stops reading ahead; reads already started finish in the background. */
+    @Override
+    public void close() {
+        started = files.size();
+        window.clear();
+    }
+}
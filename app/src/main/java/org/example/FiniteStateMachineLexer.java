@@ -0,0 +1,317 @@
+package org.example;
+
+/**
+ * Lexer written as an explicit state machine: every character is consumed by
+ * the state of the token it belongs to, and tokens are pushed into a
+ * {@link TokenSink} as soon as they end.
+ * <p>
+ * It recognises the same token language as {@link LexicalAnalyzer}, so its
+ * output can be compared against the other engines. When a state cannot
+ * complete its token (a string reaching the end of the line, a number running
+ * into a letter) the token falls back to the rule the regex alternation would
+ * try next and is scanned again from its first character. Rescans cover at
+ * most the chars the failed token read, and an unclosed block comment is only
+ * searched to the end once, so lexing takes linear time and constant stack.
+ */
+public final class FiniteStateMachineLexer {
+    private enum State {
+        START,
+        ZERO,
+        HEX_PREFIX,
+        HEX,
+        OCTAL,
+        INT,
+        FRACTION,
+        EXP_MARK,
+        EXP_SIGN,
+        EXP,
+        LONG,
+        FLOAT,
+        WORD,
+        STRING,
+        SLASH,
+        LINE_COMMENT,
+        BLOCK_COMMENT,
+        BLOCK_COMMENT_STAR,
+        OPERATOR,
+        INVALID
+    }
+
+    private final KeywordTable keywords;
+
+    public FiniteStateMachineLexer() {
+        this(KeywordTable.java());
+    }
+
+    public FiniteStateMachineLexer(KeywordTable keywords) {
+        this.keywords = keywords;
+    }
+
+    public void tokenize(CharSequence in, TokenSink sink) {
+        int length = in.length();
+        State state = State.START;
+        int start = 0;
+        int numberEnd = -1;
+        // A block comment that reaches the end unclosed means no later one closes either.
+        int noCommentEndFrom = Integer.MAX_VALUE;
+        int i = 0;
+        while (true) {
+            boolean atEnd = i >= length;
+            char c = atEnd ? 0 : in.charAt(i);
+            switch (state) {
+                case START -> {
+                    if (atEnd) {
+                        return;
+                    }
+                    i++;
+                    if (DfaLexer.isWhitespace(c)) {
+                        continue;
+                    }
+                    start = i - 1;
+                    numberEnd = -1;
+                    if (c == '0') {
+                        state = State.ZERO;
+                    } else if (c >= '1' && c <= '9') {
+                        state = DfaLexer.isWordBefore(in, start) ? State.INVALID : State.INT;
+                    } else if (DfaLexer.isWordChar(c)) {
+                        state = DfaLexer.isWordBefore(in, start) ? State.INVALID : State.WORD;
+                    } else if (c == '"') {
+                        state = State.STRING;
+                    } else if (c == '\'') {
+                        int end = charLiteralEnd(in, start, length);
+                        if (end < 0) {
+                            state = State.INVALID;
+                        } else {
+                            sink.token(TokenType.CHAR, start, end);
+                            i = end;
+                        }
+                    } else if (c == '/') {
+                        state = State.SLASH;
+                    } else if (DfaLexer.isOperatorChar(c)) {
+                        state = State.OPERATOR;
+                    } else if (isDelimiter(c)) {
+                        sink.token(TokenType.DELIMITER, start, i);
+                    } else {
+                        state = State.INVALID;
+                    }
+                }
+                case ZERO -> {
+                    if (!atEnd && c == 'x') {
+                        state = State.HEX_PREFIX;
+                        i++;
+                    } else if (!atEnd && DfaLexer.isOctalDigit(c)) {
+                        state = State.OCTAL;
+                        i++;
+                    } else if (DfaLexer.isWordBefore(in, start)) {
+                        state = State.INVALID;
+                    } else {
+                        state = State.INT;
+                    }
+                }
+                case HEX_PREFIX -> {
+                    if (!atEnd && DfaLexer.isHexBody(c)) {
+                        state = State.HEX;
+                        i++;
+                    } else {
+                        state = State.INVALID;
+                        i = start + 1;
+                    }
+                }
+                case HEX -> {
+                    if (!atEnd && DfaLexer.isHexBody(c)) {
+                        i++;
+                    } else {
+                        if (!atEnd && (c == 'l' || c == 'L')) {
+                            i++;
+                        }
+                        sink.token(TokenType.HEX_NUMBER, start, i);
+                        state = State.START;
+                    }
+                }
+                case OCTAL -> {
+                    if (!atEnd && (DfaLexer.isOctalDigit(c) || c == '_')) {
+                        i++;
+                    } else {
+                        sink.token(TokenType.OCTAL_NUMBER, start, i);
+                        state = State.START;
+                    }
+                }
+                case INT, FRACTION, EXP_MARK, EXP_SIGN, EXP, LONG -> {
+                    // The regex accepts the longest prefix that ends on a word
+                    // boundary, so remember the last one and keep going.
+                    if (isNumberEnd(state) && isBoundary(in, i, length)) {
+                        numberEnd = i;
+                    }
+                    State next = atEnd ? null : numberTransition(state, c);
+                    if (next != null) {
+                        state = next;
+                        i++;
+                    } else if (numberEnd >= 0) {
+                        sink.token(TokenType.NUMBER, start, numberEnd);
+                        state = State.START;
+                        i = numberEnd;
+                    } else {
+                        state = State.INVALID;
+                        i = start + 1;
+                    }
+                }
+                case FLOAT -> {
+                    if (isBoundary(in, i, length)) {
+                        sink.token(TokenType.FLOAT_NUMBER, start, i);
+                        state = State.START;
+                    } else if (numberEnd >= 0) {
+                        sink.token(TokenType.NUMBER, start, numberEnd);
+                        state = State.START;
+                        i = numberEnd;
+                    } else {
+                        state = State.INVALID;
+                        i = start + 1;
+                    }
+                }
+                case WORD -> {
+                    if (!atEnd && DfaLexer.isWordChar(c)) {
+                        i++;
+                    } else if (isBoundary(in, i, length)) {
+                        sink.token(keywords.contains(in, start, i) ? TokenType.RESERVED_KEYWORD : TokenType.IDENTIFIER,
+                            start, i);
+                        state = State.START;
+                    } else {
+                        state = State.INVALID;
+                        i = start + 1;
+                    }
+                }
+                case STRING -> {
+                    if (atEnd || DfaLexer.isLineTerminator(c)) {
+                        state = State.INVALID;
+                        i = start + 1;
+                    } else {
+                        i++;
+                        if (c == '"') {
+                            sink.token(TokenType.STRING, start, i);
+                            state = State.START;
+                        }
+                    }
+                }
+                case SLASH -> {
+                    if (!atEnd && c == '/') {
+                        state = State.LINE_COMMENT;
+                        i++;
+                    } else if (!atEnd && c == '*' && start + 2 < noCommentEndFrom) {
+                        state = State.BLOCK_COMMENT;
+                        i++;
+                    } else {
+                        state = State.OPERATOR;
+                    }
+                }
+                case LINE_COMMENT -> {
+                    if (atEnd || DfaLexer.isLineTerminator(c)) {
+                        sink.token(TokenType.COMMENT, start, i);
+                        state = State.START;
+                    } else {
+                        i++;
+                    }
+                }
+                case BLOCK_COMMENT, BLOCK_COMMENT_STAR -> {
+                    if (atEnd) {
+                        // Unterminated: the regex lexes "/*" as an operator run.
+                        state = State.OPERATOR;
+                        i = start + 1;
+                        noCommentEndFrom = start + 2;
+                    } else {
+                        i++;
+                        if (state == State.BLOCK_COMMENT_STAR && c == '/') {
+                            sink.token(TokenType.COMMENT, start, i);
+                            state = State.START;
+                        } else {
+                            state = c == '*' ? State.BLOCK_COMMENT_STAR : State.BLOCK_COMMENT;
+                        }
+                    }
+                }
+                case OPERATOR -> {
+                    if (!atEnd && DfaLexer.isOperatorChar(c)) {
+                        i++;
+                    } else {
+                        sink.token(TokenType.OPERATOR, start, i);
+                        state = State.START;
+                    }
+                }
+                case INVALID -> {
+                    if (atEnd || DfaLexer.isWhitespace(c)) {
+                        sink.token(TokenType.INVALID, start, i);
+                        state = State.START;
+                    } else {
+                        i++;
+                    }
+                }
+            }
+        }
+    }
+
+    private static State numberTransition(State state, char c) {
+        boolean digit = c >= '0' && c <= '9';
+        return switch (state) {
+            case INT -> digit || c == '_' ? State.INT
+                : c == '.' ? State.FRACTION
+                : suffixTransition(c);
+            case FRACTION -> digit || c == '_' ? State.FRACTION : suffixTransition(c);
+            case EXP_MARK -> digit ? State.EXP : c == '+' || c == '-' ? State.EXP_SIGN : null;
+            case EXP_SIGN -> digit ? State.EXP : null;
+            case EXP -> digit ? State.EXP : c == 'e' || c == 'E' ? null : suffixTransition(c);
+            default -> null;
+        };
+    }
+
+    private static State suffixTransition(char c) {
+        return switch (c) {
+            case 'e', 'E' -> State.EXP_MARK;
+            case 'l', 'L' -> State.LONG;
+            case 'f', 'F' -> State.FLOAT;
+            default -> null;
+        };
+    }
+
+    private static boolean isNumberEnd(State state) {
+        return state == State.INT || state == State.FRACTION || state == State.EXP || state == State.LONG;
+    }
+
+    private static boolean isBoundary(CharSequence in, int i, int length) {
+        return DfaLexer.isWordBefore(in, i) != (i < length && DfaLexer.isWordCharAt(in, i));
+    }
+
+    private static boolean isDelimiter(char c) {
+        return switch (c) {
+            case ',', ';', '(', ')', '{', '}', '[', ']' -> true;
+            default -> false;
+        };
+    }
+
+    /** End of the char literal at {@code pos}, or -1 if there is none. */
+    private static int charLiteralEnd(CharSequence in, int pos, int length) {
+        int i = pos + 1;
+        if (i < length && in.charAt(i) == '\\') {
+            int width = anyCharWidth(in, i + 1, length);
+            if (width > 0 && isQuoteAt(in, i + 1 + width, length)) {
+                return i + 2 + width;
+            }
+        }
+        int width = anyCharWidth(in, i, length);
+        if (width > 0 && isQuoteAt(in, i + width, length)) {
+            return i + width + 1;
+        }
+        return -1;
+    }
+
+    private static boolean isQuoteAt(CharSequence in, int i, int length) {
+        return i < length && in.charAt(i) == '\'';
+    }
+
+    private static int anyCharWidth(CharSequence in, int i, int length) {
+        if (i >= length || DfaLexer.isLineTerminator(in.charAt(i))) {
+            return 0;
+        }
+        if (Character.isHighSurrogate(in.charAt(i)) && i + 1 < length && Character.isLowSurrogate(in.charAt(i + 1))) {
+            return 2;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,408 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Keeps the tokens of an edited document up to date by re-lexing only the
+ * region around each edit.
+ * <p>
+ * Lexing restarts at the first token that could have looked at the edited
+ * text. Only block comments span lines, and nothing else looks past the end of
+ * its line, so that is the first token reaching the line of the edit. The one
+ * exception is a {@code /*} that was lexed as an operator because no
+ * {@code *}{@code /} followed it: if the edit creates a {@code *}{@code /},
+ * lexing restarts at the earliest such operator, found in a sorted index of
+ * them. Lexing stops as soon as a new token starts after the edit exactly
+ * where a previous token started.
+ * <p>
+ * Tokens are stored in a gap buffer positioned at the last edit. Tokens after
+ * the gap store their offset from the end of the text, so an edit never has to
+ * shift them, and its cost depends on the size of the re-lexed region and on
+ * how far the gap moves, not on the size of the document.
+ * <p>
+ * Documents opened with {@link LexicalAnalyzer#newDocument(CharSequence)}
+ * also check the analyzer's token length limit and intern identifiers as the
+ * new tokens are lexed, and {@link #tokens()} keeps one buffer with their
+ * bracket pairs, re-adding only the tokens from the first one changed.
+ */
+public final class IncrementalLexer {
+    private static final int MIN_GAP = 16;
+
+    private final KeywordTable keywords;
+    private final int maxTokenLength;
+    private final SymbolTable symbols;
+    private final boolean bracketMatching;
+    private CharSequence source;
+    private int[] kinds;
+    private int[] starts;
+    private int[] lengths;
+    /** Symbol ids of the tokens, or {@code null} if identifiers are not interned. */
+    private int[] symbolIds;
+    private int gapStart;
+    private int gapEnd;
+    /** Starts of the {@code /*} operators, ascending. */
+    private int[] openComments = new int[0];
+    private int openCommentCount;
+    /** Starts of the {@code /*} operators found by the current edit. */
+    private int[] lexedComments = new int[0];
+    private TokenBuffer tokens;
+    /** Index of the first token that {@link #tokens} does not hold as it is now. */
+    private int changedFrom;
+
+    public IncrementalLexer(CharSequence source) {
+        this(new LexicalAnalyzer().analyzeToBuffer(source));
+    }
+
+    public IncrementalLexer(TokenBuffer tokens) {
+        this(tokens, KeywordTable.java());
+    }
+
+    /**
+     * Takes over {@code tokens}, which must have been lexed with
+     * {@code keywords}; later edits are re-lexed with the same table.
+     */
+    public IncrementalLexer(TokenBuffer tokens, KeywordTable keywords) {
+        this(tokens, keywords, Integer.MAX_VALUE, null, false);
+    }
+
+    /**
+     * Takes over {@code tokens}, re-lexing edits with {@code keywords},
+     * checking new tokens against {@code maxTokenLength}, interning
+     * identifiers into {@code symbols} unless it is {@code null} and pairing
+     * the brackets of {@link #tokens()} if {@code bracketMatching} is set.
+     */
+    IncrementalLexer(TokenBuffer tokens, KeywordTable keywords, int maxTokenLength, SymbolTable symbols,
+                     boolean bracketMatching) {
+        int size = tokens.size();
+        int capacity = size + Math.max(MIN_GAP, size / 8);
+        this.keywords = keywords;
+        this.maxTokenLength = maxTokenLength;
+        this.symbols = symbols;
+        this.bracketMatching = bracketMatching;
+        this.source = tokens.source();
+        this.kinds = new int[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+        this.symbolIds = symbols == null ? null : new int[capacity];
+        for (int i = 0; i < size; i++) {
+            int start = tokens.start(i);
+            int end = tokens.end(i);
+            kinds[i] = tokens.type(i).ordinal();
+            starts[i] = start;
+            lengths[i] = end - start;
+            if (symbolIds != null) {
+                symbolIds[i] = tokens.symbols() == symbols ? tokens.symbol(i) : symbolOf(source, kinds[i], start, end);
+            }
+            if (isOpenComment(source, kinds[i], start, end)) {
+                if (openCommentCount == openComments.length) {
+                    openComments = Arrays.copyOf(openComments, Math.max(4, openCommentCount * 2));
+                }
+                openComments[openCommentCount++] = start;
+            }
+        }
+        this.gapStart = size;
+        this.gapEnd = capacity;
+    }
+
+    /**
+     * Returns the tokens of {@code previous.source()} after replacing
+     * {@code removedLength} characters at {@code offset} with {@code inserted}.
+     */
+    public static TokenBuffer relex(TokenBuffer previous, int offset, int removedLength, String inserted) {
+        return relex(previous, offset, removedLength, inserted, KeywordTable.java());
+    }
+
+    public static TokenBuffer relex(TokenBuffer previous, int offset, int removedLength, String inserted,
+                                    KeywordTable keywords) {
+        IncrementalLexer document = new IncrementalLexer(previous, keywords);
+        document.edit(offset, removedLength, inserted);
+        return document.toTokenBuffer();
+    }
+
+    public CharSequence source() {
+        return source;
+    }
+
+    public int size() {
+        return kinds.length - (gapEnd - gapStart);
+    }
+
+    public TokenType type(int index) {
+        return TokenType.ofOrdinal(kinds[physical(index)]);
+    }
+
+    public int start(int index) {
+        int slot = physical(index);
+        return index < gapStart ? starts[slot] : source.length() - starts[slot];
+    }
+
+    public int length(int index) {
+        return lengths[physical(index)];
+    }
+
+    public int end(int index) {
+        return start(index) + length(index);
+    }
+
+    public String text(int index) {
+        int start = start(index);
+        return source.subSequence(start, start + length(index)).toString();
+    }
+
+    /**
+     * Symbol id of the token at {@code index}, or -1 if it is not an
+     * identifier or identifiers are not interned.
+     */
+    public int symbol(int index) {
+        int slot = physical(index);
+        return symbolIds == null ? -1 : symbolIds[slot];
+    }
+
+    /**
+     * The tokens as a buffer, with identifiers interned and brackets paired as
+     * the document was opened. The same buffer is returned by every call and
+     * brought up to date by re-adding only the tokens from the first one
+     * changed since the previous call; after an edit, it is not valid until
+     * this is called again.
+     */
+    public TokenBuffer tokens() {
+        int size = size();
+        if (tokens == null) {
+            tokens = new TokenBuffer(source, size);
+            if (symbols != null) {
+                tokens.internIdentifiers(symbols);
+            }
+            if (bracketMatching) {
+                tokens.indexBrackets();
+            }
+        } else {
+            tokens.truncate(source, changedFrom);
+        }
+        for (int i = changedFrom; i < size; i++) {
+            int slot = physical(i);
+            int start = start(i);
+            tokens.add(kinds[slot], start, start + lengths[slot], symbolIds == null ? -1 : symbolIds[slot]);
+        }
+        changedFrom = size;
+        return tokens;
+    }
+
+    /** A copy of the tokens in a new buffer. */
+    public TokenBuffer toTokenBuffer() {
+        int size = size();
+        TokenBuffer result = new TokenBuffer(source, size);
+        for (int i = 0; i < size; i++) {
+            result.add(kinds[physical(i)], start(i), end(i));
+        }
+        return result;
+    }
+
+    /**
+     * Replaces {@code removedLength} characters at {@code offset} with
+     * {@code inserted}. This copies the text; editors that maintain their own
+     * buffer should call {@link #edit(CharSequence, int, int, int)}.
+     */
+    public void edit(int offset, int removedLength, String inserted) {
+        Objects.checkFromIndexSize(offset, removedLength, source.length());
+        String edited = new StringBuilder(source.length() - removedLength + inserted.length())
+            .append(source, 0, offset)
+            .append(inserted)
+            .append(source, offset + removedLength, source.length())
+            .toString();
+        edit(edited, offset, removedLength, inserted.length());
+    }
+
+    /**
+     * Updates the tokens for {@code edited}, which must be the current source
+     * with {@code removedLength} characters at {@code offset} replaced by
+     * {@code insertedLength} new ones. The edit is applied even if a new
+     * token is longer than the length limit, which then throws
+     * {@link TokenLimitException}.
+     */
+    public void edit(CharSequence edited, int offset, int removedLength, int insertedLength) {
+        Objects.checkFromIndexSize(offset, removedLength, source.length());
+        if (edited.length() != source.length() - removedLength + insertedLength) {
+            throw new IllegalArgumentException("Edited length does not match the edit");
+        }
+        int editEnd = offset + insertedLength;
+        int restart = restartIndex(edited, offset, editEnd);
+        moveGap(restart);
+        changedFrom = Math.min(changedFrom, restart);
+        int pos = gapStart > 0 ? starts[gapStart - 1] + lengths[gapStart - 1] : 0;
+        int lexedFrom = pos;
+
+        // Offsets after the gap are relative to the end of the text, so an
+        // unchanged token has the same stored value before and after the edit.
+        int editedLength = edited.length();
+        int resumedAt = Integer.MAX_VALUE;
+        int lexedCommentCount = 0;
+        int tooLong = -1;
+        DfaLexer lexer = new DfaLexer(keywords);
+        while (lexer.next(edited, pos)) {
+            int start = lexer.tokenStart();
+            if (start > editEnd) {
+                int fromEnd = editedLength - start;
+                while (gapEnd < kinds.length && starts[gapEnd] > fromEnd) {
+                    gapEnd++;
+                }
+                if (gapEnd < kinds.length && starts[gapEnd] == fromEnd) {
+                    resumedAt = source.length() - fromEnd;
+                    break;
+                }
+            }
+            if (gapStart == gapEnd) {
+                growGap();
+            }
+            int kind = lexer.tokenKind();
+            int end = lexer.tokenEnd();
+            kinds[gapStart] = kind;
+            starts[gapStart] = start;
+            lengths[gapStart] = end - start;
+            if (symbolIds != null) {
+                symbolIds[gapStart] = symbolOf(edited, kind, start, end);
+            }
+            if (isOpenComment(edited, kind, start, end)) {
+                if (lexedCommentCount == lexedComments.length) {
+                    lexedComments = Arrays.copyOf(lexedComments, Math.max(4, lexedCommentCount * 2));
+                }
+                lexedComments[lexedCommentCount++] = start;
+            }
+            if (tooLong < 0 && end - start > maxTokenLength) {
+                tooLong = start;
+            }
+            gapStart++;
+            pos = end;
+        }
+        if (resumedAt == Integer.MAX_VALUE) {
+            gapEnd = kinds.length;
+        }
+        updateOpenComments(lexedFrom, resumedAt, editedLength - source.length(), lexedCommentCount);
+        source = edited;
+        if (tooLong >= 0) {
+            throw new TokenLimitException(tooLong, maxTokenLength);
+        }
+    }
+
+    private int restartIndex(CharSequence edited, int offset, int editEnd) {
+        int lineStart = offset;
+        while (lineStart > 0 && edited.charAt(lineStart - 1) != '\n' && edited.charAt(lineStart - 1) != '\r') {
+            lineStart--;
+        }
+        int restart = firstEndingAtOrAfter(lineStart);
+        // Tokens before the restart index lie before the edit, so an operator
+        // there is the same in both versions.
+        if (openCommentCount > 0 && (restart == size() || openComments[0] < start(restart))
+                && createsCommentEnd(edited, offset, editEnd)) {
+            return firstEndingAtOrAfter(openComments[0] + 1);
+        }
+        return restart;
+    }
+
+    /**
+     * Replaces the {@code /*} operators of the old text in
+     * {@code [lexedFrom, resumedAt)} with those the edit lexed, and moves
+     * those after it by {@code shift}.
+     */
+    private void updateOpenComments(int lexedFrom, int resumedAt, int shift, int lexedCount) {
+        int kept = insertionPoint(lexedFrom);
+        int after = insertionPoint(resumedAt);
+        int tail = openCommentCount - after;
+        int count = kept + lexedCount + tail;
+        if (count > openComments.length) {
+            openComments = Arrays.copyOf(openComments, Math.max(count, openComments.length * 2));
+        }
+        System.arraycopy(openComments, after, openComments, kept + lexedCount, tail);
+        for (int i = kept + lexedCount; i < count; i++) {
+            openComments[i] += shift;
+        }
+        System.arraycopy(lexedComments, 0, openComments, kept, lexedCount);
+        openCommentCount = count;
+    }
+
+    private int insertionPoint(int start) {
+        int found = Arrays.binarySearch(openComments, 0, openCommentCount, start);
+        return found < 0 ? -found - 1 : found;
+    }
+
+    private static boolean isOpenComment(CharSequence text, int kind, int start, int end) {
+        return kind == DfaLexer.OPERATOR && end - start >= 2
+            && text.charAt(start) == '/' && text.charAt(start + 1) == '*';
+    }
+
+    private int symbolOf(CharSequence text, int kind, int start, int end) {
+        return kind == DfaLexer.IDENTIFIER ? symbols.intern(text, start, end) : -1;
+    }
+
+    private int firstEndingAtOrAfter(int position) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (end(mid) < position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static boolean createsCommentEnd(CharSequence edited, int offset, int editEnd) {
+        int from = Math.max(0, offset - 1);
+        int to = Math.min(edited.length(), editEnd + 1);
+        for (int i = from; i + 1 < to; i++) {
+            if (edited.charAt(i) == '*' && edited.charAt(i + 1) == '/') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int physical(int index) {
+        Objects.checkIndex(index, size());
+        return index < gapStart ? index : index + (gapEnd - gapStart);
+    }
+
+    private void moveGap(int index) {
+        int length = source.length();
+        while (gapStart > index) {
+            gapStart--;
+            gapEnd--;
+            kinds[gapEnd] = kinds[gapStart];
+            starts[gapEnd] = length - starts[gapStart];
+            lengths[gapEnd] = lengths[gapStart];
+            if (symbolIds != null) {
+                symbolIds[gapEnd] = symbolIds[gapStart];
+            }
+        }
+        while (gapStart < index) {
+            kinds[gapStart] = kinds[gapEnd];
+            starts[gapStart] = length - starts[gapEnd];
+            lengths[gapStart] = lengths[gapEnd];
+            if (symbolIds != null) {
+                symbolIds[gapStart] = symbolIds[gapEnd];
+            }
+            gapStart++;
+            gapEnd++;
+        }
+    }
+
+    private void growGap() {
+        int tail = kinds.length - gapEnd;
+        int capacity = kinds.length + Math.max(MIN_GAP, kinds.length >> 1);
+        int newGapEnd = capacity - tail;
+        kinds = moveTail(Arrays.copyOf(kinds, capacity), tail, newGapEnd);
+        starts = moveTail(Arrays.copyOf(starts, capacity), tail, newGapEnd);
+        lengths = moveTail(Arrays.copyOf(lengths, capacity), tail, newGapEnd);
+        if (symbolIds != null) {
+            symbolIds = moveTail(Arrays.copyOf(symbolIds, capacity), tail, newGapEnd);
+        }
+        gapEnd = newGapEnd;
+    }
+
+    private int[] moveTail(int[] grown, int tail, int newGapEnd) {
+        System.arraycopy(grown, gapEnd, grown, newGapEnd, tail);
+        return grown;
+    }
+}
@@ -0,0 +1,175 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Set of words lexed as {@code RESERVED_KEYWORD}, stored in a collision-free
+ * hash table so a word can be classified straight from the source characters
+ * without allocating a String.
+ * <p>
+ * The table size and hash seed are searched when the table is built until
+ * every keyword lands in its own slot; a lookup then hashes the candidate
+ * once and compares it against a single stored keyword.
+ */
+public final class KeywordTable {
+    /** The reserved keywords of the Java language (JLS 3.9), excluding {@code _}. */
+    public static final List<String> JAVA_KEYWORDS = List.of(
+        "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char",
+        "class", "const", "continue", "default", "do", "double", "else", "enum",
+        "extends", "final", "finally", "float", "for", "goto", "if", "implements",
+        "import", "instanceof", "int", "interface", "long", "native", "new", "package",
+        "private", "protected", "public", "return", "short", "static", "strictfp", "super",
+        "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void",
+        "volatile", "while"
+    );
+
+    private static final KeywordTable JAVA = new KeywordTable(JAVA_KEYWORDS);
+    private static final int MAX_SEED_ATTEMPTS = 4096;
+
+    private final List<String> keywords;
+    private final char[][] slots;
+    private final int seed;
+    private final int mask;
+    private final int minLength;
+    private final int maxLength;
+
+    private KeywordTable(Collection<String> words) {
+        this.keywords = List.copyOf(new LinkedHashSet<>(words));
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (String keyword : keywords) {
+            if (!isWord(keyword)) {
+                throw new IllegalArgumentException("Keyword must match [A-Za-z_][A-Za-z0-9_]*: " + keyword);
+            }
+            min = Math.min(min, keyword.length());
+            max = Math.max(max, keyword.length());
+        }
+        this.minLength = min;
+        this.maxLength = max;
+
+        int size = Integer.highestOneBit(Math.max(1, keywords.size()) * 2 - 1) << 1;
+        while (true) {
+            for (int candidate = 1; candidate <= MAX_SEED_ATTEMPTS; candidate++) {
+                char[][] table = place(candidate, size - 1);
+                if (table != null) {
+                    this.slots = table;
+                    this.seed = candidate;
+                    this.mask = size - 1;
+                    return;
+                }
+            }
+            size <<= 1;
+        }
+    }
+
+    public static KeywordTable java() {
+        return JAVA;
+    }
+
+    public static KeywordTable of(Collection<String> keywords) {
+        return new KeywordTable(keywords);
+    }
+
+    /**
+     * Reads a keyword list separated by whitespace. Lines starting with
+     * {@code #} are comments.
+     */
+    public static KeywordTable read(Path path) throws IOException {
+        List<String> words;
+        try (Stream<String> lines = Files.lines(path)) {
+            words = lines.filter(line -> !line.startsWith("#"))
+                .flatMap(line -> Arrays.stream(line.trim().split("\\s+")))
+                .filter(word -> !word.isEmpty())
+                .toList();
+        } catch (NoSuchFileException e) {
+            throw new IOException("Error: Keyword file does not exist: " + path, e);
+        }
+        try {
+            return of(words);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Error: " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    public List<String> keywords() {
+        return keywords;
+    }
+
+    public boolean contains(CharSequence word) {
+        return contains(word, 0, word.length());
+    }
+
+    /** Whether the characters {@code [start, end)} of {@code text} are a keyword. */
+    public boolean contains(CharSequence text, int start, int end) {
+        int length = end - start;
+        if (length < minLength || length > maxLength) {
+            return false;
+        }
+        char[] keyword = slots[hash(seed, mask, text, start, end)];
+        if (keyword == null || keyword.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (keyword[i] != text.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The keywords as a regex alternation, for the reference regex engine. An
+     * empty table yields an alternation that never matches.
+     */
+    String alternation() {
+        return keywords.isEmpty() ? "(?!)" : String.join("|", keywords);
+    }
+
+    private char[][] place(int candidate, int candidateMask) {
+        char[][] table = new char[candidateMask + 1][];
+        for (String keyword : keywords) {
+            int slot = hash(candidate, candidateMask, keyword, 0, keyword.length());
+            if (table[slot] != null) {
+                return null;
+            }
+            table[slot] = keyword.toCharArray();
+        }
+        return table;
+    }
+
+    private static int hash(int seed, int mask, CharSequence text, int start, int end) {
+        int h = seed;
+        for (int i = start; i < end; i++) {
+            h = h * 31 + text.charAt(i);
+        }
+        h ^= h >>> 15;
+        h *= 0x2c1b3c6d;
+        h ^= h >>> 12;
+        return h & mask;
+    }
+
+    private static boolean isWord(String word) {
+        if (word.isEmpty() || Character.isDigit(word.charAt(0)) || word.charAt(0) >= 128) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (!DfaLexer.isWordChar(word.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return keywords.toString();
+    }
+}
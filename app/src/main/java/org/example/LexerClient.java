@@ -0,0 +1,117 @@
+package org.example;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Sends requests to a {@link LexerServer} over its Unix domain socket. The
+ * command line client lexes one file, or stdin given as {@code -}, and prints
+ * the tokens as {@code LexicalAnalyzer} would, without starting a lexer of its
+ * own.
+ */
+public final class LexerClient implements Closeable {
+    private final SocketChannel channel;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    public LexerClient(Path socket) throws IOException {
+        this.channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+        } catch (IOException e) {
+            channel.close();
+            throw new IOException("Error: No lexer server is listening on " + socket, e);
+        }
+        this.in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    /** Returns the tokens of {@code file} in {@code format}; the path is made absolute first. */
+    public byte[] lexFile(Path file, TokenWriter.Format format) throws IOException {
+        return request(("FILE " + format + " " + file.toAbsolutePath() + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Returns the tokens of {@code content} in {@code format}. */
+    public byte[] lexContent(String content, TokenWriter.Format format) throws IOException {
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        request.writeBytes(("CONTENT " + format + "\n").getBytes(StandardCharsets.UTF_8));
+        request.writeBytes(content.getBytes(StandardCharsets.UTF_8));
+        return request(request.toByteArray());
+    }
+
+    /** Sends one request and returns the tokens of its reply; an {@code ERROR} reply is thrown. */
+    private byte[] request(byte[] request) throws IOException {
+        LexerServer.writeFrame(out, request);
+        out.flush();
+        byte[] reply = LexerServer.readFrame(in);
+        if (reply == null) {
+            throw new IOException("Error: The lexer server closed the connection");
+        }
+        int newline = 0;
+        while (newline < reply.length && reply[newline] != '\n') {
+            newline++;
+        }
+        String status = new String(reply, 0, newline, StandardCharsets.UTF_8);
+        if (status.startsWith("ERROR ")) {
+            throw new IOException(status.substring("ERROR ".length()));
+        }
+        if (!status.startsWith("OK ") || newline == reply.length) {
+            throw new IOException("Error: Malformed reply from the lexer server: " + status);
+        }
+        byte[] tokens = new byte[reply.length - newline - 1];
+        System.arraycopy(reply, newline + 1, tokens, 0, tokens.length);
+        return tokens;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static final String USAGE = "Usage: java org.example.LexerClient --socket=<path> [--format=text|tsv|jsonl|binary] <file|->";
+    private static final String SOCKET_OPTION = "--socket=";
+    private static final String FORMAT_OPTION = "--format=";
+
+    public static void main(String[] args) {
+        Path socket = null;
+        TokenWriter.Format format = TokenWriter.Format.TEXT;
+        String operand = null;
+        try {
+            for (String arg : args) {
+                if (arg.startsWith(SOCKET_OPTION)) {
+                    socket = Path.of(arg.substring(SOCKET_OPTION.length()));
+                } else if (arg.startsWith(FORMAT_OPTION)) {
+                    format = TokenWriter.Format.parse(arg.substring(FORMAT_OPTION.length()));
+                } else if (operand == null && (arg.equals("-") || !arg.startsWith("--"))) {
+                    operand = arg;
+                } else {
+                    throw new IllegalArgumentException(USAGE);
+                }
+            }
+            if (socket == null || operand == null) {
+                throw new IllegalArgumentException(USAGE);
+            }
+            byte[] tokens;
+            try (LexerClient client = new LexerClient(socket)) {
+                tokens = operand.equals("-")
+                    ? client.lexContent(new String(System.in.readAllBytes(), StandardCharsets.UTF_8), format)
+                    : client.lexFile(Path.of(operand), format);
+            }
+            System.out.write(tokens);
+            System.out.flush();
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package org.example;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps one warmed-up {@link LexicalAnalyzer} resident and lexes on request,
+ * so callers pay for JVM startup and JIT compilation once instead of per file.
+ * <p>
+ * Requests arrive over a Unix domain socket, where each connection is served
+ * by its own virtual thread, or as a framed stream such as stdin. Idle
+ * connections, such as those editors keep open, hold no lexing resources:
+ * at most {@code workers} requests are handled at once, each with a
+ * {@link LexerSession} from a pool, and further requests wait for one. A
+ * request holds its worker from reading its body until its reply is
+ * written, so only {@code workers} request and reply buffers exist however
+ * many connections send at once; a client that sends slowly holds a worker
+ * meanwhile. Every frame is a 4-byte big-endian length followed by that
+ * many bytes. A request
+ * frame starts with a UTF-8 header line:
+ * <ul>
+ * <li>{@code FILE <format> <path>} lexes the file at {@code path}, which
+ * must be absolute;</li>
+ * <li>{@code CONTENT <format>} lexes the rest of the frame as UTF-8.</li>
+ * </ul>
+ * The format is a {@link TokenWriter.Format} name. The reply frame starts with
+ * {@code OK <tokens>} and a line feed, followed by the tokens as the format
+ * writes them, or is {@code ERROR <message>} and a line feed. A connection may
+ * send any number of requests; replies come in request order.
+ * <p>
+ * Files are opened with the server's privileges, so anyone who can connect
+ * can read what the server can. The socket file's mode is the only access
+ * control: serve on a path in a directory that only trusted users can reach.
+ */
+public final class LexerServer implements Closeable {
+    static final int MAX_FRAME = 256 * 1024 * 1024;
+    private static final String SAMPLE = String.join("\n",
+        "/* warm-up */ public class Sample {",
+        "    static final long MASK = 0x7F_FFL; // line comment",
+        "    int f(int a, char c) { return a >= 017 && c != '\\n' ? (int) 1.5e3f : -42; }",
+        "    String s = \"text\"; @@@",
+        "}");
+
+    private final LexicalAnalyzer lexer;
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<SocketChannel> clients = ConcurrentHashMap.newKeySet();
+    /** One permit per request being read, lexed or answered; a request lexes into an idle session, so steady-state requests reuse buffers. */
+    private final Semaphore requests;
+    private final ConcurrentLinkedQueue<LexerSession> sessions = new ConcurrentLinkedQueue<>();
+    private ServerSocketChannel server;
+    private Path socket;
+    private boolean closed;
+
+    /** @param workers requests lexed at once, however many connections are open */
+    public LexerServer(LexicalAnalyzer lexer, int workers) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("Worker count must be positive: " + workers);
+        }
+        this.lexer = lexer;
+        this.requests = new Semaphore(workers);
+    }
+
+    /** Lexes a sample a few thousand times so the first requests run compiled code. */
+    public void warmUp() {
+        for (int i = 0; i < 5_000; i++) {
+            lexer.analyzeToBuffer(SAMPLE);
+        }
+    }
+
+    /**
+     * Accepts connections on a Unix domain socket at {@code socket} until
+     * {@link #close()} is called. A socket file left behind by a server that
+     * is gone is replaced; one that still accepts connections is an error.
+     */
+    public void serve(Path socket) throws IOException {
+        UnixDomainSocketAddress address = UnixDomainSocketAddress.of(socket);
+        if (Files.exists(socket)) {
+            if (isListening(address)) {
+                throw new IOException("Error: A server is already listening on " + socket);
+            }
+            Files.deleteIfExists(socket);
+        }
+        ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        synchronized (this) {
+            if (closed) {
+                channel.close();
+                return;
+            }
+            server = channel;
+            this.socket = socket;
+        }
+        try {
+            channel.bind(address);
+            while (true) {
+                SocketChannel client = channel.accept();
+                clients.add(client);
+                connections.execute(() -> {
+                    try (client) {
+                        serve(Channels.newInputStream(client), Channels.newOutputStream(client));
+                    } catch (IOException e) {
+                        // The client went away or broke the protocol; only its connection is dropped.
+                    } finally {
+                        clients.remove(client);
+                    }
+                });
+            }
+        } catch (ClosedChannelException e) {
+            // Closed by close().
+        }
+    }
+
+    private static boolean isListening(UnixDomainSocketAddress address) {
+        try {
+            SocketChannel.open(address).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Answers the requests read from {@code in} on {@code out} until
+     * {@code in} ends, on the calling thread; this is the stdin/stdout mode.
+     */
+    public void serve(InputStream in, OutputStream out) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(in));
+        DataOutputStream replies = new DataOutputStream(new BufferedOutputStream(out));
+        int length;
+        while ((length = readFrameLength(input)) >= 0) {
+            // The body is only read with a permit, so waiting requests hold no buffers.
+            requests.acquireUninterruptibly();
+            try {
+                byte[] request = new byte[length];
+                input.readFully(request);
+                writeFrame(replies, handle(request));
+                replies.flush();
+            } finally {
+                requests.release();
+            }
+        }
+    }
+
+    /** Answers one request frame with a free session; failures become {@code ERROR} replies. */
+    private byte[] handle(byte[] request) {
+        LexerSession polled = sessions.poll();
+        LexerSession session = polled != null ? polled : new LexerSession(lexer);
+        try {
+            return handle(request, session);
+        } finally {
+            // The reply is built; the session need not keep the request alive.
+            session.reset();
+            sessions.add(session);
+        }
+    }
+
+    private byte[] handle(byte[] request, LexerSession session) {
+        ByteArrayOutputStream reply = new ByteArrayOutputStream();
+        try {
+            int newline = indexOf(request, (byte) '\n');
+            String header = new String(request, 0, newline < 0 ? request.length : newline, StandardCharsets.UTF_8);
+            String[] fields = header.split(" ", 3);
+            if (fields.length < 2) {
+                throw new IllegalArgumentException("Error: Malformed request: " + header);
+            }
+            TokenWriter.Format format = TokenWriter.Format.parse(fields[1]);
+            TokenBuffer tokens = switch (fields[0]) {
+                case "FILE" -> {
+                    if (fields.length < 3) {
+                        throw new IllegalArgumentException("Error: Missing path: " + header);
+                    }
+                    Path path = Path.of(fields[2]);
+                    if (!path.isAbsolute()) {
+                        throw new IllegalArgumentException("Error: Path must be absolute: " + fields[2]);
+                    }
+                    yield lexFile(path, session);
+                }
+                case "CONTENT" -> session.lex(StandardCharsets.UTF_8.newDecoder()
+                    .decode(ByteBuffer.wrap(request, newline + 1, newline < 0 ? 0 : request.length - newline - 1))
+                    .toString());
+                default -> throw new IllegalArgumentException("Error: Unknown request: " + fields[0]);
+            };
+            reply.writeBytes(("OK " + tokens.size() + "\n").getBytes(StandardCharsets.UTF_8));
+            try (TokenWriter writer = TokenWriter.toStream(reply, format)) {
+                writer.write(tokens);
+            }
+        } catch (CharacterCodingException e) {
+            return error("Error: Content is not valid UTF-8");
+        } catch (NoSuchFileException e) {
+            return error("Error: File does not exist: " + e.getFile());
+        } catch (IOException | RuntimeException e) {
+            return error(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+        return reply.toByteArray();
+    }
+
+    private TokenBuffer lexFile(Path path, LexerSession session) throws IOException {
+        long started = System.nanoTime();
+        TokenCache cache = lexer.cache();
+        TokenBuffer tokens;
+        long bytes;
+        if (cache != null) {
+            TokenCache.Result cached = cache.lookup(path, lexer);
+            tokens = cached.tokens;
+            bytes = cached.bytes;
+        } else {
+            tokens = session.lex(new CustomFileReader(path).read());
+            bytes = Files.size(path);
+        }
+        LexerStats stats = lexer.stats();
+        if (stats != null) {
+            stats.recordFile(bytes, System.nanoTime() - started);
+        }
+        return tokens;
+    }
+
+    private static byte[] error(String message) {
+        return ("ERROR " + message.replace('\n', ' ') + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int indexOf(byte[] bytes, byte b) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Reads one frame, or returns {@code null} at the end of the stream. */
+    static byte[] readFrame(DataInputStream in) throws IOException {
+        int length = readFrameLength(in);
+        if (length < 0) {
+            return null;
+        }
+        byte[] frame = new byte[length];
+        in.readFully(frame);
+        return frame;
+    }
+
+    /** Reads the length that starts a frame, or returns -1 at the end of the stream. */
+    private static int readFrameLength(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return -1;
+        }
+        if (length < 0 || length > MAX_FRAME) {
+            throw new IOException("Error: Bad frame length: " + length);
+        }
+        return length;
+    }
+
+    static void writeFrame(DataOutputStream out, byte[] frame) throws IOException {
+        out.writeInt(frame.length);
+        out.write(frame);
+    }
+
+    /**
+     * Stops accepting connections and removes the socket file. Requests being
+     * lexed are answered, then their connections are closed.
+     */
+    @Override
+    public void close() throws IOException {
+        ServerSocketChannel channel;
+        Path socket;
+        synchronized (this) {
+            channel = server;
+            socket = this.socket;
+            server = null;
+            closed = true;
+        }
+        connections.shutdown();
+        if (channel != null) {
+            channel.close();
+            Files.deleteIfExists(socket);
+        }
+        for (SocketChannel client : clients) {
+            try {
+                // The connection's thread reads the end of the stream once it is done with the current request.
+                client.shutdownInput();
+            } catch (IOException e) {
+                // Already closed.
+            }
+        }
+        try {
+            connections.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.example;
+
+import java.util.regex.Matcher;
+
+/**
+ * Reusable lexing state for one thread: the engine's scanner and a
+ * {@link TokenBuffer} that every call to {@link #lex(CharSequence)} refills.
+ * Once warm, with the buffer grown to fit the inputs and the scan loops
+ * compiled, lexing allocates nothing, so services lexing many small snippets
+ * create no garbage per request. Keep one session per thread, for example
+ * in a {@link ThreadLocal}; a session is not safe for concurrent use.
+ * <p>
+ * The session uses the engine, keywords, symbol table, bracket matching,
+ * token length limit, token filter and vector setting its analyzer has when
+ * the session is created. Recording {@link LexerStats} allocates a little per
+ * call.
+ */
+public final class LexerSession {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final LexicalAnalyzer lexer;
+    private final LexicalAnalyzer.Engine engine;
+    private final TokenBuffer tokens = new TokenBuffer("", INITIAL_CAPACITY);
+    private final TokenSink sink;
+    private final DfaLexer dfa;
+    private final FiniteStateMachineLexer fsm;
+    private final Matcher matcher;
+
+    public LexerSession(LexicalAnalyzer lexer) {
+        this.lexer = lexer;
+        this.engine = lexer.engine();
+        this.dfa = engine == LexicalAnalyzer.Engine.DFA ? new DfaLexer(lexer.keywords()) : null;
+        this.fsm = engine == LexicalAnalyzer.Engine.FSM ? new FiniteStateMachineLexer(lexer.keywords()) : null;
+        this.matcher = engine == LexicalAnalyzer.Engine.REGEX ? lexer.newMatcher() : null;
+        this.sink = lexer.limited(lexer.selected(tokens::add));
+        if (dfa != null) {
+            dfa.setVectorized(lexer.isVectorized());
+            dfa.setMaxTokenLength(lexer.maxTokenLength());
+            dfa.setKindMask(lexer.kindMask());
+        }
+        if (lexer.symbols() != null) {
+            tokens.internIdentifiers(lexer.symbols());
+        }
+        if (lexer.isBracketMatching()) {
+            tokens.indexBrackets();
+        }
+    }
+
+    /**
+     * Lexes {@code content} into the session's buffer and returns it, with
+     * the same tokens as {@link LexicalAnalyzer#analyzeToBuffer(CharSequence)}.
+     * The buffer, and tokens and views taken from it, are only valid until the
+     * next call or {@link #reset()}; copy what must outlive them.
+     */
+    public TokenBuffer lex(CharSequence content) {
+        LexerStats stats = lexer.stats();
+        long started = stats == null ? 0 : System.nanoTime();
+        tokens.reset(content);
+        switch (engine) {
+            case DFA -> {
+                dfa.mirror(content);
+                dfa.tokenize(content, tokens);
+            }
+            case FSM -> fsm.tokenize(content, sink);
+            case REGEX -> LexicalAnalyzer.analyzeWithRegex(matcher.reset(content), sink);
+            case RULES -> lexer.rules().tokenize(content, sink, lexer.maxTokenLength());
+        }
+        if (stats != null) {
+            stats.recordScan(tokens, System.nanoTime() - started);
+        }
+        return tokens;
+    }
+
+    /**
+     * Empties the buffer and drops the references to the last input, so a
+     * session held by an idle thread does not keep it alive. The buffer keeps
+     * its capacity.
+     */
+    public void reset() {
+        tokens.reset("");
+        if (dfa != null) {
+            dfa.release();
+        }
+        if (matcher != null) {
+            matcher.reset("");
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters filled in by a {@link LexicalAnalyzer} given to
+ * {@link LexicalAnalyzer#setStats(LexerStats)}: files, bytes and chars read,
+ * tokens per type, a histogram of token lengths, and time spent reading
+ * compared with time spent scanning.
+ * <p>
+ * Buffers are counted in one pass over their columns after lexing, so an
+ * analyzer without stats does no extra work per token. Counters may be
+ * updated from many threads, as in a batch run, and read at any time.
+ */
+public final class LexerStats implements LexerStatsMXBean {
+    /** Bucket 0 counts empty tokens, bucket {@code i} lengths in {@code [2^(i-1), 2^i)}; the last is open-ended. */
+    public static final int LENGTH_BUCKETS = 17;
+    public static final String OBJECT_NAME = "org.example:type=LexerStats";
+
+    private static final int TYPES = TokenType.values().length;
+
+    private final LongAdder files = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder chars = new LongAdder();
+    private final LongAdder ioNanos = new LongAdder();
+    private final LongAdder scanNanos = new LongAdder();
+    private final LongAdder fileNanos = new LongAdder();
+    private final LongAccumulator maxFileNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder[] tokensByType = adders(TYPES);
+    private final LongAdder[] lengths = adders(LENGTH_BUCKETS);
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /** Counts the tokens of {@code tokens}, lexed from its source in {@code nanos}. */
+    public void recordScan(TokenBuffer tokens, long nanos) {
+        long[] types = new long[TYPES];
+        long[] buckets = new long[LENGTH_BUCKETS];
+        for (int i = 0; i < tokens.size(); i++) {
+            types[tokens.type(i).ordinal()]++;
+            buckets[bucket(tokens.length(i))]++;
+        }
+        for (int i = 0; i < TYPES; i++) {
+            if (types[i] != 0) {
+                tokensByType[i].add(types[i]);
+            }
+        }
+        for (int i = 0; i < LENGTH_BUCKETS; i++) {
+            if (buckets[i] != 0) {
+                lengths[i].add(buckets[i]);
+            }
+        }
+        recordScan(tokens.source().length(), nanos);
+    }
+
+    /** Records {@code chars} characters scanned in {@code nanos}, counting tokens separately. */
+    public void recordScan(long chars, long nanos) {
+        this.chars.add(chars);
+        scanNanos.add(nanos);
+    }
+
+    public void recordToken(TokenType type, int length) {
+        tokensByType[type.ordinal()].increment();
+        lengths[bucket(length)].increment();
+    }
+
+    /** Records {@code nanos} spent reading input. */
+    public void recordRead(long nanos) {
+        ioNanos.add(nanos);
+    }
+
+    /** Records a whole file of {@code bytes} bytes, read and lexed in {@code nanos}. */
+    public void recordFile(long bytes, long nanos) {
+        files.increment();
+        this.bytes.add(bytes);
+        fileNanos.add(nanos);
+        maxFileNanos.accumulate(nanos);
+    }
+
+    private static int bucket(int length) {
+        return Math.min(32 - Integer.numberOfLeadingZeros(length), LENGTH_BUCKETS - 1);
+    }
+
+    /** Registers these counters with the platform MBean server under {@link #OBJECT_NAME}. */
+    public ObjectName register() throws JMException {
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        return name;
+    }
+
+    @Override
+    public long getFiles() {
+        return files.sum();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public long getChars() {
+        return chars.sum();
+    }
+
+    @Override
+    public long getTokens() {
+        long total = 0;
+        for (LongAdder count : tokensByType) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    public long getTokens(TokenType type) {
+        return tokensByType[type.ordinal()].sum();
+    }
+
+    @Override
+    public Map<String, Long> getTokensByType() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (TokenType type : TokenType.values()) {
+            counts.put(type.name(), getTokens(type));
+        }
+        return counts;
+    }
+
+    @Override
+    public long[] getTokenLengthHistogram() {
+        long[] histogram = new long[LENGTH_BUCKETS];
+        for (int i = 0; i < LENGTH_BUCKETS; i++) {
+            histogram[i] = lengths[i].sum();
+        }
+        return histogram;
+    }
+
+    @Override
+    public long getIoNanos() {
+        return ioNanos.sum();
+    }
+
+    @Override
+    public long getScanNanos() {
+        return scanNanos.sum();
+    }
+
+    @Override
+    public long getFileNanos() {
+        return fileNanos.sum();
+    }
+
+    @Override
+    public long getMaxFileNanos() {
+        return maxFileNanos.get();
+    }
+
+    @Override
+    public void reset() {
+        files.reset();
+        bytes.reset();
+        chars.reset();
+        ioNanos.reset();
+        scanNanos.reset();
+        fileNanos.reset();
+        maxFileNanos.reset();
+        for (LongAdder count : tokensByType) {
+            count.reset();
+        }
+        for (LongAdder count : lengths) {
+            count.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        long fileCount = getFiles();
+        report.append(String.format("Files: %d, bytes: %d, chars: %d, tokens: %d%n",
+            fileCount, getBytes(), getChars(), getTokens()));
+        report.append(String.format("Time: I/O %.1f ms, scan %.1f ms, per file %.2f ms (max %.2f ms)%n",
+            getIoNanos() / 1e6, getScanNanos() / 1e6,
+            fileCount == 0 ? 0 : getFileNanos() / 1e6 / fileCount, getMaxFileNanos() / 1e6));
+        report.append("Tokens by type:");
+        for (TokenType type : TokenType.values()) {
+            long count = getTokens(type);
+            if (count != 0) {
+                report.append(' ').append(type).append('=').append(count);
+            }
+        }
+        report.append(System.lineSeparator()).append("Token lengths:");
+        long[] histogram = getTokenLengthHistogram();
+        for (int i = 1; i < LENGTH_BUCKETS; i++) {
+            if (histogram[i] != 0) {
+                report.append(' ').append(bucketRange(i)).append('=').append(histogram[i]);
+            }
+        }
+        return report.toString();
+    }
+
+    private static String bucketRange(int bucket) {
+        int low = 1 << (bucket - 1);
+        if (bucket == LENGTH_BUCKETS - 1) {
+            return low + "+";
+        }
+        int high = (1 << bucket) - 1;
+        return low == high ? String.valueOf(low) : low + "-" + high;
+    }
+
+    /** A reader that adds up the chars it returns and the time spent reading them. */
+    static final class TimedReader extends Reader {
+        private final Reader reader;
+        long nanos;
+        long chars;
+
+        TimedReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            long started = System.nanoTime();
+            int read = reader.read(buffer, offset, length);
+            nanos += System.nanoTime() - started;
+            if (read > 0) {
+                chars += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.example;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link LexerStats}, for reading the counters of a
+ * long-running host over JMX.
+ */
+public interface LexerStatsMXBean {
+    long getFiles();
+
+    long getBytes();
+
+    long getChars();
+
+    long getTokens();
+
+    Map<String, Long> getTokensByType();
+
+    long[] getTokenLengthHistogram();
+
+    long getIoNanos();
+
+    long getScanNanos();
+
+    long getFileNanos();
+
+    long getMaxFileNanos();
+
+    void reset();
+}
@@ -1,28 +1,86 @@
 package org.example;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.CharBuffer;
 import java.nio.file.Path;
 import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 public class LexicalAnalyzer {
-    private static final Pattern PATTERN = Pattern.compile(
-        "(?<HEX>0x[0-9A-Fa-f_]+[Ll]?)" +
-        "|(?<OCTAL>0[0-7][0-7_]*)" +
-        "|(?<FLOAT>\\b\\d+[\\d_]*\\.?[\\d_]*([eE][+-]?\\d+)?[fF]\\b)" +
-        "|(?<NUMBER>\\b\\d+[\\d_]*\\.?[\\d_]*([eE][+-]?\\d+)?[Ll]?\\b)" +
-        "|(?<STRING>\".*?\")" +
-        "|(?<CHAR>'\\\\?.')" +
-        "|(?<COMMENT>//.*|/\\*(.|\\R)*?\\*/)" +
-        "|(?<RESERVED>\\b(if|else|for|while|int|float|double|char|public|class|static|void|return)\\b)" +
-        "|(?<OPERATOR>[+\\-*/=<>!&|]+)" +
-        "|(?<DELIMITER>[,;(){}\\[\\]])" +
-        "|(?<IDENTIFIER>\\b[a-zA-Z_]\\w*\\b)" +
-        "|(?<INVALID>\\S+)"
-    );
+    private static final Pattern DEFAULT_PATTERN = compile(KeywordTable.java());
+    /**
+     * Group number of each named alternative, indexed by {@link TokenType}
+     * ordinal up to {@code IDENTIFIER}; the group that matched gives the kind
+     * without looking groups up by name or copying their text. The numbers
+     * are the same for every keyword table.
+     */
+    private static final int[] KIND_GROUPS = kindGroups(DEFAULT_PATTERN);
     private Readable fileReader;
+    private Engine engine = Engine.DFA;
+    private KeywordTable keywords = KeywordTable.java();
+    private Pattern pattern = DEFAULT_PATTERN;
+    private SymbolTable symbols;
+    private LexerStats stats;
+    private TokenCache cache;
+    private RuleLexer rules;
+    private boolean vectorized;
+    private boolean bracketMatching;
+    private int maxTokenLength = Integer.MAX_VALUE;
+    private int kindMask = DfaLexer.ALL_KINDS;
+    // A DFA scanner between calls, kept for its vector mirror; taken by one call at a time.
+    private final AtomicReference<DfaLexer> idleDfaLexer = new AtomicReference<>();
+
+    private static Pattern compile(KeywordTable keywords) {
+        return Pattern.compile(
+            "(?<HEX>0x[0-9A-Fa-f_]+[Ll]?)" +
+            "|(?<OCTAL>0[0-7][0-7_]*)" +
+            "|(?<FLOAT>\\b\\d+[\\d_]*\\.?[\\d_]*([eE][+-]?\\d+)?[fF]\\b)" +
+            "|(?<NUMBER>\\b\\d+[\\d_]*\\.?[\\d_]*([eE][+-]?\\d+)?[Ll]?\\b)" +
+            "|(?<STRING>\".*?\")" +
+            "|(?<CHAR>'\\\\?.')" +
+            "|(?<COMMENT>//.*|/\\*(.|\\R)*?\\*/)" +
+            "|(?<RESERVED>\\b(" + keywords.alternation() + ")\\b)" +
+            "|(?<OPERATOR>[+\\-*/=<>!&|]+)" +
+            "|(?<DELIMITER>[,;(){}\\[\\]])" +
+            "|(?<IDENTIFIER>\\b[a-zA-Z_]\\w*\\b)" +
+            "|(?<INVALID>\\S+)"
+        );
+    }
+
+    private static int[] kindGroups(Pattern pattern) {
+        String[] names = {"HEX", "OCTAL", "FLOAT", "NUMBER", "STRING", "CHAR", "COMMENT",
+            "RESERVED", "OPERATOR", "DELIMITER", "IDENTIFIER"};
+        int[] groups = new int[names.length];
+        for (int kind = 0; kind < names.length; kind++) {
+            groups[kind] = pattern.namedGroups().get(names[kind]);
+        }
+        return groups;
+    }
+
+    /**
+     * Scanning strategy used by {@link #analyzeFromString(String)}. {@code REGEX}
+     * is the original named-group alternation and is kept as the reference
+     * implementation; {@code DFA} produces the same tokens in a single pass.
+     * {@code FSM} is a character-at-a-time state machine over the same token
+     * language; see {@link FiniteStateMachineLexer}. {@code RULES} lexes a
+     * dialect described by {@link TokenRules} with a {@link RuleLexer}.
+     */
+    public enum Engine {
+        REGEX,
+        DFA,
+        FSM,
+        RULES
+    }
 
     public LexicalAnalyzer(){}
 
@@ -30,76 +88,767 @@ public class LexicalAnalyzer {
         this.fileReader = fileReader;
     }
 
+    public LexicalAnalyzer(Engine engine) {
+        this(null, engine);
+    }
+
+    public LexicalAnalyzer(Readable fileReader, Engine engine) {
+        if (engine == Engine.RULES) {
+            throw new IllegalArgumentException("The RULES engine is created from a RuleLexer");
+        }
+        this.fileReader = fileReader;
+        this.engine = engine;
+    }
+
+    /** Lexes with the DFA compiled from a set of {@link TokenRules}. */
+    public LexicalAnalyzer(Readable fileReader, RuleLexer rules) {
+        this.fileReader = fileReader;
+        this.engine = Engine.RULES;
+        this.rules = rules;
+    }
+
+    /**
+     * Lexes the words of {@code keywords} as {@code RESERVED_KEYWORD} instead
+     * of {@link KeywordTable#java()}.
+     */
+    public LexicalAnalyzer(Readable fileReader, Engine engine, KeywordTable keywords) {
+        this(fileReader, engine);
+        this.keywords = keywords;
+        this.pattern = keywords == KeywordTable.java() ? DEFAULT_PATTERN : compile(keywords);
+    }
+
+    /**
+     * Also interns identifier names into {@code symbols}, which may be shared
+     * by several analyzers, so tokens carry a symbol id and repeated names share
+     * one String; see {@link TokenBuffer#internIdentifiers(SymbolTable)}.
+     */
+    public LexicalAnalyzer(Readable fileReader, Engine engine, KeywordTable keywords, SymbolTable symbols) {
+        this(fileReader, engine, keywords);
+        this.symbols = symbols;
+    }
+
+    public Engine engine() {
+        return engine;
+    }
+
+    public KeywordTable keywords() {
+        return keywords;
+    }
+
+    /** The rule tables of the {@code RULES} engine, or {@code null}. */
+    public RuleLexer rules() {
+        return rules;
+    }
+
+    /** The table identifiers are interned into, or {@code null}. */
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
+    /**
+     * Records reads, scans and token counts into {@code stats}, or stops
+     * recording if it is {@code null}. The stats may be shared by analyzers on
+     * several threads. Lazy streams from {@link #streamFromReader(Reader)} and
+     * incremental {@link #relex} calls are not recorded.
+     */
+    public void setStats(LexerStats stats) {
+        this.stats = stats;
+    }
+
+    public LexerStats stats() {
+        return stats;
+    }
+
+    /**
+     * Looks up files lexed by {@link #analyzeFromFile()} and batch runs in
+     * {@code cache} before lexing them, or stops doing so if it is
+     * {@code null}.
+     */
+    public void setCache(TokenCache cache) {
+        this.cache = cache;
+    }
+
+    public TokenCache cache() {
+        return cache;
+    }
+
+    /**
+     * Lets the DFA engine skip whitespace, identifiers and comment and string
+     * bodies many chars at a time with the incubating Vector API. The tokens
+     * are the same either way. This has no effect unless the JVM runs with
+     * {@code --add-modules jdk.incubator.vector}, or for the other engines.
+     * The scans need a char array, so inputs without one, such as Strings,
+     * are copied into an array the analyzer keeps for later calls.
+     */
+    public void setVectorized(boolean vectorized) {
+        this.vectorized = vectorized;
+    }
+
+    /** Whether the vector fast paths are requested and the Vector API is available. */
+    public boolean isVectorized() {
+        return vectorized && DfaLexer.VECTOR_SUPPORTED;
+    }
+
+    /**
+     * Pairs the brackets of every buffer this analyzer returns in a
+     * {@link BracketIndex}, available from {@link TokenBuffer#brackets()}.
+     * Sequential lexing builds it as the tokens are added.
+     */
+    public void setBracketMatching(boolean bracketMatching) {
+        this.bracketMatching = bracketMatching;
+    }
+
+    public boolean isBracketMatching() {
+        return bracketMatching;
+    }
+
+    /**
+     * Makes every call fail with {@link TokenLimitException} on a token longer
+     * than {@code maxTokenLength} chars, so one malformed input cannot yield
+     * a token of unbounded size. The DFA and FSM engines lex in time linear in
+     * the input and constant stack with or without a limit, and the rules
+     * engine does too with one. The regex engine cannot bound its matches,
+     * which recurse per char of a block comment, so it takes no limit.
+     */
+    public void setMaxTokenLength(int maxTokenLength) {
+        if (maxTokenLength <= 0) {
+            throw new IllegalArgumentException("Maximum token length must be positive: " + maxTokenLength);
+        }
+        if (engine == Engine.REGEX) {
+            throw new IllegalArgumentException("Error: The regex engine cannot limit token length");
+        }
+        this.maxTokenLength = maxTokenLength;
+    }
+
+    /** The token length limit, or {@link Integer#MAX_VALUE} if there is none. */
+    public int maxTokenLength() {
+        return maxTokenLength;
+    }
+
+    /**
+     * Returns and streams only tokens of the given kinds, or of every kind if
+     * {@code kinds} is {@code null}. The filter is applied inside the scanner:
+     * tokens of other kinds are scanned to their end and dropped, without a
+     * buffer entry, {@link Token}, String or symbol, and the DFA engine skips
+     * the keyword lookup when neither keywords nor identifiers are selected.
+     * Skipped tokens still count against the token length limit. Bracket
+     * matching only sees the selected tokens, so it needs
+     * {@link TokenType#DELIMITER}. Incremental {@link #relex} calls on a
+     * filtered buffer lex the whole edited source again.
+     */
+    public void setTokenFilter(EnumSet<TokenType> kinds) {
+        int mask = DfaLexer.ALL_KINDS;
+        if (kinds != null) {
+            mask = 0;
+            for (TokenType kind : kinds) {
+                mask |= 1 << kind.ordinal();
+            }
+        }
+        this.kindMask = mask;
+    }
+
+    /** The kinds of tokens returned; all of them unless a filter is set. */
+    public EnumSet<TokenType> tokenFilter() {
+        EnumSet<TokenType> kinds = EnumSet.noneOf(TokenType.class);
+        for (TokenType kind : TokenType.values()) {
+            if ((kindMask >>> kind.ordinal() & 1) != 0) {
+                kinds.add(kind);
+            }
+        }
+        return kinds;
+    }
+
+    /** The token filter as a mask with the bit {@code 1 << kind} set for every selected kind. */
+    int kindMask() {
+        return kindMask;
+    }
+
+    /**
+     * A token and the offset of its first character in the source, or -1 if
+     * unknown. Interned identifiers also carry their {@link SymbolTable} id,
+     * otherwise {@code symbol} is -1. Tokens compare equal by value and type;
+     * line and column come from {@link TokenBuffer#line(int)} or a
+     * {@link LineIndex}.
+     * <p>
+     * Tokens created from a {@link TokenBuffer} only reference the range of
+     * the source they cover: {@link #text()} is a view of it, and the String
+     * returned by {@link #value()} is copied out on first use.
+     */
     public static class Token {
-        public final String value;
         public final String type;
+        public final long offset;
+        public final int symbol;
+        private final CharSequence source;
+        private final int start;
+        private final int end;
+        private String value;
 
         public Token(String value, String type) {
+            this(value, type, -1);
+        }
+
+        public Token(String value, String type, long offset) {
+            this(value, type, offset, -1);
+        }
+
+        public Token(String value, String type, long offset, int symbol) {
+            this(value, 0, value.length(), type, offset, symbol);
             this.value = value;
+        }
+
+        /** A token for {@code [start, end)} of {@code source}, which must not change afterwards. */
+        public Token(CharSequence source, int start, int end, String type, long offset, int symbol) {
+            Objects.checkFromToIndex(start, end, source.length());
+            this.source = source;
+            this.start = start;
+            this.end = end;
             this.type = type;
+            this.offset = offset;
+            this.symbol = symbol;
+        }
+
+        /** The token text as a String, copied from the source on first call. */
+        public String value() {
+            String text = value;
+            if (text == null) {
+                text = source.subSequence(start, end).toString();
+                value = text;
+            }
+            return text;
+        }
+
+        /** The token text without copying it from the source. */
+        public CharSequence text() {
+            String text = value;
+            return text != null ? text : CharBuffer.wrap(source, start, end);
         }
 
         @Override
         public String toString() {
-            return "<" + value + ", " + type + ">";
+            return "<" + value() + ", " + type + ">";
         }
 
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
             if (!(o instanceof Token token)) return false;
-            return value.equals(token.value) && type.equals(token.type);
+            return type.equals(token.type) && CharSequence.compare(text(), token.text()) == 0;
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(value, type);
+            return Objects.hash(value(), type);
         }
     }
 
+    /**
+     * Returns the tokens of {@code content} as a read-only list backed by a
+     * {@link TokenBuffer}; see {@link #analyzeToBuffer(CharSequence)}.
+     */
     public List<Token> analyzeFromString(String content) {
-        List<Token> result = new ArrayList<>();
-        Matcher matcher = PATTERN.matcher(content);
+        return analyzeToBuffer(content).asList();
+    }
+
+    /**
+     * Tokenizes {@code content} into columnar storage without creating a
+     * {@link Token} or String per token.
+     */
+    public TokenBuffer analyzeToBuffer(CharSequence content) {
+        long started = stats == null ? 0 : System.nanoTime();
+        TokenBuffer result = new TokenBuffer(content);
+        if (bracketMatching) {
+            result.indexBrackets();
+        }
+        switch (engine) {
+            case DFA -> {
+                DfaLexer lexer = takeDfaLexer();
+                lexer.mirror(content);
+                lexer.tokenize(content, result);
+                giveBack(lexer);
+            }
+            case FSM -> new FiniteStateMachineLexer(keywords).tokenize(content, limited(selected(result::add)));
+            case REGEX -> analyzeWithRegex(content, selected(result::add));
+            case RULES -> rules.tokenize(content, selected(result::add), maxTokenLength);
+        }
+        return interned(recorded(result, started));
+    }
+
+    /** Pushes the tokens of {@code content} into {@code sink} in source order. */
+    public void analyze(CharSequence content, TokenSink sink) {
+        LexerStats stats = this.stats;
+        long started = 0;
+        if (stats != null) {
+            started = System.nanoTime();
+            TokenSink target = sink;
+            sink = (type, start, end) -> {
+                stats.recordToken(type, end - start);
+                target.token(type, start, end);
+            };
+        }
+        switch (engine) {
+            case DFA -> {
+                DfaLexer lexer = takeDfaLexer();
+                lexer.mirror(content);
+                int pos = 0;
+                while (lexer.next(content, pos)) {
+                    if (lexer.selects(lexer.tokenKind())) {
+                        sink.token(TokenType.ofOrdinal(lexer.tokenKind()), lexer.tokenStart(), lexer.tokenEnd());
+                    }
+                    pos = lexer.tokenEnd();
+                }
+                giveBack(lexer);
+            }
+            case FSM -> new FiniteStateMachineLexer(keywords).tokenize(content, limited(selected(sink)));
+            case REGEX -> analyzeWithRegex(content, selected(sink));
+            case RULES -> rules.tokenize(content, selected(sink), maxTokenLength);
+        }
+        if (stats != null) {
+            stats.recordScan(content.length(), System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Same result as {@link #analyzeToBuffer(CharSequence)}, but large inputs
+     * are split into chunks lexed on the common fork/join pool. Only the DFA
+     * engine can resume mid-input; the others always run sequentially.
+     */
+    public TokenBuffer analyzeInParallel(CharSequence content) {
+        if (engine != Engine.DFA) {
+            return analyzeToBuffer(content);
+        }
+        long started = stats == null ? 0 : System.nanoTime();
+        ParallelLexer lexer = new ParallelLexer(keywords);
+        lexer.setVectorized(vectorized);
+        lexer.setMaxTokenLength(maxTokenLength);
+        lexer.setKindMask(kindMask);
+        return indexed(interned(recorded(lexer.tokenize(content), started)));
+    }
+
+    /**
+     * Opens {@code content} as a document whose tokens are kept up to date
+     * through edits by re-lexing only around each one; see
+     * {@link IncrementalLexer}. New tokens are checked against the token
+     * length limit and interned as they are lexed, and
+     * {@link IncrementalLexer#tokens()} pairs brackets if bracket matching is
+     * on. Needs the DFA engine without a token filter.
+     */
+    public IncrementalLexer newDocument(CharSequence content) {
+        if (engine != Engine.DFA || kindMask != DfaLexer.ALL_KINDS) {
+            throw new IllegalStateException("Incremental lexing needs the DFA engine without a token filter");
+        }
+        return new IncrementalLexer(analyzeToBuffer(content), keywords, maxTokenLength, symbols, bracketMatching);
+    }
+
+    /**
+     * Returns the tokens of {@code previous.source()} after replacing
+     * {@code removedLength} characters at {@code offset} with {@code inserted},
+     * re-lexing only around the edit; see {@link IncrementalLexer}. The tokens
+     * are still copied in and out, so editors should keep a
+     * {@link #newDocument(CharSequence) document} instead. Without the DFA
+     * engine, or with a token filter, the edited source is lexed whole.
+     */
+    public TokenBuffer relex(TokenBuffer previous, int offset, int removedLength, String inserted) {
+        if (engine != Engine.DFA || kindMask != DfaLexer.ALL_KINDS) {
+            CharSequence old = previous.source();
+            Objects.checkFromIndexSize(offset, removedLength, old.length());
+            return analyzeToBuffer(new StringBuilder(old).replace(offset, offset + removedLength, inserted).toString());
+        }
+        IncrementalLexer document = new IncrementalLexer(previous, keywords, maxTokenLength, symbols, bracketMatching);
+        document.edit(offset, removedLength, inserted);
+        // The previous tokens may come from an analyzer without the limit.
+        return limited(document.tokens());
+    }
+
+    /**
+     * Takes the idle DFA scanner, or creates one if another call holds it,
+     * set up with the current settings. With the vector fast paths on, a
+     * String input is copied into the scanner's mirror array on every call,
+     * since a String exposes no char array; reusing the scanner only saves
+     * allocating that array again.
+     */
+    private DfaLexer takeDfaLexer() {
+        DfaLexer lexer = idleDfaLexer.getAndSet(null);
+        if (lexer == null) {
+            lexer = new DfaLexer(keywords);
+        }
+        if (lexer.isVectorized() != isVectorized()) {
+            lexer.setVectorized(vectorized);
+        }
+        lexer.setMaxTokenLength(maxTokenLength);
+        lexer.setKindMask(kindMask);
+        return lexer;
+    }
+
+    /**
+     * Makes {@code lexer} the idle scanner again, unless its mirror has grown
+     * past {@link DfaLexer#MAX_KEPT_MIRROR} chars: one large input should not
+     * keep a copy of its size alive for the analyzer's lifetime.
+     */
+    private void giveBack(DfaLexer lexer) {
+        lexer.release();
+        if (lexer.mirrorCapacity() <= DfaLexer.MAX_KEPT_MIRROR) {
+            idleDfaLexer.set(lexer);
+        }
+    }
+
+    /** Checks the tokens of buffers that were not lexed token by token here, from an edit or the cache. */
+    TokenBuffer limited(TokenBuffer tokens) {
+        if (maxTokenLength != Integer.MAX_VALUE) {
+            tokens.checkTokenLengths(maxTokenLength);
+        }
+        return tokens;
+    }
+
+    /** Passes the tokens on to {@code sink}, throwing for any longer than the limit. */
+    TokenSink limited(TokenSink sink) {
+        int limit = maxTokenLength;
+        if (limit == Integer.MAX_VALUE) {
+            return sink;
+        }
+        return (type, start, end) -> {
+            if (end - start > limit) {
+                throw new TokenLimitException(start, limit);
+            }
+            sink.token(type, start, end);
+        };
+    }
+
+    /** Passes on to {@code sink} only the tokens selected by the token filter. */
+    TokenSink selected(TokenSink sink) {
+        int mask = kindMask;
+        if (mask == DfaLexer.ALL_KINDS) {
+            return sink;
+        }
+        return (type, start, end) -> {
+            if ((mask >>> type.ordinal() & 1) != 0) {
+                sink.token(type, start, end);
+            }
+        };
+    }
+
+    private TokenBuffer recorded(TokenBuffer tokens, long started) {
+        if (stats != null) {
+            stats.recordScan(tokens, System.nanoTime() - started);
+        }
+        return tokens;
+    }
+
+    private TokenBuffer interned(TokenBuffer tokens) {
+        if (symbols != null) {
+            tokens.internIdentifiers(symbols);
+        }
+        return tokens;
+    }
+
+    /** Indexes the brackets of buffers assembled from chunks after the fact. */
+    private TokenBuffer indexed(TokenBuffer tokens) {
+        if (bracketMatching) {
+            tokens.indexBrackets();
+        }
+        return tokens;
+    }
+
+    private void analyzeWithRegex(CharSequence content, TokenSink sink) {
+        analyzeWithRegex(pattern.matcher(content), sink);
+    }
+
+    /** A matcher for the regex engine, to be {@link Matcher#reset(CharSequence) reset} to each input. */
+    Matcher newMatcher() {
+        return pattern.matcher("");
+    }
+
+    /** Pushes the tokens {@code matcher} finds from where it stands into {@code sink}. */
+    static void analyzeWithRegex(Matcher matcher, TokenSink sink) {
         while (matcher.find()) {
-            String token = matcher.group();
-            if (matcher.group("HEX") != null) {
-                result.add(new Token(token, "HEX_NUMBER"));
-            } else if (matcher.group("OCTAL") != null) {
-                result.add(new Token(token, "OCTAL_NUMBER"));
-            } else if (matcher.group("FLOAT") != null) {
-                result.add(new Token(token, "FLOAT_NUMBER"));
-            } else if (matcher.group("NUMBER") != null) {
-                result.add(new Token(token, "NUMBER"));
-            } else if (matcher.group("STRING") != null) {
-                result.add(new Token(token, "STRING"));
-            } else if (matcher.group("CHAR") != null) {
-                result.add( new Token(token, "CHAR"));
-            } else if (matcher.group("COMMENT") != null) {
-                result.add(new Token(token, "COMMENT"));
-            } else if (matcher.group("RESERVED") != null) {
-                result.add(new Token(token, "RESERVED_KEYWORD"));
-            } else if (matcher.group("OPERATOR") != null) {
-                result.add(new Token(token, "OPERATOR"));
-            } else if (matcher.group("DELIMITER") != null) {
-                result.add(new Token(token, "DELIMITER"));
-            } else if (matcher.group("IDENTIFIER") != null) {
-                result.add(new Token(token, "IDENTIFIER"));
-            } else {
-                result.add(new Token(token, "INVALID"));
-            }
-        }
-        return result;
+            int start = matcher.start();
+            int end = matcher.end();
+            int kind = 0;
+            while (kind < KIND_GROUPS.length && matcher.start(KIND_GROUPS[kind]) < 0) {
+                kind++;
+            }
+            sink.token(TokenType.ofOrdinal(kind), start, end);
+        }
     }
 
     public List<Token> analyzeFromFile() throws IOException {
+        long started = stats == null ? 0 : System.nanoTime();
+        if (cache != null && fileReader instanceof CustomFileReader file) {
+            TokenCache.Result cached = cache.lookup(file.path(), this);
+            if (stats != null) {
+                stats.recordRead(cached.readNanos);
+                stats.recordFile(cached.bytes, System.nanoTime() - started);
+            }
+            return cached.tokens.asList();
+        }
         String content = fileReader.read();
-        return analyzeFromString(content);
+        recordRead(started);
+        List<Token> tokens = analyzeFromString(content);
+        recordFile(started);
+        return tokens;
+    }
+
+    private void recordRead(long started) {
+        if (stats != null) {
+            stats.recordRead(System.nanoTime() - started);
+        }
+    }
+
+    /** Records the file of {@link #fileReader}, read and lexed since {@code started}. */
+    private void recordFile(long started) throws IOException {
+        if (stats != null) {
+            stats.recordFile(fileReader.size(), System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Tokenizes any character sequence, such as the byte-backed view returned
+     * by {@link MappedFileReader}. Token values are copied out of
+     * {@code content} one token at a time.
+     */
+    public List<Token> analyzeFromSequence(CharSequence content) {
+        return analyzeToBuffer(content).asList();
+    }
+
+    /**
+     * Like {@link #analyzeFromFile()}, but reads through
+     * {@link Readable#readSequence()} so the source can skip decoding the
+     * whole file into a String. A {@link MappedFileReader} scans ASCII bytes
+     * in place and decodes only runs of non-ASCII bytes.
+     */
+    public List<Token> analyzeFromSource() throws IOException {
+        long started = stats == null ? 0 : System.nanoTime();
+        CharSequence content = fileReader.readSequence();
+        recordRead(started);
+        List<Token> tokens = analyzeFromSequence(content);
+        recordFile(started);
+        return tokens;
+    }
+
+    /**
+     * Tokenizes {@code reader} lazily with memory bounded by the largest token
+     * rather than by the input size. The returned stream closes the reader.
+     */
+    public Stream<Token> streamFromReader(Reader reader) throws IOException {
+        if (engine != Engine.DFA) {
+            try (reader) {
+                StringWriter content = new StringWriter();
+                reader.transferTo(content);
+                return analyzeToBuffer(content.toString()).asList().stream();
+            }
+        }
+        StreamingLexer lexer = new StreamingLexer(reader, keywords);
+        lexer.setVectorized(vectorized);
+        lexer.setMaxTokenLength(maxTokenLength);
+        lexer.setKindMask(kindMask);
+        if (symbols != null) {
+            lexer.internIdentifiers(symbols);
+        }
+        return lexer.stream();
+    }
+
+    public Stream<Token> streamFromFile() throws IOException {
+        return streamFromReader(fileReader.openReader());
     }
 
+    /**
+     * Writes the tokens of {@code reader} to {@code writer} without creating a
+     * {@link Token} per token, then closes the reader. Returns the number of
+     * tokens written.
+     */
+    public long writeTokens(Reader reader, TokenWriter writer) throws IOException {
+        LexerStats stats = this.stats;
+        if (stats == null) {
+            return transferTokens(reader, writer);
+        }
+        long started = System.nanoTime();
+        LexerStats.TimedReader timed = new LexerStats.TimedReader(reader);
+        if (engine == Engine.DFA) {
+            try (timed) {
+                StreamingLexer lexer = new StreamingLexer(timed, keywords);
+                lexer.setVectorized(vectorized);
+                lexer.setMaxTokenLength(maxTokenLength);
+                lexer.setKindMask(kindMask);
+                lexer.recordStats(stats);
+                long count = lexer.transferTo(writer);
+                stats.recordScan(timed.chars, System.nanoTime() - started - timed.nanos);
+                stats.recordRead(timed.nanos);
+                return count;
+            }
+        }
+        String content = readAll(timed);
+        stats.recordRead(timed.nanos);
+        return writeAll(content, writer);
+    }
+
+    private long transferTokens(Reader reader, TokenWriter writer) throws IOException {
+        if (engine == Engine.DFA) {
+            try (reader) {
+                StreamingLexer lexer = new StreamingLexer(reader, keywords);
+                lexer.setVectorized(vectorized);
+                lexer.setMaxTokenLength(maxTokenLength);
+                lexer.setKindMask(kindMask);
+                return lexer.transferTo(writer);
+            }
+        }
+        return writeAll(readAll(reader), writer);
+    }
+
+    private static String readAll(Reader reader) throws IOException {
+        try (reader) {
+            StringWriter buffer = new StringWriter();
+            reader.transferTo(buffer);
+            return buffer.toString();
+        }
+    }
+
+    private long writeAll(String content, TokenWriter writer) {
+        long before = writer.tokens();
+        analyze(content, writer.sinkFor(content));
+        return writer.tokens() - before;
+    }
+
+    private static final String USAGE = "Usage: java org.example.LexicalAnalyzer <file_path>\n"
+        + "       java org.example.LexicalAnalyzer --batch <file|directory|glob|@list>...\n"
+        + "       java org.example.LexicalAnalyzer --serve=<socket>|- [--workers=<n>] (with --stats, also as the MXBean "
+        + LexerStats.OBJECT_NAME + ")\n"
+        + "Options, given before the operands: --keywords=<file> --engine=regex|dfa|fsm, or instead of both --rules=<file>\n"
+        + "       --format=text|tsv|jsonl|binary --output=<file> --stats --cache=<directory>\n"
+        + "       --vector (needs java --add-modules jdk.incubator.vector) --read-ahead=<files> --read-buffer=<bytes>\n"
+        + "       --brackets (reports unclosed and unmatched brackets on stderr) --max-token-length=<chars>\n"
+        + "       --only=<kind>,... --skip=<kind>,... (token kinds to output, such as IDENTIFIER or COMMENT)";
+    private static final String KEYWORDS_OPTION = "--keywords=";
+    private static final String ENGINE_OPTION = "--engine=";
+    private static final String RULES_OPTION = "--rules=";
+    private static final String FORMAT_OPTION = "--format=";
+    private static final String OUTPUT_OPTION = "--output=";
+    private static final String STATS_OPTION = "--stats";
+    private static final String CACHE_OPTION = "--cache=";
+    private static final String VECTOR_OPTION = "--vector";
+    private static final String SERVE_OPTION = "--serve=";
+    private static final String WORKERS_OPTION = "--workers=";
+    private static final String READ_AHEAD_OPTION = "--read-ahead=";
+    private static final String READ_BUFFER_OPTION = "--read-buffer=";
+    private static final String BRACKETS_OPTION = "--brackets";
+    private static final String MAX_TOKEN_LENGTH_OPTION = "--max-token-length=";
+    private static final String ONLY_OPTION = "--only=";
+    private static final String SKIP_OPTION = "--skip=";
+
     public static void main(String[] args) {
         try {
+            KeywordTable keywords = null;
+            Engine engine = null;
+            RuleLexer rules = null;
+            TokenWriter.Format format = TokenWriter.Format.TEXT;
+            Path output = null;
+            LexerStats stats = null;
+            TokenCache cache = null;
+            boolean vectorized = false;
+            String serve = null;
+            int workers = Runtime.getRuntime().availableProcessors();
+            int readAhead = BatchLexer.DEFAULT_MAX_CONCURRENT_READS;
+            int readBuffer = FilePrefetcher.DEFAULT_BUFFER_SIZE;
+            boolean brackets = false;
+            int maxTokenLength = Integer.MAX_VALUE;
+            EnumSet<TokenType> only = null;
+            EnumSet<TokenType> skip = null;
+            int options = 0;
+            for (; options < args.length && args[options].startsWith("--") && !args[options].equals("--batch"); options++) {
+                String option = args[options];
+                if (option.startsWith(KEYWORDS_OPTION)) {
+                    keywords = KeywordTable.read(Path.of(option.substring(KEYWORDS_OPTION.length())));
+                } else if (option.startsWith(ENGINE_OPTION)) {
+                    engine = parseEngine(option.substring(ENGINE_OPTION.length()));
+                } else if (option.startsWith(RULES_OPTION)) {
+                    rules = loadRules(option.substring(RULES_OPTION.length()));
+                } else if (option.startsWith(FORMAT_OPTION)) {
+                    format = TokenWriter.Format.parse(option.substring(FORMAT_OPTION.length()));
+                } else if (option.startsWith(OUTPUT_OPTION)) {
+                    output = Path.of(option.substring(OUTPUT_OPTION.length()));
+                } else if (option.equals(STATS_OPTION)) {
+                    stats = new LexerStats();
+                } else if (option.startsWith(CACHE_OPTION)) {
+                    cache = new TokenCache(Path.of(option.substring(CACHE_OPTION.length())));
+                } else if (option.equals(VECTOR_OPTION)) {
+                    vectorized = true;
+                } else if (option.startsWith(SERVE_OPTION)) {
+                    serve = option.substring(SERVE_OPTION.length());
+                } else if (option.startsWith(WORKERS_OPTION)) {
+                    workers = parseCount(option.substring(WORKERS_OPTION.length()));
+                } else if (option.startsWith(READ_AHEAD_OPTION)) {
+                    readAhead = parseCount(option.substring(READ_AHEAD_OPTION.length()));
+                } else if (option.startsWith(READ_BUFFER_OPTION)) {
+                    readBuffer = parseCount(option.substring(READ_BUFFER_OPTION.length()));
+                } else if (option.equals(BRACKETS_OPTION)) {
+                    brackets = true;
+                } else if (option.startsWith(MAX_TOKEN_LENGTH_OPTION)) {
+                    maxTokenLength = parseCount(option.substring(MAX_TOKEN_LENGTH_OPTION.length()));
+                } else if (option.startsWith(ONLY_OPTION)) {
+                    only = parseKinds(option.substring(ONLY_OPTION.length()));
+                } else if (option.startsWith(SKIP_OPTION)) {
+                    skip = parseKinds(option.substring(SKIP_OPTION.length()));
+                } else {
+                    throw new IllegalArgumentException("Error: Unknown option: " + option + "\n" + USAGE);
+                }
+            }
+            args = Arrays.copyOfRange(args, options, args.length);
+            if (rules != null) {
+                if (engine != null && engine != Engine.RULES) {
+                    throw new IllegalArgumentException("Error: --rules cannot be combined with --engine="
+                        + engine.name().toLowerCase(Locale.ROOT) + "\n" + USAGE);
+                }
+                if (keywords != null) {
+                    throw new IllegalArgumentException("Error: --keywords cannot be combined with --rules; "
+                        + "the rules define the keywords\n" + USAGE);
+                }
+                engine = Engine.RULES;
+            }
+            if (engine == null) {
+                engine = Engine.DFA;
+            }
+            if (keywords == null) {
+                keywords = KeywordTable.java();
+            }
+            EnumSet<TokenType> kinds = null;
+            if (only != null || skip != null) {
+                kinds = only != null ? only : EnumSet.allOf(TokenType.class);
+                if (skip != null) {
+                    kinds.removeAll(skip);
+                }
+            }
+            if (serve != null) {
+                // Replies go back to each client in the format it asks for, without bracket diagnostics.
+                if (args.length > 0 || output != null || brackets) {
+                    throw new IllegalArgumentException(USAGE);
+                }
+                LexicalAnalyzer lexer = newAnalyzer(null, engine, keywords, rules, maxTokenLength);
+                lexer.setCache(cache);
+                lexer.setVectorized(vectorized);
+                lexer.setTokenFilter(kinds);
+                runServer(serve, lexer, workers, stats);
+                if (stats != null) {
+                    System.err.println(stats);
+                }
+                return;
+            }
+            if (args.length > 0 && args[0].equals("--batch")) {
+                if (args.length == 1) {
+                    throw new IllegalArgumentException(USAGE);
+                }
+                LexicalAnalyzer lexer = newAnalyzer(null, engine, keywords, rules, maxTokenLength);
+                lexer.setStats(stats);
+                lexer.setCache(cache);
+                lexer.setVectorized(vectorized);
+                lexer.setBracketMatching(brackets);
+                lexer.setTokenFilter(kinds);
+                BatchLexer batch = new BatchLexer(lexer, readAhead, readBuffer);
+                runBatch(Arrays.asList(args).subList(1, args.length), batch, format, output);
+                if (stats != null) {
+                    System.err.println(stats);
+                }
+                return;
+            }
             if (args.length != 1) {
-                throw new IllegalArgumentException("Usage: java LexicalAnalyzer.java <file_path>");
+                throw new IllegalArgumentException(USAGE);
             }
             String filePath = args[0];
             Path path = Path.of(filePath);
@@ -113,11 +862,182 @@ public class LexicalAnalyzer {
                 throw new IOException("Error: Cannot read file: " + filePath);
             }
             Readable fileReader = new CustomFileReader(path);
-            LexicalAnalyzer lexer = new LexicalAnalyzer(fileReader);
-            List<Token> tokens = lexer.analyzeFromFile();
-            tokens.forEach(System.out::println);
+            LexicalAnalyzer lexer = newAnalyzer(fileReader, engine, keywords, rules, maxTokenLength);
+            lexer.setStats(stats);
+            lexer.setVectorized(vectorized);
+            lexer.setBracketMatching(brackets);
+            lexer.setTokenFilter(kinds);
+            long started = System.nanoTime();
+            TokenBuffer tokens = null;
+            try (TokenWriter writer = openWriter(format, output)) {
+                if (cache != null) {
+                    tokens = cache.analyze(path, lexer);
+                } else if (brackets) {
+                    // The index needs the whole buffer, so the tokens are not streamed.
+                    tokens = lexer.analyzeToBuffer(new CustomFileReader(path).read());
+                } else {
+                    lexer.writeTokens(fileReader.openReader(), writer);
+                }
+                if (tokens != null) {
+                    writer.write(tokens);
+                }
+            }
+            if (brackets) {
+                for (BracketIndex.Diagnostic diagnostic : tokens.brackets().diagnostics()) {
+                    System.err.println(filePath + ":" + diagnostic);
+                }
+            }
+            if (stats != null) {
+                stats.recordFile(Files.size(path), System.nanoTime() - started);
+                System.err.println(stats);
+            }
         } catch (IllegalArgumentException | IOException e) {
             System.err.println(e.getMessage());
+        } catch (UncheckedIOException e) {
+            System.err.println(e.getCause().getMessage());
+        }
+    }
+
+    private static LexicalAnalyzer newAnalyzer(Readable fileReader, Engine engine, KeywordTable keywords,
+                                               RuleLexer rules, int maxTokenLength) {
+        LexicalAnalyzer lexer;
+        if (engine != Engine.RULES) {
+            lexer = new LexicalAnalyzer(fileReader, engine, keywords);
+        } else if (rules == null) {
+            throw new IllegalArgumentException("Error: The rules engine needs --rules=<file>\n" + USAGE);
+        } else {
+            lexer = new LexicalAnalyzer(fileReader, rules);
+        }
+        if (maxTokenLength != Integer.MAX_VALUE) {
+            lexer.setMaxTokenLength(maxTokenLength);
+        }
+        return lexer;
+    }
+
+    /**
+     * Serves requests on the Unix domain socket {@code socket}, or on stdin and
+     * stdout if it is {@code -}, until stdin ends or the process is stopped.
+     */
+    private static void runServer(String socket, LexicalAnalyzer lexer, int workers, LexerStats stats)
+            throws IOException {
+        LexerServer server = new LexerServer(lexer, workers);
+        ObjectName registered = null;
+        try {
+            server.warmUp();
+            lexer.setStats(stats);
+            if (stats != null) {
+                // A long-running server is watched while it runs, with JConsole or jcmd, not only at exit.
+                registered = register(stats);
+            }
+            if (socket.equals("-")) {
+                server.serve(System.in, System.out);
+                return;
+            }
+            // On Ctrl-C or SIGTERM, remove the socket and let the main thread print its stats.
+            Thread main = Thread.currentThread();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    server.close();
+                    main.join();
+                } catch (IOException e) {
+                    // Exiting anyway.
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            server.serve(Path.of(socket));
+        } finally {
+            server.close();
+            if (registered != null) {
+                unregister(registered);
+            }
+        }
+    }
+
+    private static ObjectName register(LexerStats stats) throws IOException {
+        try {
+            return stats.register();
+        } catch (JMException e) {
+            throw new IOException("Error: Cannot register " + LexerStats.OBJECT_NAME + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static void unregister(ObjectName name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            // Unregistered already; the process is stopping anyway.
+        }
+    }
+
+    private static int parseCount(String value) {
+        try {
+            int count = Integer.parseInt(value);
+            if (count > 0) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below.
+        }
+        throw new IllegalArgumentException("Error: Not a positive number: " + value + "\n" + USAGE);
+    }
+
+    /** Reads a rule file, keeping the compiled tables next to it for the next run. */
+    private static RuleLexer loadRules(String spec) throws IOException {
+        Path path = Path.of(spec);
+        TokenRules rules = TokenRules.read(path);
+        try {
+            return RuleLexer.load(rules, Path.of(spec + ".dfa"));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Error: " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static Engine parseEngine(String name) {
+        for (Engine engine : Engine.values()) {
+            if (engine.name().equalsIgnoreCase(name)) {
+                return engine;
+            }
+        }
+        throw new IllegalArgumentException("Error: Unknown engine: " + name + "\n" + USAGE);
+    }
+
+    private static EnumSet<TokenType> parseKinds(String names) {
+        EnumSet<TokenType> kinds = EnumSet.noneOf(TokenType.class);
+        for (String name : names.split(",")) {
+            TokenType kind = null;
+            for (TokenType type : TokenType.values()) {
+                if (type.name().equalsIgnoreCase(name.trim())) {
+                    kind = type;
+                }
+            }
+            if (kind == null) {
+                throw new IllegalArgumentException("Error: Unknown token kind: " + name + "\n" + USAGE);
+            }
+            kinds.add(kind);
+        }
+        return kinds;
+    }
+
+    private static TokenWriter openWriter(TokenWriter.Format format, Path output) throws IOException {
+        return output == null ? TokenWriter.toStream(System.out, format) : TokenWriter.open(output, format);
+    }
+
+    private static void runBatch(List<String> operands, BatchLexer batch, TokenWriter.Format format, Path output)
+            throws IOException {
+        List<Path> files = BatchLexer.collect(operands);
+        if (files.isEmpty()) {
+            throw new FileNotFoundException("Error: No files matched: " + String.join(" ", operands));
+        }
+        try {
+            BatchLexer.Summary summary;
+            try (TokenWriter writer = openWriter(format, output)) {
+                summary = batch.run(files, writer, System.err);
+            }
+            System.err.println(summary);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Error: Interrupted", e);
         }
     }
 }
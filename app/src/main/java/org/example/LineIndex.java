@@ -0,0 +1,62 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Start offsets of the lines of a text, for turning offsets into 1-based line
+ * and column numbers with a binary search.
+ * <p>
+ * Lines end at the same terminators as the regex {@code \R}: CR LF, LF, CR,
+ * VT, FF, U+0085, U+2028 and U+2029. Columns count UTF-16 chars.
+ */
+public final class LineIndex {
+    private final int length;
+    private final int[] lineStarts;
+    private final int lineCount;
+
+    public LineIndex(CharSequence text) {
+        int n = text.length();
+        int[] starts = new int[16];
+        int count = 1;
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            if (c > '\r' && c != '\u0085' && c != '\u2028' && c != '\u2029') {
+                continue;
+            }
+            if (c == '\r' && i + 1 < n && text.charAt(i + 1) == '\n') {
+                i++;
+            } else if (c < '\n') {
+                continue;
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+            }
+            starts[count++] = i + 1;
+        }
+        this.length = n;
+        this.lineStarts = starts;
+        this.lineCount = count;
+    }
+
+    public int lineCount() {
+        return lineCount;
+    }
+
+    /** Offset of the first character of {@code line} (1-based). */
+    public int lineStart(int line) {
+        return lineStarts[Objects.checkIndex(line - 1, lineCount)];
+    }
+
+    /** Line (1-based) containing {@code offset}; the text length is on the last line. */
+    public int line(int offset) {
+        Objects.checkIndex(offset, length + 1);
+        int found = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+        return found >= 0 ? found + 1 : -found - 1;
+    }
+
+    /** Column (1-based) of {@code offset} within its line. */
+    public int column(int offset) {
+        return offset - lineStart(line(offset)) + 1;
+    }
+}
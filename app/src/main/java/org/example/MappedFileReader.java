@@ -0,0 +1,67 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Maps the file into memory instead of reading it onto the heap. Pure ASCII
+ * files, the common case for source code, are scanned in place. Otherwise the
+ * file is read as UTF-8 through a {@link Utf8Sequence}, which still reads the
+ * ASCII bytes in place and decodes only the runs of other bytes, such as a
+ * copyright sign in a header comment, onto the heap. Malformed sequences are
+ * replaced by U+FFFD instead of failing.
+ */
+public class MappedFileReader implements Readable {
+    private final Path path;
+
+    public MappedFileReader(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public long size() throws IOException {
+        return Files.size(path);
+    }
+
+    @Override
+    public String read() throws IOException {
+        return readSequence().toString();
+    }
+
+    @Override
+    public CharSequence readSequence() throws IOException {
+        MappedByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Error: File is too large to map: " + path);
+            }
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        if (isAscii(bytes)) {
+            return new AsciiSequence(bytes, 0, bytes.limit());
+        }
+        return Utf8Sequence.of(bytes);
+    }
+
+    static boolean isAscii(ByteBuffer bytes) {
+        int limit = bytes.limit();
+        int i = 0;
+        for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+            if ((bytes.getLong(i) & 0x8080808080808080L) != 0) {
+                return false;
+            }
+        }
+        for (; i < limit; i++) {
+            if (bytes.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
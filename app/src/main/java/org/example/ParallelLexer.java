@@ -0,0 +1,174 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Lexes one large input on a {@link ForkJoinPool} by splitting it into chunks.
+ * <p>
+ * Each chunk is lexed speculatively, as if a token started at the chunk
+ * boundary. Boundaries are moved to just after a line break, which is a token
+ * boundary everywhere except inside a block comment, so speculation is
+ * usually right. The chunks are then stitched in order: when the previous
+ * chunk's last token runs past the boundary, lexing resumes sequentially from
+ * its end until it reaches a token start the speculative pass also produced,
+ * and the rest of that chunk is reused. The result is identical to
+ * {@link LexicalAnalyzer#analyzeToBuffer(CharSequence)}.
+ * <p>
+ * The chunks keep every token, since stitching compares token starts, but
+ * only the selected kinds are copied into the result, and the token length
+ * limit is checked there, once a token is known to be final.
+ */
+public final class ParallelLexer {
+    static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final KeywordTable keywords;
+    private boolean vectorized;
+    private int kindMask = DfaLexer.ALL_KINDS;
+    private int maxTokenLength = Integer.MAX_VALUE;
+
+    public ParallelLexer() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public ParallelLexer(KeywordTable keywords) {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE, keywords);
+    }
+
+    public ParallelLexer(ForkJoinPool pool, int chunkSize) {
+        this(pool, chunkSize, KeywordTable.java());
+    }
+
+    public ParallelLexer(ForkJoinPool pool, int chunkSize, KeywordTable keywords) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.keywords = keywords;
+    }
+
+    /** Lexes with the vector fast paths; see {@link DfaLexer#setVectorized(boolean)}. */
+    void setVectorized(boolean vectorized) {
+        this.vectorized = vectorized;
+    }
+
+    /** Keeps only tokens whose kind bit is set in {@code kindMask}; see {@link DfaLexer#setKindMask(int)}. */
+    void setKindMask(int kindMask) {
+        this.kindMask = kindMask;
+    }
+
+    /** Makes tokens longer than {@code maxTokenLength} chars throw {@link TokenLimitException}. */
+    void setMaxTokenLength(int maxTokenLength) {
+        this.maxTokenLength = maxTokenLength;
+    }
+
+    public TokenBuffer tokenize(CharSequence content) {
+        int[] bounds = chunkBounds(content);
+        int chunks = bounds.length - 1;
+        TokenBuffer result = new TokenBuffer(content);
+        DfaLexer lexer = newLexer();
+        lexer.setKindMask(kindMask);
+        lexer.setMaxTokenLength(maxTokenLength);
+        lexer.mirror(content);
+        if (chunks == 1) {
+            lexer.tokenize(content, result);
+            return result;
+        }
+
+        List<ForkJoinTask<TokenBuffer>> tasks = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            int from = bounds[i];
+            int to = bounds[i + 1];
+            tasks.add(pool.submit(() -> {
+                TokenBuffer chunk = new TokenBuffer(content, (to - from) / 4);
+                DfaLexer chunkLexer = newLexer();
+                chunkLexer.mirror(lexer);
+                chunkLexer.tokenize(content, from, to, chunk);
+                return chunk;
+            }));
+        }
+
+        int frontier = 0;
+        for (int i = 0; i < chunks; i++) {
+            TokenBuffer speculative = tasks.get(i).join();
+            int from = bounds[i];
+            int to = bounds[i + 1];
+            int reuseFrom = 0;
+            if (frontier > from) {
+                frontier = resynchronize(lexer, content, frontier, to, speculative, result);
+                reuseFrom = firstStartingFrom(speculative, frontier);
+            }
+            // Skipped kinds are not in the result, so the frontier is tracked here.
+            result.addAll(speculative, reuseFrom, kindMask, maxTokenLength);
+            if (reuseFrom < speculative.size()) {
+                frontier = Math.max(frontier, speculative.end(speculative.size() - 1));
+            }
+        }
+        return result;
+    }
+
+    private DfaLexer newLexer() {
+        DfaLexer lexer = new DfaLexer(keywords);
+        lexer.setVectorized(vectorized);
+        return lexer;
+    }
+
+    /**
+     * Lexes sequentially from {@code pos} and appends the selected tokens to
+     * {@code result} until one starts where a speculative token starts, or
+     * the chunk ends. Returns the offset where lexing stopped: the start of
+     * that token, or the end of the last token lexed.
+     */
+    private static int resynchronize(DfaLexer lexer, CharSequence content, int pos, int to,
+                                     TokenBuffer speculative, TokenBuffer result) {
+        int candidate = 0;
+        while (lexer.next(content, pos) && lexer.tokenStart() < to) {
+            int start = lexer.tokenStart();
+            while (candidate < speculative.size() && speculative.start(candidate) < start) {
+                candidate++;
+            }
+            if (candidate < speculative.size() && speculative.start(candidate) == start) {
+                return start;
+            }
+            if (lexer.selects(lexer.tokenKind())) {
+                result.add(lexer.tokenKind(), start, lexer.tokenEnd());
+            }
+            pos = lexer.tokenEnd();
+        }
+        return pos;
+    }
+
+    /** Index of the first token of {@code tokens} starting at or after {@code offset}, or its size if none does. */
+    private static int firstStartingFrom(TokenBuffer tokens, int offset) {
+        int index = 0;
+        while (index < tokens.size() && tokens.start(index) < offset) {
+            index++;
+        }
+        return index;
+    }
+
+    private int[] chunkBounds(CharSequence content) {
+        int length = content.length();
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(0);
+        int previous = 0;
+        while (length - previous > chunkSize) {
+            int bound = previous + chunkSize;
+            int limit = Math.min(length, bound + chunkSize);
+            int newline = bound;
+            while (newline < limit && content.charAt(newline - 1) != '\n') {
+                newline++;
+            }
+            bound = newline < limit ? newline : bound;
+            bounds.add(bound);
+            previous = bound;
+        }
+        bounds.add(length);
+        return bounds.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -1,7 +1,30 @@
 package org.example;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 
 public interface Readable {
     String read() throws IOException;
+
+    /**
+     * Opens the source for incremental reading. The default implementation
+     * reads everything up front; sources backed by files should override it.
+     */
+    default Reader openReader() throws IOException {
+        return new StringReader(read());
+    }
+
+    /**
+     * Returns the content as a character sequence. Sources that can expose
+     * their data without building a String first should override it.
+     */
+    default CharSequence readSequence() throws IOException {
+        return read();
+    }
+
+    /** The size of the source in bytes, recorded in {@link LexerStats}, or 0 if it is unknown. */
+    default long size() throws IOException {
+        return 0;
+    }
 }
@@ -0,0 +1,547 @@
+package org.example;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Compiles {@link TokenRules} into the tables of a {@link RuleLexer}: the
+ * patterns are parsed, the chars are split into classes that every pattern
+ * treats alike, a Thompson NFA over the classes is turned into a DFA by
+ * subset construction, and the DFA is minimized by partition refinement.
+ */
+final class RuleCompiler {
+    private static final int MAX_CHAR = Character.MAX_VALUE;
+    private static final int[] DIGITS = {'0', '9'};
+    private static final int[] WORD = {'0', '9', 'A', 'Z', '_', '_', 'a', 'z'};
+    private static final int[] SPACE = {'\t', '\r', ' ', ' '};
+    private static final int[] NOT_LINE_FEED = {0, '\n' - 1, '\n' + 1, MAX_CHAR};
+
+    private final TokenRules rules;
+    private final List<Node> patterns = new ArrayList<>();
+    private int[] boundaries;
+
+    // NFA: at most one char edge per state, plus epsilon edges.
+    private final List<int[]> edgeClasses = new ArrayList<>();
+    private final List<Integer> edgeTargets = new ArrayList<>();
+    private final List<List<Integer>> epsilons = new ArrayList<>();
+    private final List<Integer> acceptRules = new ArrayList<>();
+
+    RuleCompiler(TokenRules rules) {
+        this.rules = rules;
+    }
+
+    RuleLexer compile() {
+        List<TokenRules.Rule> list = rules.rules();
+        TreeSet<Integer> cuts = new TreeSet<>(List.of(0, MAX_CHAR + 1));
+        for (TokenRules.Rule rule : list) {
+            Node pattern = new Parser(rule).parse();
+            pattern.collectCuts(cuts);
+            patterns.add(pattern);
+        }
+        boundaries = cuts.stream().mapToInt(Integer::intValue).toArray();
+
+        int start = newState();
+        for (int r = 0; r < list.size(); r++) {
+            int[] fragment = build(patterns.get(r));
+            epsilons.get(start).add(fragment[0]);
+            acceptRules.set(fragment[1], r);
+        }
+        return minimize(determinize(start));
+    }
+
+    // ---- Pattern syntax ---------------------------------------------------
+
+    private abstract static class Node {
+        void collectCuts(TreeSet<Integer> cuts) {
+        }
+    }
+
+    private static final class Chars extends Node {
+        /** Sorted, disjoint inclusive ranges as lo, hi pairs. */
+        final int[] ranges;
+
+        Chars(int[] ranges) {
+            this.ranges = ranges;
+        }
+
+        @Override
+        void collectCuts(TreeSet<Integer> cuts) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                cuts.add(ranges[i]);
+                cuts.add(ranges[i + 1] + 1);
+            }
+        }
+    }
+
+    private static final class Sequence extends Node {
+        final List<Node> items;
+        final boolean alternatives;
+
+        Sequence(List<Node> items, boolean alternatives) {
+            this.items = items;
+            this.alternatives = alternatives;
+        }
+
+        @Override
+        void collectCuts(TreeSet<Integer> cuts) {
+            for (Node item : items) {
+                item.collectCuts(cuts);
+            }
+        }
+    }
+
+    private static final class Repeat extends Node {
+        final Node item;
+        final int min;
+        final int max;
+
+        Repeat(Node item, int min, int max) {
+            this.item = item;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        void collectCuts(TreeSet<Integer> cuts) {
+            item.collectCuts(cuts);
+        }
+    }
+
+    private static final class Parser {
+        private final TokenRules.Rule rule;
+        private final String pattern;
+        private int pos;
+
+        Parser(TokenRules.Rule rule) {
+            this.rule = rule;
+            this.pattern = rule.pattern;
+        }
+
+        Node parse() {
+            Node node = alternation();
+            if (pos < pattern.length()) {
+                throw error("Unexpected '" + pattern.charAt(pos) + "'");
+            }
+            return node;
+        }
+
+        private Node alternation() {
+            List<Node> alternatives = new ArrayList<>();
+            alternatives.add(concatenation());
+            while (accept('|')) {
+                alternatives.add(concatenation());
+            }
+            return alternatives.size() == 1 ? alternatives.get(0) : new Sequence(alternatives, true);
+        }
+
+        private Node concatenation() {
+            List<Node> items = new ArrayList<>();
+            while (pos < pattern.length() && pattern.charAt(pos) != '|' && pattern.charAt(pos) != ')') {
+                items.add(repetition());
+            }
+            return items.size() == 1 ? items.get(0) : new Sequence(items, false);
+        }
+
+        private Node repetition() {
+            Node item = atom();
+            while (pos < pattern.length()) {
+                char c = pattern.charAt(pos);
+                if (c == '*') {
+                    item = new Repeat(item, 0, -1);
+                } else if (c == '+') {
+                    item = new Repeat(item, 1, -1);
+                } else if (c == '?') {
+                    item = new Repeat(item, 0, 1);
+                } else if (c == '{') {
+                    pos++;
+                    int min = number();
+                    int max = min;
+                    if (accept(',')) {
+                        max = pos < pattern.length() && pattern.charAt(pos) == '}' ? -1 : number();
+                    }
+                    if (pos >= pattern.length() || pattern.charAt(pos) != '}' || (max >= 0 && max < min)) {
+                        throw error("Bad repetition");
+                    }
+                    item = new Repeat(item, min, max);
+                } else {
+                    break;
+                }
+                pos++;
+            }
+            return item;
+        }
+
+        private Node atom() {
+            if (pos >= pattern.length()) {
+                throw error("Pattern ends early");
+            }
+            char c = pattern.charAt(pos++);
+            switch (c) {
+                case '(' -> {
+                    if (pattern.startsWith("?:", pos)) {
+                        pos += 2;
+                    }
+                    Node group = alternation();
+                    if (!accept(')')) {
+                        throw error("Missing ')'");
+                    }
+                    return group;
+                }
+                case '[' -> {
+                    return new Chars(charClass());
+                }
+                case '.' -> {
+                    return new Chars(NOT_LINE_FEED);
+                }
+                case '\\' -> {
+                    return new Chars(escape());
+                }
+                case '*', '+', '?', '{', ')', ']', '}' -> throw error("Unexpected '" + c + "'");
+                default -> {
+                    return new Chars(new int[] {c, c});
+                }
+            }
+        }
+
+        private int[] charClass() {
+            boolean negated = accept('^');
+            List<int[]> items = new ArrayList<>();
+            boolean first = true;
+            while (pos < pattern.length() && (first || pattern.charAt(pos) != ']')) {
+                first = false;
+                int[] item;
+                char c = pattern.charAt(pos++);
+                item = c == '\\' ? escape() : new int[] {c, c};
+                if (item.length == 2 && item[0] == item[1] && pos + 1 < pattern.length()
+                        && pattern.charAt(pos) == '-' && pattern.charAt(pos + 1) != ']') {
+                    pos++;
+                    char d = pattern.charAt(pos++);
+                    int[] end = d == '\\' ? escape() : new int[] {d, d};
+                    if (end.length != 2 || end[0] != end[1] || end[0] < item[0]) {
+                        throw error("Bad range");
+                    }
+                    item = new int[] {item[0], end[0]};
+                }
+                items.add(item);
+            }
+            if (!accept(']')) {
+                throw error("Missing ']'");
+            }
+            int[] union = union(items);
+            return negated ? complement(union) : union;
+        }
+
+        private int[] escape() {
+            if (pos >= pattern.length()) {
+                throw error("Pattern ends early");
+            }
+            char c = pattern.charAt(pos++);
+            return switch (c) {
+                case 'd' -> DIGITS;
+                case 'w' -> WORD;
+                case 's' -> SPACE;
+                case 'D' -> complement(DIGITS);
+                case 'W' -> complement(WORD);
+                case 'S' -> complement(SPACE);
+                case 'n' -> new int[] {'\n', '\n'};
+                case 'r' -> new int[] {'\r', '\r'};
+                case 't' -> new int[] {'\t', '\t'};
+                case 'f' -> new int[] {'\f', '\f'};
+                case 'x' -> single(hex(2));
+                case 'u' -> single(hex(4));
+                default -> {
+                    if (Character.isLetterOrDigit(c)) {
+                        throw error("Unknown escape \\" + c);
+                    }
+                    yield new int[] {c, c};
+                }
+            };
+        }
+
+        private int hex(int digits) {
+            if (pos + digits > pattern.length()) {
+                throw error("Bad hex escape");
+            }
+            try {
+                int value = Integer.parseInt(pattern.substring(pos, pos + digits), 16);
+                pos += digits;
+                return value;
+            } catch (NumberFormatException e) {
+                throw error("Bad hex escape");
+            }
+        }
+
+        private int number() {
+            int start = pos;
+            while (pos < pattern.length() && pattern.charAt(pos) >= '0' && pattern.charAt(pos) <= '9') {
+                pos++;
+            }
+            if (start == pos || pos - start > 4) {
+                throw error("Bad repetition");
+            }
+            return Integer.parseInt(pattern.substring(start, pos));
+        }
+
+        private boolean accept(char c) {
+            if (pos < pattern.length() && pattern.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Bad pattern for " + rule.name + " at index " + pos + ": "
+                + message + ": " + pattern);
+        }
+    }
+
+    private static int[] single(int c) {
+        return new int[] {c, c};
+    }
+
+    private static int[] union(List<int[]> sets) {
+        List<int[]> ranges = new ArrayList<>();
+        for (int[] set : sets) {
+            for (int i = 0; i < set.length; i += 2) {
+                ranges.add(new int[] {set[i], set[i + 1]});
+            }
+        }
+        ranges.sort((a, b) -> Integer.compare(a[0], b[0]));
+        int[] merged = new int[ranges.size() * 2];
+        int size = 0;
+        for (int[] range : ranges) {
+            if (size > 0 && range[0] <= merged[size - 1] + 1) {
+                merged[size - 1] = Math.max(merged[size - 1], range[1]);
+            } else {
+                merged[size++] = range[0];
+                merged[size++] = range[1];
+            }
+        }
+        return Arrays.copyOf(merged, size);
+    }
+
+    private static int[] complement(int[] set) {
+        int[] result = new int[set.length + 2];
+        int size = 0;
+        int next = 0;
+        for (int i = 0; i < set.length; i += 2) {
+            if (set[i] > next) {
+                result[size++] = next;
+                result[size++] = set[i] - 1;
+            }
+            next = set[i + 1] + 1;
+        }
+        if (next <= MAX_CHAR) {
+            result[size++] = next;
+            result[size++] = MAX_CHAR;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    // ---- NFA --------------------------------------------------------------
+
+    private int newState() {
+        edgeClasses.add(null);
+        edgeTargets.add(-1);
+        epsilons.add(new ArrayList<>());
+        acceptRules.add(-1);
+        return epsilons.size() - 1;
+    }
+
+    /** Builds the NFA fragment for {@code node} and returns its start and end states. */
+    private int[] build(Node node) {
+        int start = newState();
+        int end = newState();
+        if (node instanceof Chars chars) {
+            edgeClasses.set(start, classesOf(chars.ranges));
+            edgeTargets.set(start, end);
+        } else if (node instanceof Sequence sequence && sequence.alternatives) {
+            for (Node item : sequence.items) {
+                int[] fragment = build(item);
+                epsilons.get(start).add(fragment[0]);
+                epsilons.get(fragment[1]).add(end);
+            }
+        } else if (node instanceof Sequence sequence) {
+            int last = start;
+            for (Node item : sequence.items) {
+                int[] fragment = build(item);
+                epsilons.get(last).add(fragment[0]);
+                last = fragment[1];
+            }
+            epsilons.get(last).add(end);
+        } else {
+            Repeat repeat = (Repeat) node;
+            int last = start;
+            for (int i = 0; i < repeat.min; i++) {
+                int[] fragment = build(repeat.item);
+                epsilons.get(last).add(fragment[0]);
+                last = fragment[1];
+            }
+            if (repeat.max < 0) {
+                int[] fragment = build(repeat.item);
+                epsilons.get(last).add(fragment[0]);
+                epsilons.get(fragment[1]).add(fragment[0]);
+                epsilons.get(fragment[1]).add(end);
+            } else {
+                for (int i = repeat.min; i < repeat.max; i++) {
+                    int[] fragment = build(repeat.item);
+                    epsilons.get(last).add(end);
+                    epsilons.get(last).add(fragment[0]);
+                    last = fragment[1];
+                }
+            }
+            epsilons.get(last).add(end);
+        }
+        return new int[] {start, end};
+    }
+
+    /** The char classes covered by {@code ranges}, whose bounds are all class boundaries. */
+    private int[] classesOf(int[] ranges) {
+        List<Integer> classes = new ArrayList<>();
+        for (int i = 0; i < ranges.length; i += 2) {
+            int from = Arrays.binarySearch(boundaries, ranges[i]);
+            int to = Arrays.binarySearch(boundaries, ranges[i + 1] + 1);
+            for (int c = from; c < to; c++) {
+                classes.add(c);
+            }
+        }
+        return classes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // ---- DFA --------------------------------------------------------------
+
+    private BitSet closure(BitSet states) {
+        BitSet result = (BitSet) states.clone();
+        ArrayDeque<Integer> pending = new ArrayDeque<>();
+        states.stream().forEach(pending::push);
+        while (!pending.isEmpty()) {
+            for (int next : epsilons.get(pending.pop())) {
+                if (!result.get(next)) {
+                    result.set(next);
+                    pending.push(next);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Subset construction; returns transitions per state and class (-1 for none) and the kind each state accepts. */
+    private int[][] determinize(int start) {
+        int classCount = boundaries.length - 1;
+        List<TokenRules.Rule> list = rules.rules();
+        Map<BitSet, Integer> ids = new HashMap<>();
+        List<BitSet> states = new ArrayList<>();
+        BitSet initial = new BitSet();
+        initial.set(start);
+        initial = closure(initial);
+        ids.put(initial, 0);
+        states.add(initial);
+        List<int[]> rows = new ArrayList<>();
+        List<Integer> accepts = new ArrayList<>();
+        for (int s = 0; s < states.size(); s++) {
+            BitSet[] moves = new BitSet[classCount];
+            int best = -1;
+            for (int n = states.get(s).nextSetBit(0); n >= 0; n = states.get(s).nextSetBit(n + 1)) {
+                int rule = acceptRules.get(n);
+                if (rule >= 0 && (best < 0 || list.get(rule).priority > list.get(best).priority
+                        || (list.get(rule).priority == list.get(best).priority && rule < best))) {
+                    best = rule;
+                }
+                int[] classes = edgeClasses.get(n);
+                if (classes != null) {
+                    for (int c : classes) {
+                        if (moves[c] == null) {
+                            moves[c] = new BitSet();
+                        }
+                        moves[c].set(edgeTargets.get(n));
+                    }
+                }
+            }
+            if (s == 0 && best >= 0) {
+                throw new IllegalArgumentException("Rule matches the empty string: " + list.get(best).name);
+            }
+            int[] row = new int[classCount];
+            for (int c = 0; c < classCount; c++) {
+                if (moves[c] == null) {
+                    row[c] = -1;
+                    continue;
+                }
+                BitSet target = closure(moves[c]);
+                Integer id = ids.get(target);
+                if (id == null) {
+                    id = states.size();
+                    ids.put(target, id);
+                    states.add(target);
+                }
+                row[c] = id;
+            }
+            rows.add(row);
+            accepts.add(best < 0 ? RuleLexer.NO_MATCH : list.get(best).kind());
+        }
+        int[][] result = new int[rows.size() + 1][];
+        for (int s = 0; s < rows.size(); s++) {
+            result[s] = rows.get(s);
+        }
+        result[rows.size()] = accepts.stream().mapToInt(Integer::intValue).toArray();
+        return result;
+    }
+
+    /** Merges states that no input can tell apart, keeping the start state first. */
+    private RuleLexer minimize(int[][] dfa) {
+        int stateCount = dfa.length - 1;
+        int[] accepts = dfa[stateCount];
+        int classCount = boundaries.length - 1;
+        int[] block = new int[stateCount];
+        Map<Integer, Integer> initial = new HashMap<>();
+        for (int s = 0; s < stateCount; s++) {
+            block[s] = initial.computeIfAbsent(accepts[s], kind -> initial.size());
+        }
+        int blockCount = initial.size();
+        while (true) {
+            Map<List<Integer>, Integer> signatures = new HashMap<>();
+            int[] next = new int[stateCount];
+            for (int s = 0; s < stateCount; s++) {
+                List<Integer> signature = new ArrayList<>(classCount + 1);
+                signature.add(block[s]);
+                for (int c = 0; c < classCount; c++) {
+                    int target = dfa[s][c];
+                    signature.add(target < 0 ? -1 : block[target]);
+                }
+                next[s] = signatures.computeIfAbsent(signature, key -> signatures.size());
+            }
+            block = next;
+            if (signatures.size() == blockCount) {
+                break;
+            }
+            blockCount = signatures.size();
+        }
+
+        // Renumber blocks in order of first appearance so the start state stays 0.
+        int[] number = new int[blockCount];
+        Arrays.fill(number, -1);
+        int count = 0;
+        for (int s = 0; s < stateCount; s++) {
+            if (number[block[s]] < 0) {
+                number[block[s]] = count++;
+            }
+        }
+        int[] transitions = new int[count * classCount];
+        int[] kinds = new int[count];
+        for (int s = 0; s < stateCount; s++) {
+            int state = number[block[s]];
+            kinds[state] = accepts[s];
+            for (int c = 0; c < classCount; c++) {
+                int target = dfa[s][c];
+                transitions[state * classCount + c] = target < 0 ? -1 : number[block[target]];
+            }
+        }
+        return new RuleLexer(rules.fingerprint(), Arrays.copyOf(boundaries, classCount), transitions, kinds);
+    }
+}
@@ -0,0 +1,297 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Lexes with the minimized DFA compiled from {@link TokenRules}: from each
+ * position the automaton runs until it dies, and the last accepting state
+ * seen gives the token. Characters from which no rule matches are emitted as
+ * {@code INVALID} runs.
+ * <p>
+ * The tables can be written to disk and read back, so a process does not
+ * have to compile the rules again; see {@link #load(TokenRules, Path)}.
+ */
+public final class RuleLexer {
+    static final int NO_MATCH = -2;
+    static final int SKIP = -1;
+
+    private static final byte[] MAGIC = {'L', 'X', 'R', 'D'};
+    private static final int FORMAT_VERSION = 1;
+
+    private final long fingerprint;
+    private final int[] boundaries;
+    private final int classCount;
+    private final int[] transitions;
+    private final int[] accepts;
+    private final char[] classes;
+
+    /**
+     * @param boundaries first char of each char class, ascending from 0
+     * @param transitions next state per state and class, -1 if none
+     * @param accepts kind accepted in each state, {@link #SKIP} or {@link #NO_MATCH}
+     */
+    RuleLexer(long fingerprint, int[] boundaries, int[] transitions, int[] accepts) {
+        this.fingerprint = fingerprint;
+        this.boundaries = boundaries;
+        this.classCount = boundaries.length;
+        this.transitions = transitions;
+        this.accepts = accepts;
+        this.classes = new char[Character.MAX_VALUE + 1];
+        for (int c = 0; c < classCount; c++) {
+            int end = c + 1 < classCount ? boundaries[c + 1] : classes.length;
+            Arrays.fill(classes, boundaries[c], end, (char) c);
+        }
+    }
+
+    /**
+     * Reads the tables from {@code tables} if they were compiled from the same
+     * rules, and otherwise compiles {@code rules} and tries to store the
+     * tables there for the next run.
+     */
+    public static RuleLexer load(TokenRules rules, Path tables) {
+        try {
+            RuleLexer lexer = read(tables);
+            if (lexer.fingerprint == rules.fingerprint()) {
+                return lexer;
+            }
+        } catch (IOException e) {
+            // Missing, stale or damaged tables are compiled again.
+        }
+        RuleLexer lexer = rules.compile();
+        try {
+            lexer.write(tables);
+        } catch (IOException e) {
+            // A read-only location only means compiling on every run.
+        }
+        return lexer;
+    }
+
+    public static RuleLexer read(Path path) throws IOException {
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(file)) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC) || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Error: Not a rule table file: " + path);
+            }
+            long fingerprint = in.readLong();
+            int[] boundaries = readInts(in);
+            int[] transitions = readInts(in);
+            int[] accepts = readInts(in);
+            if (boundaries.length == 0 || boundaries[0] != 0 || transitions.length != accepts.length * boundaries.length) {
+                throw new IOException("Error: Damaged rule table file: " + path);
+            }
+            for (int target : transitions) {
+                if (target < -1 || target >= accepts.length) {
+                    throw new IOException("Error: Damaged rule table file: " + path);
+                }
+            }
+            for (int kind : accepts) {
+                if (kind < NO_MATCH || kind >= TokenType.values().length) {
+                    throw new IOException("Error: Damaged rule table file: " + path);
+                }
+            }
+            return new RuleLexer(fingerprint, boundaries, transitions, accepts);
+        } catch (NoSuchFileException e) {
+            throw new IOException("Error: Rule table file does not exist: " + path, e);
+        } catch (EOFException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Error: Damaged rule table file: " + path, e);
+        }
+    }
+
+    /** Writes the tables to {@code path} through a temporary file, replacing an existing file. */
+    public void write(Path path) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.write(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(fingerprint);
+            writeInts(out, boundaries);
+            writeInts(out, transitions);
+            writeInts(out, accepts);
+        }
+        Path directory = path.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, bytes.toByteArray());
+            try {
+                Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > 1 << 26) {
+            throw new IOException("Error: Damaged rule table");
+        }
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    /** The {@link TokenRules#fingerprint()} of the rules these tables were compiled from. */
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    public int stateCount() {
+        return accepts.length;
+    }
+
+    public int classCount() {
+        return classCount;
+    }
+
+    public void tokenize(CharSequence in, TokenSink sink) {
+        tokenize(in, sink, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #tokenize(CharSequence, TokenSink)}, but a token, skipped or
+     * not, that is longer than {@code maxTokenLength} throws
+     * {@link TokenLimitException}. The automaton runs at most
+     * {@code maxTokenLength + 1} chars from each position to find the token.
+     * If it is still alive there, it runs on only to see whether it accepts
+     * a longer token; see {@link #acceptsLater}. Lexing takes time linear in
+     * the input for a fixed limit.
+     */
+    public void tokenize(CharSequence in, TokenSink sink, int maxTokenLength) {
+        int n = in.length();
+        int pos = 0;
+        int invalidStart = -1;
+        DeadEnds noAccept = null;
+        while (pos < n) {
+            int state = 0;
+            int kind = NO_MATCH;
+            int end = -1;
+            int horizon = (int) Math.min(n, (long) pos + maxTokenLength + 1);
+            int i = pos;
+            for (; i < horizon; i++) {
+                state = transitions[state * classCount + classes[in.charAt(i)]];
+                if (state < 0) {
+                    break;
+                }
+                if (accepts[state] != NO_MATCH) {
+                    kind = accepts[state];
+                    end = i + 1;
+                }
+            }
+            if (end - pos > maxTokenLength) {
+                throw new TokenLimitException(pos, maxTokenLength);
+            }
+            if (i < n && i == horizon) {
+                if (noAccept == null) {
+                    noAccept = new DeadEnds(i, n);
+                }
+                if (acceptsLater(in, state, i, noAccept)) {
+                    throw new TokenLimitException(pos, maxTokenLength);
+                }
+            }
+            if (end < 0) {
+                if (invalidStart < 0) {
+                    invalidStart = pos;
+                } else if (pos - invalidStart >= maxTokenLength) {
+                    throw new TokenLimitException(invalidStart, maxTokenLength);
+                }
+                pos++;
+                continue;
+            }
+            if (invalidStart >= 0) {
+                sink.token(TokenType.INVALID, invalidStart, pos);
+                invalidStart = -1;
+            }
+            if (kind != SKIP) {
+                sink.token(TokenType.ofOrdinal(kind), pos, end);
+            }
+            pos = end;
+        }
+        if (invalidStart >= 0) {
+            sink.token(TokenType.INVALID, invalidStart, n);
+        }
+    }
+
+    /**
+     * Whether the automaton, in {@code state} before the char at {@code from},
+     * reaches an accepting state before it dies. Whether it does depends only
+     * on the state and position, not on where the token started, so each pair
+     * from which it does not is added to {@code noAccept} and never followed
+     * again. That bounds the scans past the limit, over the whole input, by
+     * the number of states times the input length.
+     */
+    private boolean acceptsLater(CharSequence in, int state, int from, DeadEnds noAccept) {
+        int n = in.length();
+        for (int i = from; i < n; i++) {
+            if (!noAccept.add(i, state)) {
+                return false;
+            }
+            state = transitions[state * classCount + classes[in.charAt(i)]];
+            if (state < 0) {
+                return false;
+            }
+            if (accepts[state] != NO_MATCH) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Pairs of position and state for {@link #acceptsLater}, from a first
+     * position on. Scans that meet mostly merge, so a position seldom has more
+     * than one state: the first is kept in an array and the rest in a set.
+     */
+    private static final class DeadEnds {
+        private final int from;
+        // State + 1 first added at each position, or 0.
+        private final int[] states;
+        private Set<Long> more;
+
+        DeadEnds(int from, int to) {
+            this.from = from;
+            this.states = new int[to - from];
+        }
+
+        /** Adds the pair, returning {@code false} if it was already there. */
+        boolean add(int position, int state) {
+            int seen = states[position - from];
+            if (seen == 0) {
+                states[position - from] = state + 1;
+                return true;
+            }
+            if (seen == state + 1) {
+                return false;
+            }
+            if (more == null) {
+                more = new HashSet<>();
+            }
+            return more.add((long) position << 32 | state);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Tokenizes a {@link Reader} through a fixed-size sliding window, so memory use
+ * does not depend on the size of the input.
+ * <p>
+ * The window only grows when a single token (for example a very long block
+ * comment) does not fit into it. Tokens that straddle a refill are rescanned
+ * from their first character once more input is available, which yields
+ * exactly the tokens {@link LexicalAnalyzer#analyzeFromString(String)} returns
+ * for the whole input.
+ */
+public class StreamingLexer implements Iterator<LexicalAnalyzer.Token>, Closeable {
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private final DfaLexer lexer;
+    private SymbolTable symbols;
+    private LexerStats stats;
+    private char[] buffer;
+    private CharBuffer window;
+    private int filled;
+    private int pos;
+    private long discarded;
+    private boolean eof;
+    private int maxTokenLength = Integer.MAX_VALUE;
+    private LexicalAnalyzer.Token next;
+
+    public StreamingLexer(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    public StreamingLexer(Reader reader, KeywordTable keywords) {
+        this(reader, DEFAULT_BUFFER_SIZE, keywords);
+    }
+
+    public StreamingLexer(Reader reader, int bufferSize) {
+        this(reader, bufferSize, KeywordTable.java());
+    }
+
+    public StreamingLexer(Reader reader, int bufferSize, KeywordTable keywords) {
+        if (bufferSize < 2) {
+            throw new IllegalArgumentException("Buffer size must be at least 2: " + bufferSize);
+        }
+        this.reader = reader;
+        this.lexer = new DfaLexer(keywords);
+        this.buffer = new char[bufferSize];
+        this.window = CharBuffer.wrap(buffer, 0, 0);
+    }
+
+    /**
+     * Interns identifier names into {@code symbols} as they are read, so
+     * identifier tokens carry a symbol id and share the table's String.
+     */
+    public void internIdentifiers(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    /** Scans with the vector fast paths; see {@link DfaLexer#setVectorized(boolean)}. */
+    void setVectorized(boolean vectorized) {
+        lexer.setVectorized(vectorized);
+    }
+
+    /**
+     * Makes tokens longer than {@code maxTokenLength} chars throw
+     * {@link TokenLimitException}. Tokens are checked once they are final, as a
+     * token cut off by the end of the window may still grow or shrink.
+     */
+    void setMaxTokenLength(int maxTokenLength) {
+        this.maxTokenLength = maxTokenLength;
+    }
+
+    /**
+     * Skips tokens whose kind bit is not set in {@code kindMask}; see
+     * {@link DfaLexer#setKindMask(int)}. Skipped tokens are scanned but
+     * neither copied out of the window nor written.
+     */
+    void setKindMask(int kindMask) {
+        lexer.setKindMask(kindMask);
+    }
+
+    /** Counts the tokens written by {@link #transferTo(TokenWriter)} into {@code stats}. */
+    void recordStats(LexerStats stats) {
+        this.stats = stats;
+    }
+
+    public static StreamingLexer fromChannel(ReadableByteChannel channel) {
+        return new StreamingLexer(Channels.newReader(channel, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public LexicalAnalyzer.Token next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        LexicalAnalyzer.Token token = next;
+        next = null;
+        return token;
+    }
+
+    /**
+     * Returns the remaining tokens as a sequential stream. Closing the stream
+     * closes the underlying reader.
+     */
+    public Stream<LexicalAnalyzer.Token> stream() {
+        Spliterator<LexicalAnalyzer.Token> spliterator =
+            Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Writes the remaining tokens to {@code writer} straight from the window,
+     * without creating a {@link LexicalAnalyzer.Token} per token. Returns the
+     * number of tokens written.
+     */
+    public long transferTo(TokenWriter writer) throws IOException {
+        long count = 0;
+        // A token buffered by hasNext() is still the lexer's current token.
+        boolean pending = next != null;
+        next = null;
+        while (pending || advanceToken()) {
+            pending = false;
+            TokenType type = TokenType.ofOrdinal(lexer.tokenKind());
+            writer.write(window, discarded, type, lexer.tokenStart(), lexer.tokenEnd());
+            if (stats != null) {
+                stats.recordToken(type, lexer.tokenEnd() - lexer.tokenStart());
+            }
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private LexicalAnalyzer.Token advance() throws IOException {
+        if (!advanceToken()) {
+            return null;
+        }
+        int start = lexer.tokenStart();
+        int end = lexer.tokenEnd();
+        if (symbols != null && lexer.tokenKind() == DfaLexer.IDENTIFIER) {
+            int symbol = symbols.intern(window, start, end);
+            return new LexicalAnalyzer.Token(symbols.name(symbol), TokenType.IDENTIFIER.name(), discarded + start, symbol);
+        }
+        return new LexicalAnalyzer.Token(
+            new String(buffer, start, end - start),
+            TokenType.ofOrdinal(lexer.tokenKind()).name(),
+            discarded + start);
+    }
+
+    /** Moves the lexer to the next selected token, reading more input as needed. */
+    private boolean advanceToken() throws IOException {
+        while (true) {
+            boolean found = lexer.next(window, pos);
+            if (eof || !lexer.hitEnd()) {
+                if (!found) {
+                    return false;
+                }
+                if (lexer.tokenEnd() - lexer.tokenStart() > maxTokenLength) {
+                    throw new TokenLimitException(discarded + lexer.tokenStart(), maxTokenLength);
+                }
+                pos = lexer.tokenEnd();
+                if (lexer.selects(lexer.tokenKind())) {
+                    return true;
+                }
+            } else {
+                fill(found ? lexer.tokenStart() : filled);
+            }
+        }
+    }
+
+    /**
+     * Resumes scanning at {@code keepFrom}, discards the input before it and
+     * reads more. One character before it is retained because word-boundary
+     * checks look at the character preceding a token. The window doubles
+     * whenever less than half of it is free, so every rescan is paid for by at
+     * least as many newly read characters.
+     */
+    private void fill(int keepFrom) throws IOException {
+        pos = keepFrom;
+        int discard = Math.max(0, keepFrom - 1);
+        if (discard > 0) {
+            System.arraycopy(buffer, discard, buffer, 0, filled - discard);
+            filled -= discard;
+            pos -= discard;
+            discarded += discard;
+        }
+        if (buffer.length - filled < buffer.length / 2) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = reader.read(buffer, filled, buffer.length - filled);
+        if (read < 0) {
+            eof = true;
+        } else {
+            filled += read;
+        }
+        window = CharBuffer.wrap(buffer, 0, filled);
+    }
+}
@@ -0,0 +1,145 @@
+package org.example;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Maps identifier names to dense int ids, 0 for the first name interned, 1 for
+ * the next and so on, so each distinct name is stored once however often it
+ * occurs.
+ * <p>
+ * Names are looked up in an open-addressing hash table directly from the
+ * source characters; a String is only created the first time a name is seen.
+ * The table is safe to share between threads, for example across the files of
+ * a batch run: lookups of known names take no lock, and only adding a name
+ * does.
+ */
+public final class SymbolTable {
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** Slots hold id + 1, or 0 when empty. A full table is replaced, never changed in place. */
+    private volatile int[] slots = new int[INITIAL_CAPACITY * 2];
+    private volatile Entries entries = new Entries(INITIAL_CAPACITY);
+    private volatile int size;
+
+    private static final class Entries {
+        final String[] names;
+        final int[] hashes;
+
+        Entries(int capacity) {
+            this.names = new String[capacity];
+            this.hashes = new int[capacity];
+        }
+
+        Entries(Entries previous, int capacity) {
+            this.names = Arrays.copyOf(previous.names, capacity);
+            this.hashes = Arrays.copyOf(previous.hashes, capacity);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Returns the id of {@code name}, adding it if it is not in the table yet. */
+    public int intern(CharSequence name) {
+        return intern(name, 0, name.length());
+    }
+
+    /**
+     * Returns the id of the characters {@code [start, end)} of {@code source},
+     * adding them if they are not in the table yet.
+     */
+    public int intern(CharSequence source, int start, int end) {
+        Objects.checkFromToIndex(start, end, source.length());
+        int hash = hash(source, start, end);
+        int id = find(slots, hash, source, start, end);
+        return id >= 0 ? id : add(hash, source, start, end);
+    }
+
+    /** Returns the id of {@code name}, or -1 if it has not been interned. */
+    public int id(CharSequence name) {
+        return find(slots, hash(name, 0, name.length()), name, 0, name.length());
+    }
+
+    /** Returns the name with the given id. */
+    public String name(int id) {
+        Objects.checkIndex(id, size);
+        return entries.names[id];
+    }
+
+    private int find(int[] table, int hash, CharSequence source, int start, int end) {
+        int mask = table.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int value = (int) SLOTS.getAcquire(table, slot);
+            if (value == 0) {
+                return -1;
+            }
+            int id = value - 1;
+            Entries current = entries;
+            if (current.hashes[id] == hash && contentEquals(current.names[id], source, start, end)) {
+                return id;
+            }
+        }
+    }
+
+    private synchronized int add(int hash, CharSequence source, int start, int end) {
+        int[] table = slots;
+        int id = find(table, hash, source, start, end);
+        if (id >= 0) {
+            return id;
+        }
+        id = size;
+        Entries current = entries;
+        if (id == current.names.length) {
+            current = new Entries(current, id * 2);
+            entries = current;
+        }
+        current.names[id] = source.subSequence(start, end).toString();
+        current.hashes[id] = hash;
+        if ((id + 1) * 2 > table.length) {
+            table = new int[table.length * 2];
+            for (int i = 0; i < id; i++) {
+                place(table, current.hashes[i], i);
+            }
+            place(table, hash, id);
+            slots = table;
+        } else {
+            place(table, hash, id);
+        }
+        size = id + 1;
+        return id;
+    }
+
+    private static void place(int[] table, int hash, int id) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        SLOTS.setRelease(table, slot, id + 1);
+    }
+
+    private static boolean contentEquals(String name, CharSequence source, int start, int end) {
+        if (name.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != source.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(CharSequence source, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = h * 31 + source.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,325 @@
+package org.example;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Columnar token storage: kind, start offset and length of every token live
+ * in parallel {@code int} arrays over the source text, so a buffer of millions
+ * of tokens is three arrays rather than millions of objects. Token text and
+ * {@link LexicalAnalyzer.Token} objects are only created on request.
+ */
+public final class TokenBuffer implements Iterable<LexicalAnalyzer.Token> {
+    private static final int MIN_CAPACITY = 16;
+
+    private CharSequence source;
+    private int[] kinds;
+    private int[] starts;
+    private int[] lengths;
+    private int size;
+    private LineIndex lines;
+    private SymbolTable symbols;
+    private int[] symbolIds;
+    private BracketIndex brackets;
+
+    public TokenBuffer(CharSequence source) {
+        this(source, Math.max(MIN_CAPACITY, source.length() / 8));
+    }
+
+    public TokenBuffer(CharSequence source, int initialCapacity) {
+        this.source = source;
+        int capacity = Math.max(MIN_CAPACITY, initialCapacity);
+        this.kinds = new int[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+    }
+
+    /**
+     * Empties the buffer for tokens of {@code source}, keeping its arrays,
+     * symbol table and bracket index, so a reused buffer allocates nothing
+     * until it needs to grow. Tokens and views taken from it before are no
+     * longer valid.
+     */
+    void reset(CharSequence source) {
+        this.source = source;
+        size = 0;
+        lines = null;
+        if (brackets != null) {
+            brackets.reset();
+        }
+    }
+
+    public void add(TokenType type, int start, int end) {
+        add(type.ordinal(), start, end);
+    }
+
+    void add(int kind, int start, int end) {
+        if (size == kinds.length) {
+            grow(size + 1);
+        }
+        kinds[size] = kind;
+        starts[size] = start;
+        lengths[size] = end - start;
+        if (symbols != null) {
+            symbolIds[size] = symbolOf(size);
+        }
+        size++;
+        if (brackets != null) {
+            brackets.add(size - 1, kind, start);
+        }
+    }
+
+    /** Adds a token whose symbol id is already known, -1 if it is not an identifier. */
+    void add(int kind, int start, int end, int symbol) {
+        if (size == kinds.length) {
+            grow(size + 1);
+        }
+        kinds[size] = kind;
+        starts[size] = start;
+        lengths[size] = end - start;
+        if (symbols != null) {
+            symbolIds[size] = symbol;
+        }
+        size++;
+        if (brackets != null) {
+            brackets.add(size - 1, kind, start);
+        }
+    }
+
+    /**
+     * Keeps the first {@code size} tokens, with their symbol ids and bracket
+     * pairs, as tokens of {@code source}, in which they must be unchanged. An
+     * edited document's buffer is brought up to date this way from the first
+     * token the edits changed.
+     */
+    void truncate(CharSequence source, int size) {
+        Objects.checkFromIndexSize(0, size, this.size);
+        this.source = source;
+        this.size = size;
+        lines = null;
+        if (brackets != null) {
+            brackets.truncate(size);
+        }
+    }
+
+    /** Appends tokens {@code from} (inclusive) to the end of {@code other}, which must share this buffer's source. */
+    void addAll(TokenBuffer other, int from) {
+        int count = other.size - from;
+        if (count <= 0) {
+            return;
+        }
+        if (size + count > kinds.length) {
+            grow(size + count);
+        }
+        System.arraycopy(other.kinds, from, kinds, size, count);
+        System.arraycopy(other.starts, from, starts, size, count);
+        System.arraycopy(other.lengths, from, lengths, size, count);
+        if (symbols != null) {
+            for (int i = size; i < size + count; i++) {
+                symbolIds[i] = symbolOf(i);
+            }
+        }
+        size += count;
+        if (brackets != null) {
+            indexBrackets(size - count);
+        }
+    }
+
+    /**
+     * Appends the tokens {@code from} (inclusive) to the end of {@code other}
+     * whose kind bit is set in {@code kindMask}, throwing
+     * {@link TokenLimitException} for any token, selected or not, longer than
+     * {@code maxTokenLength}.
+     */
+    void addAll(TokenBuffer other, int from, int kindMask, int maxTokenLength) {
+        if (kindMask == DfaLexer.ALL_KINDS && maxTokenLength == Integer.MAX_VALUE) {
+            addAll(other, from);
+            return;
+        }
+        for (int i = from; i < other.size; i++) {
+            if (other.lengths[i] > maxTokenLength) {
+                throw new TokenLimitException(other.starts[i], maxTokenLength);
+            }
+            if ((kindMask >>> other.kinds[i] & 1) != 0) {
+                add(other.kinds[i], other.starts[i], other.starts[i] + other.lengths[i]);
+            }
+        }
+    }
+
+    /**
+     * Interns the name of every identifier token, present and added later,
+     * into {@code symbols}, which may be shared with other buffers. The ids are
+     * available through {@link #symbol(int)}, and identifier tokens then
+     * share the String stored in the table instead of copying their text.
+     */
+    public void internIdentifiers(SymbolTable symbols) {
+        this.symbols = symbols;
+        this.symbolIds = new int[kinds.length];
+        for (int i = 0; i < size; i++) {
+            symbolIds[i] = symbolOf(i);
+        }
+    }
+
+    /** The table identifiers are interned into, or {@code null}. */
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
+    /**
+     * Symbol id of the token at {@code index}, or -1 if it is not an
+     * identifier or identifiers are not interned.
+     */
+    public int symbol(int index) {
+        Objects.checkIndex(index, size);
+        return symbols == null ? -1 : symbolIds[index];
+    }
+
+    /** Throws {@link TokenLimitException} for the first token longer than {@code maxTokenLength}. */
+    void checkTokenLengths(int maxTokenLength) {
+        for (int i = 0; i < size; i++) {
+            if (lengths[i] > maxTokenLength) {
+                throw new TokenLimitException(starts[i], maxTokenLength);
+            }
+        }
+    }
+
+    /**
+     * Pairs the bracket tokens, present and added later, in a
+     * {@link BracketIndex}. Called before lexing into an empty buffer, the
+     * index is built as the tokens arrive. Does nothing if already indexed.
+     */
+    public void indexBrackets() {
+        if (brackets == null) {
+            brackets = new BracketIndex(this, kinds.length);
+            indexBrackets(0);
+        }
+    }
+
+    private void indexBrackets(int from) {
+        for (int i = from; i < size; i++) {
+            brackets.add(i, kinds[i], starts[i]);
+        }
+    }
+
+    /** The bracket pairs of this buffer, or {@code null} if they are not indexed. */
+    public BracketIndex brackets() {
+        return brackets;
+    }
+
+    private int symbolOf(int index) {
+        if (kinds[index] != DfaLexer.IDENTIFIER) {
+            return -1;
+        }
+        return symbols.intern(source, starts[index], starts[index] + lengths[index]);
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, kinds.length + (kinds.length >> 1));
+        kinds = Arrays.copyOf(kinds, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        if (symbolIds != null) {
+            symbolIds = Arrays.copyOf(symbolIds, capacity);
+        }
+    }
+
+    public CharSequence source() {
+        return source;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TokenType type(int index) {
+        return TokenType.ofOrdinal(kinds[Objects.checkIndex(index, size)]);
+    }
+
+    public int start(int index) {
+        return starts[Objects.checkIndex(index, size)];
+    }
+
+    public int length(int index) {
+        return lengths[Objects.checkIndex(index, size)];
+    }
+
+    public int end(int index) {
+        return start(index) + lengths[index];
+    }
+
+    /** Copies the text of the token at {@code index} out of the source. */
+    public String text(int index) {
+        int start = start(index);
+        return source.subSequence(start, start + lengths[index]).toString();
+    }
+
+    /**
+     * Returns the token at {@code index}. Its text is not copied until
+     * {@link LexicalAnalyzer.Token#value()} is called, except for interned
+     * identifiers, which share the name held by the symbol table.
+     */
+    public LexicalAnalyzer.Token token(int index) {
+        int symbol = symbol(index);
+        int start = starts[index];
+        if (symbol >= 0) {
+            return new LexicalAnalyzer.Token(symbols.name(symbol), type(index).name(), start, symbol);
+        }
+        return new LexicalAnalyzer.Token(source, start, start + lengths[index], type(index).name(), start, -1);
+    }
+
+    /**
+     * Line index of the source, built by one scan on first use. The source
+     * must not change afterwards.
+     */
+    public LineIndex lines() {
+        LineIndex index = lines;
+        if (index == null) {
+            index = new LineIndex(source);
+            lines = index;
+        }
+        return index;
+    }
+
+    /** Line (1-based) on which the token at {@code index} starts. */
+    public int line(int index) {
+        return lines().line(start(index));
+    }
+
+    /** Column (1-based) at which the token at {@code index} starts. */
+    public int column(int index) {
+        return lines().column(start(index));
+    }
+
+    /** Line (1-based) on which the token at {@code index} ends, for tokens spanning lines. */
+    public int endLine(int index) {
+        return lines().line(end(index) - 1);
+    }
+
+    /**
+     * Returns a read-only list view whose elements are created on access.
+     */
+    public List<LexicalAnalyzer.Token> asList() {
+        return new TokenList();
+    }
+
+    @Override
+    public Iterator<LexicalAnalyzer.Token> iterator() {
+        return asList().iterator();
+    }
+
+    private final class TokenList extends AbstractList<LexicalAnalyzer.Token> implements RandomAccess {
+        @Override
+        public LexicalAnalyzer.Token get(int index) {
+            return token(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package org.example;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the tokens of files in a directory on local disk, keyed by a hash of
+ * the file bytes, so files that have not changed since an earlier run are not
+ * lexed again.
+ * <p>
+ * Keys also cover {@link #LEXER_VERSION}, the keyword table, any
+ * {@link TokenRules} in use and the token filter, so entries written under
+ * other rules are never returned. Each hit refreshes the entry's modification time, and once the
+ * entries exceed the size cap the least recently used ones are deleted. Entries are written to a temporary file and
+ * moved into place, so several processes may share the directory.
+ */
+public final class TokenCache {
+    /** Bump whenever a change to the lexer can change the tokens of any input. */
+    public static final int LEXER_VERSION = 1;
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final byte[] MAGIC = {'L', 'X', 'C', 1};
+    private static final String SUFFIX = ".tokens";
+
+    private final Path directory;
+    private final long maxBytes;
+    private long size;
+    private long hits;
+    private long misses;
+
+    public TokenCache(Path directory) throws IOException {
+        this(directory, DEFAULT_MAX_BYTES);
+    }
+
+    public TokenCache(Path directory, long maxBytes) throws IOException {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxBytes);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+        for (Entry entry : entries()) {
+            size += entry.size;
+        }
+    }
+
+    /** The tokens of a file, with the bytes read from it and the time taken to read them. */
+    public static final class Result {
+        public final TokenBuffer tokens;
+        public final long bytes;
+        public final long readNanos;
+
+        Result(TokenBuffer tokens, long bytes, long readNanos) {
+            this.tokens = tokens;
+            this.bytes = bytes;
+            this.readNanos = readNanos;
+        }
+    }
+
+    /**
+     * Returns the tokens of {@code file} as {@code lexer} would lex them,
+     * from the cache if an entry for the same bytes and rules exists, and
+     * otherwise lexing the file and storing the result.
+     */
+    public TokenBuffer analyze(Path file, LexicalAnalyzer lexer) throws IOException {
+        return lookup(file, lexer).tokens;
+    }
+
+    /**
+     * Like {@link #analyze(Path, LexicalAnalyzer)}, also returning the size
+     * of the file as read, so callers need not look it up again.
+     */
+    public Result lookup(Path file, LexicalAnalyzer lexer) throws IOException {
+        long started = System.nanoTime();
+        byte[] bytes = Files.readAllBytes(file);
+        long readNanos = System.nanoTime() - started;
+        String content = StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(bytes)).toString();
+        Path entry = directory.resolve(String.format("%016x-%016x%s", hash(bytes), rulesHash(lexer), SUFFIX));
+        TokenBuffer tokens = load(entry, content);
+        if (tokens != null) {
+            synchronized (this) {
+                hits++;
+            }
+            if (lexer.symbols() != null) {
+                tokens.internIdentifiers(lexer.symbols());
+            }
+            if (lexer.isBracketMatching()) {
+                tokens.indexBrackets();
+            }
+            return new Result(lexer.limited(tokens), bytes.length, readNanos);
+        }
+        synchronized (this) {
+            misses++;
+        }
+        tokens = lexer.analyzeToBuffer(content);
+        store(entry, tokens);
+        return new Result(tokens, bytes.length, readNanos);
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * An estimate of the bytes taken by the entries. It starts from the entries
+     * found when the cache is opened and adds those this cache writes, even
+     * over an entry another process wrote with the same key; entries others
+     * write or delete are only counted when the directory is listed again to
+     * evict.
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    private TokenBuffer load(Path entry, CharSequence content) throws IOException {
+        byte[] data;
+        try {
+            data = Files.readAllBytes(entry);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        TokenBuffer tokens = decode(data, content);
+        if (tokens == null) {
+            Files.deleteIfExists(entry);
+        }
+        return tokens;
+    }
+
+    /** Reads an entry, or returns {@code null} if it is damaged or does not fit {@code content}. */
+    private static TokenBuffer decode(byte[] data, CharSequence content) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        try {
+            for (byte b : MAGIC) {
+                if (in.get() != b) {
+                    return null;
+                }
+            }
+            if (in.getInt() != content.length()) {
+                return null;
+            }
+            int count = in.getInt();
+            TokenBuffer tokens = new TokenBuffer(content, count);
+            TokenRecord record = new TokenRecord();
+            for (int i = 0; i < count; i++) {
+                record.read(in);
+                if (record.kind < 0 || record.kind >= TokenType.values().length || record.start < 0
+                        || record.end < record.start || record.end > content.length()) {
+                    return null;
+                }
+                tokens.add(record.kind, (int) record.start, (int) record.end);
+            }
+            return in.hasRemaining() ? null : tokens;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private void store(Path entry, TokenBuffer tokens) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(16 + tokens.size() * 3 + TokenRecord.MAX_BYTES);
+        out.put(MAGIC).putInt(tokens.source().length()).putInt(tokens.size());
+        TokenRecord record = new TokenRecord();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (out.remaining() < TokenRecord.MAX_BYTES) {
+                out = ByteBuffer.allocate(out.capacity() * 2).put(out.flip());
+            }
+            record.write(out, tokens.type(i).ordinal(), tokens.start(i), tokens.end(i));
+        }
+        Path temporary = Files.createTempFile(directory, "entry", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                out.flip();
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+            }
+            try {
+                Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        synchronized (this) {
+            size += out.limit();
+            if (size > maxBytes) {
+                evict();
+            }
+        }
+    }
+
+    /**
+     * Recounts the entries and deletes the least recently used ones until they
+     * take at most nine tenths of the size cap. Evicting below
+     * the cap leaves room for many more entries, so the directory is listed
+     * and sorted once per that much new data rather than on every store.
+     */
+    private void evict() throws IOException {
+        TreeSet<Entry> entries = new TreeSet<>(Comparator.comparing((Entry entry) -> entry.used)
+            .thenComparing(entry -> entry.path));
+        entries.addAll(entries());
+        size = 0;
+        for (Entry entry : entries) {
+            size += entry.size;
+        }
+        long target = maxBytes - maxBytes / 10;
+        while (size > target && !entries.isEmpty()) {
+            Entry oldest = entries.pollFirst();
+            Files.deleteIfExists(oldest.path);
+            size -= oldest.size;
+        }
+    }
+
+    private List<Entry> entries() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                if (path.getFileName().toString().endsWith(SUFFIX)) {
+                    try {
+                        entries.add(new Entry(path, Files.size(path), Files.getLastModifiedTime(path)));
+                    } catch (NoSuchFileException e) {
+                        // Evicted by another process in the meantime.
+                    }
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static class Entry {
+        final Path path;
+        final long size;
+        final FileTime used;
+
+        Entry(Path path, long size, FileTime used) {
+            this.path = path;
+            this.size = size;
+            this.used = used;
+        }
+    }
+
+    private static long rulesHash(LexicalAnalyzer lexer) {
+        StringBuilder rules = new StringBuilder().append(LEXER_VERSION);
+        if (lexer.rules() != null) {
+            // The rules define the keywords; the keyword table is not used.
+            rules.append(" rules ").append(lexer.rules().fingerprint());
+        } else {
+            for (String keyword : new TreeSet<>(lexer.keywords().keywords())) {
+                rules.append(' ').append(keyword);
+            }
+        }
+        if (lexer.kindMask() != DfaLexer.ALL_KINDS) {
+            // Filtered results are stored apart from the full ones.
+            rules.append(" kinds ").append(lexer.tokenFilter());
+        }
+        return hash(rules.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** A 64-bit hash of {@code bytes} that reads eight bytes at a time. */
+    static long hash(byte[] bytes) {
+        long h = bytes.length * 0x9E3779B97F4A7C15L;
+        int i = 0;
+        for (; i + 8 <= bytes.length; i += 8) {
+            h = Long.rotateLeft(h ^ mix((long) LONGS.get(bytes, i)), 27) * 5 + 0x52DCE729;
+        }
+        long tail = 0;
+        for (int shift = 0; i < bytes.length; i++, shift += 8) {
+            tail |= (bytes[i] & 0xFFL) << shift;
+        }
+        return mix(h ^ mix(tail));
+    }
+
+    private static long mix(long k) {
+        k = (k ^ (k >>> 33)) * 0xFF51AFD7ED558CCDL;
+        k = (k ^ (k >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return k ^ (k >>> 33);
+    }
+}
@@ -0,0 +1,157 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Reads a file written by {@link TokenFileWriter} through a memory mapping.
+ * <p>
+ * Nothing is decoded up front: a token is found by jumping to its block
+ * through the footer and decoding at most {@link TokenFileWriter#BLOCK_SIZE}
+ * records, and reading tokens in order continues from the previous one.
+ * Readers are not safe for use by several threads. Files must be smaller than
+ * 2 GB.
+ */
+public final class TokenFileReader implements Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer map;
+    private final long size;
+    private final int blocks;
+    private final boolean values;
+    private final int stringOffsets;
+    private final int stringBytes;
+    private int cursorIndex = -1;
+    private final TokenRecord cursor = new TokenRecord();
+    private int cursorString;
+
+    private TokenFileReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        long length = channel.size();
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Error: Token file is too large to map: " + length + " bytes");
+        }
+        this.map = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        if (length < TokenFileWriter.HEADER_SIZE + TokenFileWriter.TRAILER_SIZE
+                || !hasMagic(0) || !hasMagic((int) length - TokenFileWriter.MAGIC.length)) {
+            throw new IOException("Error: Not a token file");
+        }
+        int version = map.get(TokenFileWriter.MAGIC.length);
+        if (version != TokenFileWriter.VERSION) {
+            throw new IOException("Error: Unsupported token file version: " + version);
+        }
+        this.values = (map.get(TokenFileWriter.MAGIC.length + 1) & TokenFileWriter.FLAG_VALUES) != 0;
+        int footer = (int) map.getLong((int) length - TokenFileWriter.TRAILER_SIZE);
+        this.size = map.getLong(footer);
+        this.blocks = footer + Long.BYTES + Integer.BYTES;
+        int blockCount = map.getInt(footer + Long.BYTES);
+        this.stringOffsets = blocks + 2 * Long.BYTES * blockCount + Integer.BYTES;
+        this.stringBytes = values ? stringOffsets + Integer.BYTES * (map.getInt(stringOffsets - Integer.BYTES) + 1) : 0;
+    }
+
+    public static TokenFileReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new TokenFileReader(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private boolean hasMagic(int at) {
+        for (int i = 0; i < TokenFileWriter.MAGIC.length; i++) {
+            if (map.get(at + i) != TokenFileWriter.MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return Math.toIntExact(size);
+    }
+
+    /** Whether token values are stored, so that {@link #text(int)} can be called. */
+    public boolean hasValues() {
+        return values;
+    }
+
+    public TokenType type(int index) {
+        seek(index);
+        return TokenType.ofOrdinal(cursor.kind);
+    }
+
+    public long start(int index) {
+        seek(index);
+        return cursor.start;
+    }
+
+    public long end(int index) {
+        seek(index);
+        return cursor.end;
+    }
+
+    public int length(int index) {
+        seek(index);
+        return (int) (cursor.end - cursor.start);
+    }
+
+    /** Text of the token at {@code index}, decoded from the string table. */
+    public String text(int index) {
+        if (!values) {
+            throw new IllegalStateException("Token file has no values");
+        }
+        seek(index);
+        int from = map.getInt(stringOffsets + Integer.BYTES * cursorString);
+        int to = map.getInt(stringOffsets + Integer.BYTES * (cursorString + 1));
+        byte[] bytes = new byte[to - from];
+        map.get(stringBytes + from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public LexicalAnalyzer.Token token(int index) {
+        String text = text(index);
+        return new LexicalAnalyzer.Token(text, type(index).name(), start(index));
+    }
+
+    /** Pushes every token to {@code sink} in order; offsets must fit in an int. */
+    public void forEach(TokenSink sink) {
+        for (int i = 0; i < size; i++) {
+            seek(i);
+            sink.token(TokenType.ofOrdinal(cursor.kind), Math.toIntExact(cursor.start), Math.toIntExact(cursor.end));
+        }
+    }
+
+    /** Moves the cursor to {@code index}, decoding forward from its block or from the cursor. */
+    private void seek(int index) {
+        Objects.checkIndex(index, size);
+        if (index == cursorIndex) {
+            return;
+        }
+        if (index < cursorIndex || cursorIndex < 0
+                || index / TokenFileWriter.BLOCK_SIZE != cursorIndex / TokenFileWriter.BLOCK_SIZE) {
+            int block = index / TokenFileWriter.BLOCK_SIZE;
+            cursorIndex = block * TokenFileWriter.BLOCK_SIZE - 1;
+            map.position((int) map.getLong(blocks + 2 * Long.BYTES * block));
+            cursor.reset(map.getLong(blocks + 2 * Long.BYTES * block + Long.BYTES));
+        }
+        while (cursorIndex < index) {
+            cursor.read(map);
+            if (values) {
+                cursorString = (int) TokenRecord.getVarint(map);
+            }
+            cursorIndex++;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
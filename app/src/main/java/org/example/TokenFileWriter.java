@@ -0,0 +1,150 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Streams tokens into a token file, a compact binary form read back with
+ * random access by {@link TokenFileReader}.
+ * <p>
+ * The file is laid out as:
+ * <ul>
+ * <li>a header: the bytes {@code LXTF}, the format {@link #VERSION} and a
+ * flags byte, bit 0 set when token values are stored;</li>
+ * <li>one record per token: the kind byte (the {@link TokenType} ordinal), the
+ * gap since the end of the previous token and the length as unsigned LEB128
+ * varints and, with values, the varint id of the token text in the string
+ * table;</li>
+ * <li>a footer: the token count as a long, the number of blocks as an int,
+ * then for each block of {@link #BLOCK_SIZE} tokens the file position of its
+ * first record and the end offset of the token before it as longs; with
+ * values, the string count as an int, the {@code count + 1} int offsets of
+ * the strings within the string bytes, and the UTF-8 string bytes;</li>
+ * <li>a trailer: the file position of the footer as a long and {@code LXTF}.</li>
+ * </ul>
+ * Numbers that are not varints are big-endian. Identical token values share
+ * one string table entry.
+ */
+public final class TokenFileWriter implements TokenOutput {
+    public static final int VERSION = 1;
+    public static final int BLOCK_SIZE = 64;
+    static final byte[] MAGIC = {'L', 'X', 'T', 'F'};
+    static final int FLAG_VALUES = 1;
+    static final int HEADER_SIZE = MAGIC.length + 2;
+    static final int TRAILER_SIZE = Long.BYTES + MAGIC.length;
+
+    private final WritableByteChannel channel;
+    private final SymbolTable strings;
+    private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    private long position;
+    private long[] blocks = new long[32];
+    private long count;
+    private final TokenRecord record = new TokenRecord();
+
+    /** Writes to {@code channel}, storing token values in a string table if {@code values} is set. */
+    public TokenFileWriter(WritableByteChannel channel, boolean values) {
+        this.channel = channel;
+        this.strings = values ? new SymbolTable() : null;
+        buffer.put(MAGIC).put((byte) VERSION).put((byte) (values ? FLAG_VALUES : 0));
+    }
+
+    /** Writes to {@code path}, replacing an existing file. */
+    public static TokenFileWriter open(Path path, boolean values) throws IOException {
+        return new TokenFileWriter(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING), values);
+    }
+
+    /** Appends the token {@code [start, end)} of {@code source}, which follows the previous token. */
+    @Override
+    public void write(CharSequence source, TokenType type, int start, int end) throws IOException {
+        if (start < record.end || end < start) {
+            throw new IllegalArgumentException("Token [" + start + ", " + end + ") does not follow offset " + record.end);
+        }
+        if (count % BLOCK_SIZE == 0) {
+            int block = (int) (count / BLOCK_SIZE);
+            if (2 * block + 2 > blocks.length) {
+                blocks = Arrays.copyOf(blocks, blocks.length * 2);
+            }
+            blocks[2 * block] = position + buffer.position();
+            blocks[2 * block + 1] = record.end;
+        }
+        ensure(TokenRecord.MAX_BYTES + 10);
+        record.write(buffer, type.ordinal(), start, end);
+        if (strings != null) {
+            TokenRecord.putVarint(buffer, strings.intern(source, start, end));
+        }
+        count++;
+    }
+
+    /** Number of tokens written so far. */
+    public long tokens() {
+        return count;
+    }
+
+    /** Writes the footer and trailer and closes the channel. */
+    @Override
+    public void close() throws IOException {
+        try {
+            long footer = position + buffer.position();
+            int blockCount = (int) ((count + BLOCK_SIZE - 1) / BLOCK_SIZE);
+            ensure(Long.BYTES + Integer.BYTES);
+            buffer.putLong(count).putInt(blockCount);
+            for (int i = 0; i < 2 * blockCount; i++) {
+                ensure(Long.BYTES);
+                buffer.putLong(blocks[i]);
+            }
+            if (strings != null) {
+                writeStrings();
+            }
+            ensure(TRAILER_SIZE);
+            buffer.putLong(footer).put(MAGIC);
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeStrings() throws IOException {
+        int size = strings.size();
+        byte[][] encoded = new byte[size][];
+        ensure(Integer.BYTES);
+        buffer.putInt(size);
+        int offset = 0;
+        for (int id = 0; id < size; id++) {
+            encoded[id] = strings.name(id).getBytes(StandardCharsets.UTF_8);
+            ensure(Integer.BYTES);
+            buffer.putInt(offset);
+            offset += encoded[id].length;
+        }
+        ensure(Integer.BYTES);
+        buffer.putInt(offset);
+        for (byte[] string : encoded) {
+            for (int i = 0; i < string.length; ) {
+                ensure(1);
+                int chunk = Math.min(buffer.remaining(), string.length - i);
+                buffer.put(string, i, chunk);
+                i += chunk;
+            }
+        }
+    }
+
+    private void ensure(int room) throws IOException {
+        if (buffer.remaining() < room) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,27 @@
+package org.example;
+
+/**
+ * Thrown when a token is longer than the limit set with
+ * {@link LexicalAnalyzer#setMaxTokenLength(int)}.
+ */
+public final class TokenLimitException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final long offset;
+    private final int limit;
+
+    public TokenLimitException(long offset, int limit) {
+        super("Error: Token at offset " + offset + " is longer than the limit of " + limit + " characters");
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    /** Offset of the token's first character in the input. */
+    public long offset() {
+        return offset;
+    }
+
+    public int limit() {
+        return limit;
+    }
+}
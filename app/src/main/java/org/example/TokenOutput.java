@@ -0,0 +1,38 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes tokens of a source, in source order, to some output. Writers only
+ * implement {@link #write(CharSequence, TokenType, int, int)}; whole buffers
+ * and sinks go through it.
+ */
+public interface TokenOutput extends Closeable {
+    /** Appends the token {@code [start, end)} of {@code source}. */
+    void write(CharSequence source, TokenType type, int start, int end) throws IOException;
+
+    /** Appends every token of {@code tokens}. */
+    default void write(TokenBuffer tokens) throws IOException {
+        CharSequence source = tokens.source();
+        for (int i = 0; i < tokens.size(); i++) {
+            write(source, tokens.type(i), tokens.start(i), tokens.end(i));
+        }
+    }
+
+    /**
+     * A sink writing the tokens of {@code source}, for example for
+     * {@link LexicalAnalyzer#analyze(CharSequence, TokenSink)}. I/O errors are
+     * rethrown as {@link UncheckedIOException}.
+     */
+    default TokenSink sinkFor(CharSequence source) {
+        return (type, start, end) -> {
+            try {
+                write(source, type, start, end);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+}
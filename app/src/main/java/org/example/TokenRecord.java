@@ -0,0 +1,63 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The token record shared by token files, {@link TokenCache} entries and the
+ * BINARY {@link TokenWriter.Format}: the kind byte (the {@link TokenType}
+ * ordinal), then the gap since the end of the previous token and the token
+ * length as unsigned LEB128 varints.
+ * <p>
+ * An instance holds the last token written or read, so the next record is
+ * encoded or decoded relative to it.
+ */
+final class TokenRecord {
+    /** Most bytes one record takes. */
+    static final int MAX_BYTES = 1 + 2 * 10;
+
+    int kind;
+    long start;
+    long end;
+
+    /** Makes the next record follow a token ending at {@code end}. */
+    void reset(long end) {
+        this.end = end;
+    }
+
+    /** Writes the token {@code [start, end)}, which must follow the previous one. */
+    void write(ByteBuffer out, int kind, long start, long end) {
+        out.put((byte) kind);
+        putVarint(out, start - this.end);
+        putVarint(out, end - start);
+        this.kind = kind;
+        this.start = start;
+        this.end = end;
+    }
+
+    /** Reads the next record into {@link #kind}, {@link #start} and {@link #end}. */
+    void read(ByteBuffer in) {
+        kind = in.get();
+        start = end + getVarint(in);
+        end = start + getVarint(in);
+    }
+
+    static void putVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static long getVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+}
@@ -0,0 +1,129 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Token rules for a dialect, compiled by {@link #compile()} into one
+ * minimized DFA that a {@link RuleLexer} runs with longest-match semantics.
+ * <p>
+ * Each rule has a name, a regex-like pattern, a priority and a skip flag. At
+ * each position the longest match of any rule wins; among rules matching the
+ * same length the higher priority wins, then the earlier rule. Rules that are
+ * not skipped must be named after a {@link TokenType}, which is the kind they
+ * emit; several rules may emit the same kind. Characters no rule matches are
+ * emitted as {@code INVALID} runs.
+ * <p>
+ * Patterns support literals, {@code .} (any char but line feed), classes such
+ * as {@code [a-z_]} and {@code [^"\n]}, the escapes {@code \d \w \s \D \W \S
+ * \n \r \t \f \xHH \}{@code uXXXX}, groups {@code ( )} and {@code (?: )},
+ * alternation {@code |} and the quantifiers {@code * + ? {m} {m,} {m,n}}.
+ * There are no anchors, look-around or lazy quantifiers.
+ */
+public final class TokenRules {
+    private final List<Rule> rules;
+
+    public static final class Rule {
+        public final String name;
+        public final String pattern;
+        public final int priority;
+        public final boolean skip;
+
+        public Rule(String name, String pattern, int priority, boolean skip) {
+            this.name = name;
+            this.pattern = pattern;
+            this.priority = priority;
+            this.skip = skip;
+        }
+
+        /** Kind emitted for this rule, or -1 if it is skipped. */
+        int kind() {
+            return skip ? -1 : TokenType.valueOf(name).ordinal();
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + priority + " " + (skip ? "skip" : "emit") + " " + pattern;
+        }
+    }
+
+    public TokenRules(List<Rule> rules) {
+        if (rules.isEmpty()) {
+            throw new IllegalArgumentException("At least one rule is required");
+        }
+        for (Rule rule : rules) {
+            if (!rule.skip && !isTokenType(rule.name)) {
+                throw new IllegalArgumentException("Rule name is not a token type: " + rule.name);
+            }
+        }
+        this.rules = List.copyOf(rules);
+    }
+
+    /**
+     * Reads one rule per line as {@code NAME PRIORITY emit|skip PATTERN}; the
+     * pattern is the rest of the line without surrounding whitespace. Blank
+     * lines and lines starting with {@code #} are ignored.
+     */
+    public static TokenRules read(Path path) throws IOException {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(path);
+        } catch (NoSuchFileException e) {
+            throw new IOException("Error: Rule file does not exist: " + path, e);
+        }
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+", 4);
+            if (fields.length < 4 || !(fields[2].equals("emit") || fields[2].equals("skip"))) {
+                throw new IllegalArgumentException("Error: " + path + ":" + (i + 1)
+                    + ": Expected NAME PRIORITY emit|skip PATTERN: " + line);
+            }
+            try {
+                rules.add(new Rule(fields[0], fields[3], Integer.parseInt(fields[1]), fields[2].equals("skip")));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Error: " + path + ":" + (i + 1) + ": Bad priority: " + fields[1], e);
+            }
+        }
+        try {
+            return new TokenRules(rules);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Error: " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    public List<Rule> rules() {
+        return rules;
+    }
+
+    /** Builds the minimized DFA; see {@link RuleLexer#load(TokenRules, Path)} to reuse it across runs. */
+    public RuleLexer compile() {
+        return new RuleCompiler(this).compile();
+    }
+
+    /** A hash of the rules, stored with compiled tables to tell whether they are still current. */
+    public long fingerprint() {
+        StringBuilder spec = new StringBuilder();
+        for (Rule rule : rules) {
+            spec.append(rule).append('\n');
+        }
+        return TokenCache.hash(spec.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean isTokenType(String name) {
+        for (TokenType type : TokenType.values()) {
+            if (type.name().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
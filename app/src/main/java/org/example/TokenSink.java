@@ -0,0 +1,11 @@
+package org.example;
+
+/**
+ * Receives tokens as a lexer finds them, in source order. A token is the
+ * range {@code [start, end)} of the lexed source, so a sink decides itself
+ * whether it needs the text.
+ */
+@FunctionalInterface
+public interface TokenSink {
+    void token(TokenType type, int start, int end);
+}
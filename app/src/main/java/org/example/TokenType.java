@@ -0,0 +1,26 @@
+package org.example;
+
+/**
+ * Token kinds, in the priority order of the lexer rules. The constant names
+ * are the strings used in {@link LexicalAnalyzer.Token#type}.
+ */
+public enum TokenType {
+    HEX_NUMBER,
+    OCTAL_NUMBER,
+    FLOAT_NUMBER,
+    NUMBER,
+    STRING,
+    CHAR,
+    COMMENT,
+    RESERVED_KEYWORD,
+    OPERATOR,
+    DELIMITER,
+    IDENTIFIER,
+    INVALID;
+
+    private static final TokenType[] VALUES = values();
+
+    static TokenType ofOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
@@ -0,0 +1,389 @@
+package org.example;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes tokens to a channel in one of several {@link Format formats}.
+ * <p>
+ * Token text is encoded as UTF-8 straight from the source characters into a
+ * reusable buffer, which is handed to the channel only when it is full, so
+ * writing a token builds no String and takes no lock.
+ */
+public final class TokenWriter implements TokenOutput, Flushable {
+    public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+    private static final int MIN_BUFFER_SIZE = 64;
+    private static final byte[] BINARY_MAGIC = {'L', 'X', 'T', 1};
+    private static final int BINARY_FILE_RECORD = 0xFF;
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * <ul>
+     * <li>{@code TEXT}: {@code <value, TYPE>} per line, as printed by
+     * {@link LexicalAnalyzer.Token#toString()}; the text is not escaped.</li>
+     * <li>{@code TSV}: {@code TYPE, start, end, text} separated by tabs. In the
+     * text, backslash, tab, CR and LF are written as {@code \\ \t \r \n} and
+     * other control characters as {@code \}{@code uXXXX}.</li>
+     * <li>{@code JSONL}: one {@code {"type":..,"start":..,"end":..,"text":..}}
+     * object per line, escaped as JSON. U+2028, U+2029 and unpaired surrogates
+     * are escaped as well.</li>
+     * <li>{@code BINARY}: the bytes {@code LXT\1}, then per token the record
+     * of {@link TokenFileWriter token files}: one kind byte (the
+     * {@link TokenType} ordinal), the gap since the end of the previous token
+     * and the length in chars as unsigned LEB128 varints. The record is
+     * followed by the length in UTF-8 bytes as a varint and the UTF-8 text.</li>
+     * </ul>
+     * When several files are written, each starts with a file marker:
+     * {@code ==> name <==} for TEXT, {@code #file<TAB>name} for TSV,
+     * {@code {"file":name}} for JSONL and the kind byte {@code 0xFF} followed
+     * by the varint length and UTF-8 bytes of the name for BINARY.
+     */
+    public enum Format {
+        TEXT,
+        TSV,
+        JSONL,
+        BINARY;
+
+        /** The format named {@code name}, in any case, as given on command lines and in server requests. */
+        public static Format parse(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Error: Unknown format: " + name);
+        }
+    }
+
+    private final WritableByteChannel channel;
+    private final OutputStream stream;
+    private final boolean closeChannel;
+    private final Format format;
+    private final byte[] lineSeparator;
+    private final byte[][] typeNames;
+    private final byte[] bytes;
+    private final ByteBuffer buffer;
+    private int pos;
+    private boolean started;
+    private final TokenRecord record = new TokenRecord();
+    private long tokens;
+
+    public TokenWriter(WritableByteChannel channel, Format format) {
+        this(channel, format, DEFAULT_BUFFER_SIZE);
+    }
+
+    public TokenWriter(WritableByteChannel channel, Format format, int bufferSize) {
+        this(channel, null, true, format, bufferSize);
+    }
+
+    private TokenWriter(WritableByteChannel channel, OutputStream stream, boolean closeChannel, Format format,
+                        int bufferSize) {
+        if (bufferSize < MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("Buffer size must be at least " + MIN_BUFFER_SIZE + ": " + bufferSize);
+        }
+        this.channel = channel;
+        this.stream = stream;
+        this.closeChannel = closeChannel;
+        this.format = format;
+        this.lineSeparator = (format == Format.TEXT ? System.lineSeparator() : "\n").getBytes(StandardCharsets.UTF_8);
+        this.bytes = new byte[bufferSize];
+        this.buffer = ByteBuffer.wrap(bytes);
+        TokenType[] types = TokenType.values();
+        this.typeNames = new byte[types.length][];
+        for (TokenType type : types) {
+            typeNames[type.ordinal()] = type.name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    /** Writes to {@code path}, replacing an existing file. */
+    public static TokenWriter open(Path path, Format format) throws IOException {
+        return new TokenWriter(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING), format);
+    }
+
+    /**
+     * Writes to {@code out}, for example {@code System.out}. Closing the
+     * writer flushes {@code out} but does not close it.
+     */
+    public static TokenWriter toStream(OutputStream out, Format format) {
+        return new TokenWriter(Channels.newChannel(out), out, false, format, DEFAULT_BUFFER_SIZE);
+    }
+
+    public Format format() {
+        return format;
+    }
+
+    /** Number of tokens written so far. */
+    public long tokens() {
+        return tokens;
+    }
+
+    /** Writes a marker that the following tokens belong to {@code name}. */
+    public void beginFile(String name) throws IOException {
+        start();
+        record.reset(0);
+        switch (format) {
+            case TEXT -> {
+                writeAscii("==> ");
+                writeText(name, 0, name.length());
+                writeAscii(" <==");
+                writeLineSeparator();
+            }
+            case TSV -> {
+                writeAscii("#file\t");
+                writeText(name, 0, name.length());
+                writeLineSeparator();
+            }
+            case JSONL -> {
+                writeAscii("{\"file\":\"");
+                writeText(name, 0, name.length());
+                writeAscii("\"}");
+                writeLineSeparator();
+            }
+            case BINARY -> {
+                ensure(1);
+                bytes[pos++] = (byte) BINARY_FILE_RECORD;
+                writeVarint(utf8Length(name, 0, name.length()));
+                writeText(name, 0, name.length());
+            }
+        }
+    }
+
+    /** Writes the token {@code [start, end)} of {@code source}. */
+    @Override
+    public void write(CharSequence source, TokenType type, int start, int end) throws IOException {
+        write(source, 0, type, start, end);
+    }
+
+    /**
+     * Writes the token {@code [start, end)} of {@code source}, a window that
+     * begins at {@code offset} in the whole input. Written positions are
+     * relative to the whole input.
+     */
+    void write(CharSequence source, long offset, TokenType type, int start, int end) throws IOException {
+        start();
+        byte[] name = typeNames[type.ordinal()];
+        switch (format) {
+            case TEXT -> {
+                ensure(1);
+                bytes[pos++] = '<';
+                writeText(source, start, end);
+                writeAscii(", ");
+                writeBytes(name);
+                ensure(1);
+                bytes[pos++] = '>';
+                writeLineSeparator();
+            }
+            case TSV -> {
+                writeBytes(name);
+                ensure(42);
+                bytes[pos++] = '\t';
+                writeLong(offset + start);
+                bytes[pos++] = '\t';
+                writeLong(offset + end);
+                bytes[pos++] = '\t';
+                writeText(source, start, end);
+                writeLineSeparator();
+            }
+            case JSONL -> {
+                writeAscii("{\"type\":\"");
+                writeBytes(name);
+                writeAscii("\",\"start\":");
+                ensure(20);
+                writeLong(offset + start);
+                writeAscii(",\"end\":");
+                ensure(20);
+                writeLong(offset + end);
+                writeAscii(",\"text\":\"");
+                writeText(source, start, end);
+                writeAscii("\"}");
+                writeLineSeparator();
+            }
+            case BINARY -> {
+                ensure(TokenRecord.MAX_BYTES);
+                buffer.limit(bytes.length).position(pos);
+                record.write(buffer, type.ordinal(), offset + start, offset + end);
+                pos = buffer.position();
+                writeVarint(utf8Length(source, start, end));
+                writeText(source, start, end);
+            }
+        }
+        tokens++;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        start();
+        buffer.limit(pos).position(0);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        pos = 0;
+        if (stream != null) {
+            stream.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            if (closeChannel) {
+                channel.close();
+            }
+        }
+    }
+
+    private void start() {
+        if (!started) {
+            started = true;
+            if (format == Format.BINARY) {
+                System.arraycopy(BINARY_MAGIC, 0, bytes, pos, BINARY_MAGIC.length);
+                pos += BINARY_MAGIC.length;
+            }
+        }
+    }
+
+    private void ensure(int room) throws IOException {
+        if (pos + room > bytes.length) {
+            flush();
+        }
+    }
+
+    private void writeLineSeparator() throws IOException {
+        writeBytes(lineSeparator);
+    }
+
+    private void writeAscii(String text) throws IOException {
+        ensure(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            bytes[pos++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void writeBytes(byte[] text) throws IOException {
+        ensure(text.length);
+        System.arraycopy(text, 0, bytes, pos, text.length);
+        pos += text.length;
+    }
+
+    /** Writes a non-negative number in decimal; the caller ensures 20 bytes. */
+    private void writeLong(long value) {
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int p = pos + digits;
+        do {
+            bytes[--p] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        pos += digits;
+    }
+
+    private void writeVarint(long value) throws IOException {
+        ensure(10);
+        buffer.limit(bytes.length).position(pos);
+        TokenRecord.putVarint(buffer, value);
+        pos = buffer.position();
+    }
+
+    /** Encodes {@code [start, end)} as UTF-8, escaped as the format requires. */
+    private void writeText(CharSequence source, int start, int end) throws IOException {
+        boolean escape = format == Format.TSV || format == Format.JSONL;
+        for (int i = start; i < end; i++) {
+            ensure(12);
+            char c = source.charAt(i);
+            if (c < 0x80) {
+                if (escape && needsEscape(c)) {
+                    writeEscaped(c);
+                } else {
+                    bytes[pos++] = (byte) c;
+                }
+            } else if (escape && (c <= 0x9F || c == '\u2028' || c == '\u2029')) {
+                writeUnicodeEscape(c);
+            } else if (c < 0x800) {
+                bytes[pos++] = (byte) (0xC0 | c >> 6);
+                bytes[pos++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(source.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, source.charAt(++i));
+                    bytes[pos++] = (byte) (0xF0 | cp >> 18);
+                    bytes[pos++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                    bytes[pos++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                    bytes[pos++] = (byte) (0x80 | cp & 0x3F);
+                } else if (format == Format.JSONL) {
+                    writeUnicodeEscape(c);
+                } else {
+                    bytes[pos++] = '?';
+                }
+            } else {
+                bytes[pos++] = (byte) (0xE0 | c >> 12);
+                bytes[pos++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[pos++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+    }
+
+    private boolean needsEscape(char c) {
+        return c < 0x20 || c == 0x7F || c == '\\' || c == '"' && format == Format.JSONL;
+    }
+
+    private void writeEscaped(char c) {
+        char named = switch (c) {
+            case '\n' -> 'n';
+            case '\r' -> 'r';
+            case '\t' -> 't';
+            case '\\' -> '\\';
+            case '"' -> '"';
+            case '\b' -> format == Format.JSONL ? 'b' : 0;
+            case '\f' -> format == Format.JSONL ? 'f' : 0;
+            default -> 0;
+        };
+        if (named == 0) {
+            writeUnicodeEscape(c);
+        } else {
+            bytes[pos++] = '\\';
+            bytes[pos++] = (byte) named;
+        }
+    }
+
+    private void writeUnicodeEscape(char c) {
+        bytes[pos++] = '\\';
+        bytes[pos++] = 'u';
+        bytes[pos++] = HEX_DIGITS[c >> 12];
+        bytes[pos++] = HEX_DIGITS[c >> 8 & 0xF];
+        bytes[pos++] = HEX_DIGITS[c >> 4 & 0xF];
+        bytes[pos++] = HEX_DIGITS[c & 0xF];
+    }
+
+    /** UTF-8 length of {@code [start, end)} as written without escaping. */
+    private static int utf8Length(CharSequence source, int start, int end) {
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(source.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,164 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Read-only {@link CharSequence} over UTF-8 bytes that are mostly ASCII.
+ * ASCII bytes are widened on access like in {@link AsciiSequence}; only the
+ * runs of non-ASCII bytes are decoded, once, into a small array. A run is
+ * always whole characters, since every byte of a multi-byte sequence has its
+ * high bit set, so decoding runs one by one gives the same characters as
+ * decoding the whole input. Malformed sequences become U+FFFD.
+ * <p>
+ * Looking up the run before an index is a binary search, skipped when the
+ * index falls in the same gap as the last lookup, which is the usual case for
+ * a scan moving forward.
+ */
+final class Utf8Sequence implements CharSequence {
+    private final ByteBuffer bytes;
+    private final int length;
+    // For run k: its first char index, end char index, byte offset minus char
+    // index after it, and where its chars start in decoded.
+    private final int[] runStart;
+    private final int[] runEnd;
+    private final int[] shiftAfter;
+    private final int[] decodedFrom;
+    private final char[] decoded;
+    // Run whose gap held the last index looked up, or -1 for the gap before
+    // the first run. Racy reads only cost a search, since it is checked.
+    private int lastRun = -1;
+
+    private Utf8Sequence(ByteBuffer bytes, int length, int[] runStart, int[] runEnd, int[] shiftAfter,
+                         int[] decodedFrom, char[] decoded) {
+        this.bytes = bytes;
+        this.length = length;
+        this.runStart = runStart;
+        this.runEnd = runEnd;
+        this.shiftAfter = shiftAfter;
+        this.decodedFrom = decodedFrom;
+        this.decoded = decoded;
+    }
+
+    /** Decodes the non-ASCII runs of {@code bytes}, from 0 to its limit. */
+    static Utf8Sequence of(ByteBuffer bytes) {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        int limit = bytes.limit();
+        int runs = 0;
+        int[] runStart = new int[8];
+        int[] runEnd = new int[8];
+        int[] shiftAfter = new int[8];
+        int[] decodedFrom = new int[8];
+        CharBuffer decoded = CharBuffer.allocate(16);
+        int shift = 0;
+        int i = 0;
+        while (true) {
+            while (i + Long.BYTES <= limit && (bytes.getLong(i) & 0x8080808080808080L) == 0) {
+                i += Long.BYTES;
+            }
+            while (i < limit && bytes.get(i) >= 0) {
+                i++;
+            }
+            if (i == limit) {
+                break;
+            }
+            int from = i;
+            while (i < limit && bytes.get(i) < 0) {
+                i++;
+            }
+            if (runs == runStart.length) {
+                runStart = Arrays.copyOf(runStart, runs * 2);
+                runEnd = Arrays.copyOf(runEnd, runs * 2);
+                shiftAfter = Arrays.copyOf(shiftAfter, runs * 2);
+                decodedFrom = Arrays.copyOf(decodedFrom, runs * 2);
+            }
+            // A run of n bytes decodes to at most n chars.
+            if (decoded.remaining() < i - from) {
+                CharBuffer grown = CharBuffer.allocate(Math.max(decoded.capacity() * 2, decoded.position() + i - from));
+                decoded = grown.put(decoded.flip());
+            }
+            int chars = decoded.position();
+            decoder.reset();
+            decoder.decode(bytes.slice(from, i - from), decoded, true);
+            decoder.flush(decoded);
+            chars = decoded.position() - chars;
+            runStart[runs] = from - shift;
+            runEnd[runs] = from - shift + chars;
+            decodedFrom[runs] = decoded.position() - chars;
+            shift += i - from - chars;
+            shiftAfter[runs] = shift;
+            runs++;
+        }
+        return new Utf8Sequence(bytes, limit - shift, Arrays.copyOf(runStart, runs), Arrays.copyOf(runEnd, runs),
+            Arrays.copyOf(shiftAfter, runs), Arrays.copyOf(decodedFrom, runs),
+            Arrays.copyOf(decoded.array(), decoded.position()));
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        int run = runBefore(index);
+        if (run < 0) {
+            return (char) bytes.get(index);
+        }
+        if (index < runEnd[run]) {
+            return decoded[decodedFrom[run] + index - runStart[run]];
+        }
+        return (char) bytes.get(index + shiftAfter[run]);
+    }
+
+    /** The last run starting at or before {@code index}, or -1 if there is none. */
+    private int runBefore(int index) {
+        int run = lastRun;
+        if ((run < 0 || runStart[run] <= index) && (run + 1 == runStart.length || index < runStart[run + 1])) {
+            return run;
+        }
+        run = Arrays.binarySearch(runStart, index);
+        if (run < 0) {
+            run = -run - 2;
+        }
+        lastRun = run;
+        return run;
+    }
+
+    /**
+     * Returns a view of the bytes if {@code [start, end)} is all ASCII, and
+     * otherwise a copy of the chars, since a slice with a run in it is rare
+     * and about a token long.
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+        }
+        int run = runBefore(start);
+        boolean ascii = run < 0 || start >= runEnd[run];
+        int next = run + 1;
+        if (ascii && (next == runStart.length || end <= runStart[next])) {
+            return new AsciiSequence(bytes, start + (run < 0 ? 0 : shiftAfter[run]), end - start);
+        }
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            chars[i - start] = charAt(i);
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length).toString();
+    }
+}
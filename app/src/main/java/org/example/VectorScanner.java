@@ -0,0 +1,100 @@
+package org.example;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Finds the end of character runs in a {@code char[]} many lanes at a time
+ * with the incubating Vector API.
+ * <p>
+ * Each method looks at whole vectors in {@code [from, to)} only and returns
+ * the index of the first character that ends the run, or the index where it
+ * stopped looking if the run has not ended by then. The caller finishes the
+ * tail with its scalar loop, so both paths give the same result. Only
+ * {@link DfaLexer} loads this class, and only after checking that the
+ * {@code jdk.incubator.vector} module is present.
+ */
+final class VectorScanner {
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    private VectorScanner() {
+    }
+
+    /** Skips the characters of {@link DfaLexer#isWhitespace(char)}. */
+    static int skipWhitespace(char[] a, int from, int to) {
+        int i = from;
+        for (; i + LANES <= to; i += LANES) {
+            VectorMask<Short> other = isWhitespace(ShortVector.fromCharArray(SPECIES, a, i)).not();
+            if (other.anyTrue()) {
+                return i + other.firstTrue();
+            }
+        }
+        return i;
+    }
+
+    /** Skips the characters of {@link DfaLexer#isWordChar(char)}, that is {@code [0-9A-Za-z_]}. */
+    static int skipWord(char[] a, int from, int to) {
+        int i = from;
+        for (; i + LANES <= to; i += LANES) {
+            ShortVector v = ShortVector.fromCharArray(SPECIES, a, i);
+            VectorMask<Short> word = v.sub((short) '0').compare(VectorOperators.UNSIGNED_LT, (short) 10)
+                .or(v.or((short) 0x20).sub((short) 'a').compare(VectorOperators.UNSIGNED_LT, (short) 26))
+                .or(v.eq((short) '_'));
+            VectorMask<Short> other = word.not();
+            if (other.anyTrue()) {
+                return i + other.firstTrue();
+            }
+        }
+        return i;
+    }
+
+    /** Skips everything but whitespace, as an {@code INVALID} run does. */
+    static int skipNonWhitespace(char[] a, int from, int to) {
+        int i = from;
+        for (; i + LANES <= to; i += LANES) {
+            VectorMask<Short> space = isWhitespace(ShortVector.fromCharArray(SPECIES, a, i));
+            if (space.anyTrue()) {
+                return i + space.firstTrue();
+            }
+        }
+        return i;
+    }
+
+    /** Finds a line terminator, or also a double quote if {@code quote} is set. */
+    static int findLineEnd(char[] a, int from, int to, boolean quote) {
+        int i = from;
+        for (; i + LANES <= to; i += LANES) {
+            ShortVector v = ShortVector.fromCharArray(SPECIES, a, i);
+            VectorMask<Short> end = v.eq((short) '\n').or(v.eq((short) '\r')).or(v.eq((short) '\u0085'))
+                .or(v.sub((short) '\u2028').compare(VectorOperators.UNSIGNED_LT, (short) 2));
+            if (quote) {
+                end = end.or(v.eq((short) '"'));
+            }
+            if (end.anyTrue()) {
+                return i + end.firstTrue();
+            }
+        }
+        return i;
+    }
+
+    /** Finds the {@code *} of a {@code *}{@code /} pair; the pair must lie within {@code to}. */
+    static int findCommentEnd(char[] a, int from, int to) {
+        int i = from;
+        for (; i + LANES < to; i += LANES) {
+            VectorMask<Short> end = ShortVector.fromCharArray(SPECIES, a, i).eq((short) '*')
+                .and(ShortVector.fromCharArray(SPECIES, a, i + 1).eq((short) '/'));
+            if (end.anyTrue()) {
+                return i + end.firstTrue();
+            }
+        }
+        return i;
+    }
+
+    /** A space, or one of the five chars from tab to carriage return. */
+    private static VectorMask<Short> isWhitespace(ShortVector v) {
+        return v.eq((short) ' ').or(v.sub((short) '\t').compare(VectorOperators.UNSIGNED_LT, (short) 5));
+    }
+}
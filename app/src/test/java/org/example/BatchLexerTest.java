@@ -0,0 +1,130 @@
+import org.example.BatchLexer;
+import org.example.LexerStats;
+import org.example.LexicalAnalyzer;
+import org.example.TokenBuffer;
+import org.example.TokenCache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchLexerTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testCollectExpandsDirectoriesGlobsAndLists() throws IOException {
+        Path src = Files.createDirectories(tempDir.resolve("src/pkg"));
+        Path a = Files.writeString(src.resolve("A.java"), "int a;");
+        Path b = Files.writeString(src.resolve("B.java"), "int b;");
+        Path notes = Files.writeString(tempDir.resolve("notes.txt"), "x");
+        Path list = Files.writeString(tempDir.resolve("files.lst"), notes + "\n" + a + "\n");
+
+        List<Path> files = BatchLexer.collect(List.of(src.toString(), tempDir + "/src/**/*.java", "@" + list));
+
+        assertEquals(List.of(a, b, notes), files);
+    }
+
+    @Test
+    void testRunWritesFilesInOrderAndReportsFailures() throws Exception {
+        Path first = Files.writeString(tempDir.resolve("First.java"), "int x = 1;");
+        Path missing = tempDir.resolve("Missing.java");
+        Path last = Files.writeString(tempDir.resolve("Last.java"), "return;");
+        var out = new ByteArrayOutputStream();
+        var err = new ByteArrayOutputStream();
+
+        BatchLexer.Summary summary = new BatchLexer().run(List.of(first, missing, last),
+            new PrintStream(out), new PrintStream(err));
+
+        String output = out.toString();
+        assertTrue(output.indexOf("==> " + first) < output.indexOf("==> " + last));
+        assertTrue(output.contains("<return, RESERVED_KEYWORD>"));
+        assertTrue(err.toString().contains("Error: " + missing + ": File does not exist"));
+        assertEquals(3, summary.files);
+        assertEquals(7, summary.tokens);
+        assertEquals(17, summary.bytes);
+        assertEquals(List.of(missing), List.copyOf(summary.failures.keySet()));
+    }
+
+    @Test
+    void testSmallReadAheadMatchesDefault() throws Exception {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            files.add(Files.writeString(tempDir.resolve("F" + i + ".java"), "String s = \"é\"; int x" + i + " = " + i + ";"));
+        }
+        var expected = new ByteArrayOutputStream();
+        var actual = new ByteArrayOutputStream();
+
+        new BatchLexer().run(files, new PrintStream(expected), new PrintStream(new ByteArrayOutputStream()));
+        BatchLexer.Summary summary = new BatchLexer(new LexicalAnalyzer(), 1, 16)
+            .run(files, new PrintStream(actual), new PrintStream(new ByteArrayOutputStream()));
+
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(12, summary.files);
+        assertTrue(summary.failures.isEmpty());
+    }
+
+    @Test
+    void testEachFileIsWrittenBeforeLaterFilesAreTaken() throws Exception {
+        // Every file has an unclosed bracket, so writing it prints a diagnostic at once.
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            files.add(Files.writeString(tempDir.resolve("F" + i + ".java"), "f" + i + "("));
+        }
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        LexicalAnalyzer lexer = new LexicalAnalyzer() {
+            @Override
+            public TokenBuffer analyzeToBuffer(CharSequence content) {
+                events.add("lexed " + content.subSequence(0, 2));
+                return super.analyzeToBuffer(content);
+            }
+        };
+        lexer.setBracketMatching(true);
+        PrintStream err = new PrintStream(new ByteArrayOutputStream()) {
+            @Override
+            public void println(String line) {
+                events.add("written " + line.substring(line.lastIndexOf("F") + 1, line.indexOf(".java")));
+            }
+        };
+
+        new BatchLexer(lexer, 1, 16).run(files, new PrintStream(new ByteArrayOutputStream()), err);
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            expected.add("lexed f" + i);
+            expected.add("written " + i);
+        }
+        assertEquals(expected, events);
+    }
+
+    @Test
+    void testCachedRunsRecordFilesInStats() throws Exception {
+        Path first = Files.writeString(tempDir.resolve("First.java"), "int x = 1;");
+        Path second = Files.writeString(tempDir.resolve("Second.java"), "String s = \"é\";");
+        LexicalAnalyzer lexer = new LexicalAnalyzer();
+        lexer.setCache(new TokenCache(tempDir.resolve("cache")));
+
+        for (int run = 1; run <= 2; run++) {
+            // The first run misses the cache and the second hits it.
+            LexerStats stats = new LexerStats();
+            lexer.setStats(stats);
+            BatchLexer.Summary summary = new BatchLexer(lexer, 1)
+                .run(List.of(first, second), new PrintStream(new ByteArrayOutputStream()), new PrintStream(new ByteArrayOutputStream()));
+
+            assertEquals(2, stats.getFiles());
+            assertEquals(10 + 16, stats.getBytes());
+            assertEquals(10 + 16, summary.bytes);
+        }
+        assertEquals(2, lexer.cache().hits());
+    }
+}
@@ -0,0 +1,133 @@
+import org.example.BracketIndex;
+import org.example.LexicalAnalyzer;
+import org.example.TokenBuffer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BracketIndexTest {
+
+    private static TokenBuffer lex(String source) {
+        LexicalAnalyzer lexer = new LexicalAnalyzer();
+        lexer.setBracketMatching(true);
+        return lexer.analyzeToBuffer(source);
+    }
+
+    private static int indexOf(TokenBuffer tokens, int offset) {
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.start(i) == offset) {
+                return i;
+            }
+        }
+        throw new AssertionError("No token at " + offset);
+    }
+
+    @Test
+    void testNotIndexedUnlessAsked() {
+        assertNull(new LexicalAnalyzer().analyzeToBuffer("f(x);").brackets());
+    }
+
+    @Test
+    void testPartnersAndEnclosingBlocks() {
+        String source = "class A { void f(int[] a) { g(a[0]); } }";
+        TokenBuffer tokens = lex(source);
+        BracketIndex brackets = tokens.brackets();
+
+        int classOpen = indexOf(tokens, source.indexOf('{'));
+        int classClose = indexOf(tokens, source.lastIndexOf('}'));
+        int bodyOpen = indexOf(tokens, source.indexOf("{ g"));
+        int bodyClose = indexOf(tokens, source.indexOf("} }"));
+        int call = indexOf(tokens, source.indexOf("(a["));
+        int index = indexOf(tokens, source.indexOf("[0"));
+        int zero = indexOf(tokens, source.indexOf('0'));
+
+        assertTrue(brackets.isBalanced());
+        assertEquals(classClose, brackets.partner(classOpen));
+        assertEquals(classOpen, brackets.partner(classClose));
+        assertEquals(bodyClose, brackets.partner(bodyOpen));
+        assertEquals(-1, brackets.partner(zero));
+        assertEquals(index, brackets.enclosing(zero));
+        assertEquals(call, brackets.enclosing(index));
+        assertEquals(bodyOpen, brackets.enclosing(call));
+        assertEquals(classOpen, brackets.enclosing(bodyClose));
+        assertEquals(-1, brackets.enclosing(classOpen));
+        assertEquals(-1, brackets.enclosing(classClose));
+        assertEquals(-1, brackets.enclosing(0));
+        assertTrue(brackets.diagnostics().isEmpty());
+    }
+
+    @Test
+    void testBracketsInStringsAndCommentsAreNotTokens() {
+        BracketIndex brackets = lex("s = \"(\"; c = '{'; // )\n/* ] */ f();").brackets();
+
+        assertTrue(brackets.isBalanced());
+    }
+
+    @Test
+    void testStructuralErrorsArePositioned() {
+        TokenBuffer tokens = lex("{ ( }\n ) ]");
+        BracketIndex brackets = tokens.brackets();
+
+        assertFalse(brackets.isBalanced());
+        assertEquals(2, brackets.partner(0));
+        assertEquals(-1, brackets.partner(1));
+        List<BracketIndex.Diagnostic> diagnostics = brackets.diagnostics();
+        assertEquals(3, diagnostics.size());
+        assertEquals(BracketIndex.Problem.UNCLOSED, diagnostics.get(0).problem);
+        assertEquals(1, diagnostics.get(0).token);
+        assertEquals("1:3: Unclosed '('", diagnostics.get(0).toString());
+        assertEquals(BracketIndex.Problem.UNMATCHED, diagnostics.get(1).problem);
+        assertEquals(7, diagnostics.get(1).offset);
+        assertEquals("2:2: Unmatched ')'", diagnostics.get(1).toString());
+        assertEquals("2:4: Unmatched ']'", diagnostics.get(2).toString());
+    }
+
+    @Test
+    void testBracketsOpenAtTheEndAreUnclosed() {
+        List<BracketIndex.Diagnostic> diagnostics = lex("f((x)\n[").brackets().diagnostics();
+
+        assertEquals(List.of("1:2: Unclosed '('", "2:1: Unclosed '['"),
+            diagnostics.stream().map(BracketIndex.Diagnostic::toString).toList());
+    }
+
+    @Test
+    void testDeepNestingNeedsNoRecursion() {
+        int depth = 200_000;
+        TokenBuffer tokens = lex("(".repeat(depth) + "x" + ")".repeat(depth));
+        BracketIndex brackets = tokens.brackets();
+
+        assertTrue(brackets.isBalanced());
+        assertEquals(tokens.size() - 1, brackets.partner(0));
+        assertEquals(depth - 1, brackets.enclosing(depth));
+        assertEquals(depth - 2, brackets.enclosing(depth + 1));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = LexicalAnalyzer.Engine.class, names = {"REGEX", "DFA", "FSM"})
+    void testEveryPathBuildsTheSameIndex(LexicalAnalyzer.Engine engine) {
+        String[] parts = {"(", ")", "[", "]", "{", "}", "x", " ", ";", "\"(\"", "// }\n", "\n"};
+        String content = TestSources.randomSource(22, 200_000, parts);
+
+        LexicalAnalyzer lexer = new LexicalAnalyzer(null, engine);
+        lexer.setBracketMatching(true);
+        TokenBuffer sequential = lexer.analyzeToBuffer(content);
+        TokenBuffer afterwards = new LexicalAnalyzer().analyzeToBuffer(content);
+        afterwards.indexBrackets();
+        TokenBuffer parallel = lexer.analyzeInParallel(content);
+        TokenBuffer edited = lexer.relex(lexer.analyzeToBuffer(content.substring(1)), 0, 0, content.substring(0, 1));
+
+        for (TokenBuffer other : new TokenBuffer[]{afterwards, parallel, edited}) {
+            assertEquals(sequential.size(), other.size());
+            for (int i = 0; i < sequential.size(); i++) {
+                assertEquals(sequential.brackets().partner(i), other.brackets().partner(i));
+                assertEquals(sequential.brackets().enclosing(i), other.brackets().enclosing(i));
+            }
+            assertEquals(sequential.brackets().diagnostics().size(), other.brackets().diagnostics().size());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import org.example.FilePrefetcher;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.MalformedInputException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilePrefetcherTest {
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 16})
+    void testFilesComeInListOrder(int maxInFlight) throws Exception {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            // Multi-byte chars land on every offset of the 16-byte buffer.
+            files.add(Files.writeString(tempDir.resolve("F" + i + ".java"), "é€😀 int x" + i + ";".repeat(i * 7)));
+        }
+        files.add(Files.writeString(tempDir.resolve("Empty.java"), ""));
+
+        try (FilePrefetcher prefetcher = new FilePrefetcher(files, maxInFlight, 16)) {
+            for (Path file : files) {
+                assertTrue(prefetcher.hasNext());
+                FilePrefetcher.Content content = prefetcher.next();
+                assertEquals(file, content.path);
+                assertEquals(Files.readString(file), content.text);
+                assertEquals(Files.size(file), content.bytes);
+            }
+            assertFalse(prefetcher.hasNext());
+        }
+    }
+
+    @Test
+    void testFailedFilesDoNotStopTheOthers() throws Exception {
+        Path missing = tempDir.resolve("Missing.java");
+        Path malformed = tempDir.resolve("Malformed.java");
+        Files.write(malformed, new byte[]{'a', (byte) 0xC3, 'b'});
+        Path good = Files.writeString(tempDir.resolve("Good.java"), "int a;");
+
+        try (FilePrefetcher prefetcher = new FilePrefetcher(List.of(missing, malformed, good), 2, 16)) {
+            assertThrows(NoSuchFileException.class, prefetcher::next);
+            assertThrows(MalformedInputException.class, prefetcher::next);
+            assertEquals("int a;", prefetcher.next().text);
+        }
+    }
+
+    @Test
+    void testTruncatedMultiByteCharAtTheEndIsMalformed() throws IOException {
+        Path file = tempDir.resolve("Truncated.java");
+        Files.write(file, new byte[]{'a', (byte) 0xE2, (byte) 0x82});
+
+        try (FilePrefetcher prefetcher = new FilePrefetcher(List.of(file), 1, 16)) {
+            assertThrows(MalformedInputException.class, prefetcher::next);
+        }
+    }
+
+    @Test
+    void testAllocatesOneBufferPerFileInFlight() throws Exception {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            files.add(Files.writeString(tempDir.resolve("F" + i + ".java"), "int x" + i + ";".repeat(i * 7)));
+        }
+        BufferPoolMXBean direct = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+            .filter(pool -> pool.getName().equals("direct"))
+            .findFirst()
+            .orElseThrow();
+        long before = direct.getCount();
+
+        try (FilePrefetcher prefetcher = new FilePrefetcher(files, 3, 16)) {
+            while (prefetcher.hasNext()) {
+                prefetcher.next();
+            }
+        }
+
+        // Buffers of earlier tests may be freed meanwhile, so this is an upper bound.
+        assertTrue(direct.getCount() - before <= 3);
+    }
+
+    @Test
+    void testLimitsMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new FilePrefetcher(List.of(), 0, 1024));
+        assertThrows(IllegalArgumentException.class, () -> new FilePrefetcher(List.of(), 1, 0));
+    }
+}
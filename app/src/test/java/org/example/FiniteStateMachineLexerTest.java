@@ -0,0 +1,78 @@
+import org.example.FiniteStateMachineLexer;
+import org.example.KeywordTable;
+import org.example.LexicalAnalyzer;
+import org.example.TokenBuffer;
+import org.example.TokenType;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FiniteStateMachineLexerTest {
+    private final LexicalAnalyzer regex = new LexicalAnalyzer(LexicalAnalyzer.Engine.REGEX);
+    private final LexicalAnalyzer fsm = new LexicalAnalyzer(LexicalAnalyzer.Engine.FSM);
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "public class Example { long x = 100_100L; float y = 3.14f; int z = 0x1A_FF; int o = 0123; }",
+        "int a = (7) * 8 / 2; // trailing comment",
+        "/* block\r\n comment */ x /* unterminated",
+        "/*/ x */ /**/ /***/",
+        "\"unterminated string\n\"ok\" 'a' '\\n' '\\' 'ab' '\\''",
+        "0x 0X1F 0x1Fg 0128 0777f 08 1. 1.x 1.e5 1e 1e+5 1.5e 123a 1.5fx 1L2",
+        "interface iffy if_ _if =//x <<= && || !=",
+        "@@@ # é á   1f́ a1 x9y"
+    })
+    void testMatchesRegexEngine(String input) {
+        assertEquals(regex.analyzeFromString(input), fsm.analyzeFromString(input));
+    }
+
+    @Test
+    void testPushesTokenBoundsIntoSink() {
+        String source = "x = 0x1F; /* c */";
+        List<String> received = new ArrayList<>();
+
+        new FiniteStateMachineLexer().tokenize(source, (type, start, end) ->
+            received.add(type + "@" + start + ":" + end));
+
+        assertEquals(List.of(
+            "IDENTIFIER@0:1",
+            "OPERATOR@2:3",
+            "HEX_NUMBER@4:8",
+            "DELIMITER@8:9",
+            "COMMENT@10:17"
+        ), received);
+    }
+
+    @Test
+    void testSinkCanFillTokenBuffer() {
+        String source = "foo(bar);";
+        TokenBuffer buffer = new TokenBuffer(source);
+
+        new FiniteStateMachineLexer(KeywordTable.of(List.of("foo"))).tokenize(source, buffer::add);
+
+        assertEquals(5, buffer.size());
+        assertEquals(TokenType.RESERVED_KEYWORD, buffer.type(0));
+        assertEquals(TokenType.IDENTIFIER, buffer.type(2));
+        assertEquals("bar", buffer.text(2));
+    }
+
+    @Test
+    void testAnalyzeWithSinkMatchesBufferForEveryEngine() {
+        String source = "int x = 10; // done\nreturn x;";
+        for (LexicalAnalyzer.Engine engine : List.of(LexicalAnalyzer.Engine.REGEX, LexicalAnalyzer.Engine.DFA,
+                LexicalAnalyzer.Engine.FSM)) {
+            LexicalAnalyzer lexer = new LexicalAnalyzer(engine);
+            TokenBuffer pushed = new TokenBuffer(source);
+
+            lexer.analyze(source, pushed::add);
+
+            assertEquals(lexer.analyzeFromString(source), pushed.asList(), engine.name());
+        }
+    }
+}
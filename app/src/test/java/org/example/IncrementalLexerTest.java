@@ -0,0 +1,131 @@
+import org.example.IncrementalLexer;
+import org.example.KeywordTable;
+import org.example.LexicalAnalyzer;
+import org.example.SymbolTable;
+import org.example.TokenBuffer;
+import org.example.TokenLimitException;
+import org.example.TokenType;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalLexerTest {
+    private final LexicalAnalyzer lexer = new LexicalAnalyzer();
+
+    @Test
+    void testEditInsideLine() {
+        TokenBuffer previous = lexer.analyzeToBuffer("int x = 1;\nint y = 2;");
+
+        TokenBuffer tokens = lexer.relex(previous, 4, 1, "count");
+
+        assertEquals(lexer.analyzeFromString("int count = 1;\nint y = 2;"), tokens.asList());
+        assertEquals(15, tokens.start(5));
+    }
+
+    @Test
+    void testEditThatClosesAnEarlierComment() {
+        String source = "a /* b\nc d";
+        TokenBuffer previous = lexer.analyzeToBuffer(source);
+
+        TokenBuffer tokens = lexer.relex(previous, source.length(), 0, " */");
+
+        assertEquals(List.of(new LexicalAnalyzer.Token("a", "IDENTIFIER"),
+            new LexicalAnalyzer.Token("/* b\nc d */", "COMMENT")), tokens.asList());
+    }
+
+    @Test
+    void testEditThatOpensAComment() {
+        IncrementalLexer document = new IncrementalLexer("x = 1;\n/* y */ z = 2;");
+
+        document.edit(7, 2, "");
+
+        assertEquals(lexer.analyzeFromString("x = 1;\n y */ z = 2;"), document.toTokenBuffer().asList());
+    }
+
+    @Test
+    void testRandomEditsMatchFullRelex() {
+        String[] pieces = {"int", "x", "1.5", "0x1F", "\"s\"", "'c'", "/*", "*/", "//", "+", ";", "(", " ", "\n"};
+        Random random = new Random(42);
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            source.append(pieces[random.nextInt(pieces.length)]);
+        }
+        IncrementalLexer document = new IncrementalLexer(source.toString());
+
+        for (int i = 0; i < 500; i++) {
+            int offset = random.nextInt(source.length() + 1);
+            int removed = random.nextInt(Math.min(3, source.length() - offset) + 1);
+            String inserted = pieces[random.nextInt(pieces.length)];
+            source.replace(offset, offset + removed, inserted);
+            document.edit(offset, removed, inserted);
+
+            assertEquals(lexer.analyzeFromString(source.toString()), document.toTokenBuffer().asList());
+        }
+    }
+
+    @Test
+    void testDocumentKeepsSymbolsAndBracketsThroughEdits() {
+        String[] pieces = {"int", "x", "y", "(", ")", "{", "}", "[", "]", "/*", "*/", "//", ";", " ", "\n", "\"}\""};
+        Random random = new Random(8);
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            source.append(pieces[random.nextInt(pieces.length)]);
+        }
+        SymbolTable symbols = new SymbolTable();
+        LexicalAnalyzer analyzer = new LexicalAnalyzer(null, LexicalAnalyzer.Engine.DFA, KeywordTable.java(), symbols);
+        analyzer.setBracketMatching(true);
+        IncrementalLexer document = analyzer.newDocument(source.toString());
+
+        for (int i = 0; i < 500; i++) {
+            int offset = random.nextInt(source.length() + 1);
+            int removed = random.nextInt(Math.min(3, source.length() - offset) + 1);
+            String inserted = pieces[random.nextInt(pieces.length)];
+            source.replace(offset, offset + removed, inserted);
+            document.edit(offset, removed, inserted);
+            if (i % 3 != 0) {
+                // Several edits between reads are brought up to date at once.
+                continue;
+            }
+
+            TokenBuffer expected = analyzer.analyzeToBuffer(source.toString());
+            TokenBuffer tokens = document.tokens();
+            assertSame(tokens, document.tokens());
+            assertEquals(expected.asList(), tokens.asList());
+            for (int j = 0; j < expected.size(); j++) {
+                assertEquals(expected.symbol(j), tokens.symbol(j));
+                assertEquals(expected.symbol(j), document.symbol(j));
+                assertEquals(expected.brackets().partner(j), tokens.brackets().partner(j));
+                assertEquals(expected.brackets().enclosing(j), tokens.brackets().enclosing(j));
+            }
+            assertEquals(expected.brackets().diagnostics().toString(), tokens.brackets().diagnostics().toString());
+        }
+    }
+
+    @Test
+    void testDocumentChecksOnlyNewTokensAgainstTheLimit() {
+        LexicalAnalyzer analyzer = new LexicalAnalyzer();
+        analyzer.setMaxTokenLength(8);
+        IncrementalLexer document = analyzer.newDocument("int x = 1;");
+
+        TokenLimitException e = assertThrows(TokenLimitException.class, () -> document.edit(4, 1, "counter_value"));
+
+        assertEquals(4, e.offset());
+        assertEquals("int counter_value = 1;", document.source().toString());
+        assertEquals(lexer.analyzeFromString("int counter_value = 1;"), document.tokens().asList());
+    }
+
+    @Test
+    void testDocumentNeedsTheDfaEngineWithoutAFilter() {
+        LexicalAnalyzer filtered = new LexicalAnalyzer();
+        filtered.setTokenFilter(EnumSet.of(TokenType.IDENTIFIER));
+
+        assertThrows(IllegalStateException.class, () -> filtered.newDocument("x"));
+        assertThrows(IllegalStateException.class,
+            () -> new LexicalAnalyzer(LexicalAnalyzer.Engine.REGEX).newDocument("x"));
+    }
+}
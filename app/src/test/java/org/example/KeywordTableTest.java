@@ -0,0 +1,69 @@
+import org.example.KeywordTable;
+import org.example.LexicalAnalyzer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeywordTableTest {
+
+    @Test
+    void testJavaTableContainsEveryJavaKeyword() {
+        KeywordTable table = KeywordTable.java();
+
+        for (String keyword : KeywordTable.JAVA_KEYWORDS) {
+            assertTrue(table.contains(keyword), keyword);
+        }
+        assertFalse(table.contains("Int"));
+        assertFalse(table.contains("ifs"));
+        assertFalse(table.contains("var"));
+        assertFalse(table.contains(""));
+    }
+
+    @Test
+    void testContainsLooksAtRangeOnly() {
+        String text = "xinterfacey";
+
+        assertTrue(KeywordTable.java().contains(text, 1, 10));
+        assertTrue(KeywordTable.java().contains(text, 1, 4));
+        assertFalse(KeywordTable.java().contains(text, 0, 10));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = LexicalAnalyzer.Engine.class, names = {"REGEX", "DFA", "FSM"})
+    void testCustomKeywordsOverrideDefaults(LexicalAnalyzer.Engine engine) {
+        KeywordTable keywords = KeywordTable.of(List.of("foo", "bar_1"));
+        LexicalAnalyzer lexer = new LexicalAnalyzer(null, engine, keywords);
+
+        List<LexicalAnalyzer.Token> tokens = lexer.analyzeFromString("foo bar_1 int foox");
+
+        assertEquals(List.of(
+            new LexicalAnalyzer.Token("foo", "RESERVED_KEYWORD"),
+            new LexicalAnalyzer.Token("bar_1", "RESERVED_KEYWORD"),
+            new LexicalAnalyzer.Token("int", "IDENTIFIER"),
+            new LexicalAnalyzer.Token("foox", "IDENTIFIER")
+        ), tokens);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = LexicalAnalyzer.Engine.class, names = {"REGEX", "DFA", "FSM"})
+    void testEmptyTableHasNoKeywords(LexicalAnalyzer.Engine engine) {
+        LexicalAnalyzer lexer = new LexicalAnalyzer(null, engine, KeywordTable.of(List.of()));
+
+        assertEquals(List.of(
+            new LexicalAnalyzer.Token("if", "IDENTIFIER"),
+            new LexicalAnalyzer.Token("x", "IDENTIFIER")
+        ), lexer.analyzeFromString("if x"));
+    }
+
+    @Test
+    void testRejectsWordsTheLexerCannotProduce() {
+        assertThrows(IllegalArgumentException.class, () -> KeywordTable.of(List.of("1x")));
+        assertThrows(IllegalArgumentException.class, () -> KeywordTable.of(List.of("a-b")));
+        assertThrows(IllegalArgumentException.class, () -> KeywordTable.of(List.of("")));
+    }
+}
@@ -0,0 +1,211 @@
+import org.example.LexerClient;
+import org.example.LexerServer;
+import org.example.LexicalAnalyzer;
+import org.example.TokenWriter;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LexerServerTest {
+    private static final String SOURCE = "int x = 0x1F; // done\nString s = \"é\"; @@";
+
+    @TempDir
+    Path tempDir;
+
+    private LexerServer server;
+    private Thread serving;
+
+    @AfterEach
+    void stopServer() throws Exception {
+        if (server != null) {
+            server.close();
+            serving.join();
+        }
+    }
+
+    private Path startServer(int workers) throws InterruptedException {
+        Path socket = tempDir.resolve("lexer.sock");
+        server = new LexerServer(new LexicalAnalyzer(), workers);
+        serving = new Thread(() -> {
+            try {
+                server.serve(socket);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        serving.start();
+        while (!Files.exists(socket)) {
+            Thread.sleep(5);
+        }
+        return socket;
+    }
+
+    private static byte[] expected(String source, TokenWriter.Format format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TokenWriter writer = TokenWriter.toStream(out, format)) {
+            writer.write(new LexicalAnalyzer().analyzeToBuffer(source));
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void testContentAndFileRequests() throws Exception {
+        Path socket = startServer(2);
+        Path file = tempDir.resolve("A.java");
+        Files.writeString(file, SOURCE);
+
+        try (LexerClient client = new LexerClient(socket)) {
+            for (TokenWriter.Format format : TokenWriter.Format.values()) {
+                assertArrayEquals(expected(SOURCE, format), client.lexContent(SOURCE, format));
+                assertArrayEquals(expected(SOURCE, format), client.lexFile(file, format));
+            }
+        }
+    }
+
+    @Test
+    void testErrorsDoNotCloseTheConnection() throws Exception {
+        Path socket = startServer(1);
+
+        try (LexerClient client = new LexerClient(socket)) {
+            IOException e = assertThrows(IOException.class,
+                () -> client.lexFile(tempDir.resolve("Missing.java"), TokenWriter.Format.TEXT));
+            assertTrue(e.getMessage().contains("File does not exist"));
+            assertArrayEquals(expected(SOURCE, TokenWriter.Format.TSV), client.lexContent(SOURCE, TokenWriter.Format.TSV));
+        }
+    }
+
+    @Test
+    void testConcurrentClients() throws Exception {
+        Path socket = startServer(4);
+        byte[] expected = expected(SOURCE.repeat(50), TokenWriter.Format.JSONL);
+
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int c = 0; c < 8; c++) {
+                results.add(clients.submit(() -> {
+                    try (LexerClient client = new LexerClient(socket)) {
+                        for (int i = 0; i < 20; i++) {
+                            if (!Arrays.equals(expected,
+                                    client.lexContent(SOURCE.repeat(50), TokenWriter.Format.JSONL))) {
+                                return false;
+                            }
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    @Test
+    void testIdleConnectionsDoNotBlockOtherClients() throws Exception {
+        Path socket = startServer(2);
+        List<LexerClient> idle = new ArrayList<>();
+        try {
+            for (int i = 0; i < 2; i++) {
+                idle.add(new LexerClient(socket));
+            }
+
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                try (LexerClient client = new LexerClient(socket)) {
+                    assertArrayEquals(expected(SOURCE, TokenWriter.Format.TSV), client.lexContent(SOURCE, TokenWriter.Format.TSV));
+                }
+            });
+            assertArrayEquals(expected(SOURCE, TokenWriter.Format.TSV), idle.get(0).lexContent(SOURCE, TokenWriter.Format.TSV));
+        } finally {
+            for (LexerClient client : idle) {
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    void testCloseRemovesTheSocket() throws Exception {
+        Path socket = startServer(1);
+
+        server.close();
+        serving.join();
+
+        assertFalse(Files.exists(socket));
+        assertThrows(IOException.class, () -> new LexerClient(socket));
+    }
+
+    @Test
+    void testFramedStreamRepliesInOrder() throws IOException {
+        ByteArrayOutputStream requests = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(requests);
+        for (String request : new String[]{"CONTENT tsv\n" + SOURCE, "CONTENT bogus\n", "NOPE text",
+                "FILE text Main.java"}) {
+            byte[] bytes = request.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        ByteArrayOutputStream replies = new ByteArrayOutputStream();
+
+        try (LexerServer stdio = new LexerServer(new LexicalAnalyzer(), 1)) {
+            stdio.serve(new ByteArrayInputStream(requests.toByteArray()), replies);
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(replies.toByteArray()));
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        first.writeBytes("OK 12\n".getBytes(StandardCharsets.UTF_8));
+        first.writeBytes(expected(SOURCE, TokenWriter.Format.TSV));
+        assertArrayEquals(first.toByteArray(), readFrame(in));
+        assertEquals("ERROR Error: Unknown format: bogus\n", new String(readFrame(in), StandardCharsets.UTF_8));
+        assertEquals("ERROR Error: Unknown request: NOPE\n", new String(readFrame(in), StandardCharsets.UTF_8));
+        assertEquals("ERROR Error: Path must be absolute: Main.java\n", new String(readFrame(in), StandardCharsets.UTF_8));
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    void testRequestBodyArrivingAfterItsLength() throws Exception {
+        Path socket = startServer(1);
+        byte[] request = ("CONTENT tsv\n" + SOURCE).getBytes(StandardCharsets.UTF_8);
+
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+            out.writeInt(request.length);
+            out.flush();
+            Thread.sleep(50);
+            out.write(request);
+            out.flush();
+
+            byte[] reply = readFrame(new DataInputStream(Channels.newInputStream(channel)));
+            assertTrue(new String(reply, StandardCharsets.UTF_8).startsWith("OK 12\n"));
+        }
+    }
+
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        byte[] frame = new byte[in.readInt()];
+        in.readFully(frame);
+        return frame;
+    }
+}
@@ -0,0 +1,141 @@
+import org.example.KeywordTable;
+import org.example.LexerSession;
+import org.example.LexicalAnalyzer;
+import org.example.SymbolTable;
+import org.example.TokenBuffer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LexerSessionTest {
+    private static final String[] SNIPPETS = {
+        "int x = 0x1F; // done",
+        "String s = \"text\"; char c = '\\n'; @@",
+        "if (a >= 017 && b != 1.5e3f) { return -42L; } /* end */",
+        "",
+        "for (int i = 0; i < n; i++) { sum += values[i]; }",
+    };
+
+    private static final int ROUNDS = 1_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Fails if lexing allocated per call. A run of {@code 2 * ROUNDS} is compared with a run of
+     * {@code ROUNDS}, so bytes the JIT or a safepoint allocate on this thread once show up in
+     * both and cancel out. One 16-byte object per call in the extra rounds would add
+     * {@code 16 * ROUNDS * SNIPPETS.length} bytes; the slack allowed is far below that.
+     */
+    private static void assertNoPerCallAllocation(LexerSession session) {
+        long shorter = allocatedWhileLexing(session, ROUNDS);
+        long longer = allocatedWhileLexing(session, 2 * ROUNDS);
+        long extra = longer - shorter;
+        assertTrue(extra < 256,
+            extra + " more bytes allocated in " + 2 * ROUNDS + " rounds than in " + ROUNDS);
+    }
+
+    /** Bytes allocated by this thread while lexing every snippet {@code rounds} times. */
+    private static long allocatedWhileLexing(LexerSession session, int rounds) {
+        long before = THREADS.getCurrentThreadAllocatedBytes();
+        for (int round = 0; round < rounds; round++) {
+            for (String snippet : SNIPPETS) {
+                session.lex(snippet);
+            }
+        }
+        return THREADS.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = LexicalAnalyzer.Engine.class, names = {"REGEX", "DFA", "FSM"})
+    void testSameTokensAsAnalyzeToBuffer(LexicalAnalyzer.Engine engine) {
+        LexicalAnalyzer lexer = new LexicalAnalyzer(null, engine);
+        LexerSession session = new LexerSession(lexer);
+        Random random = new Random(23);
+
+        // A long input grows the buffer; the shorter ones after it must not see its tokens.
+        List<String> inputs = new ArrayList<>(List.of(String.join("\n", SNIPPETS).repeat(200)));
+        inputs.addAll(List.of(SNIPPETS));
+        for (int i = 0; i < 50; i++) {
+            inputs.add(SNIPPETS[random.nextInt(SNIPPETS.length)].repeat(random.nextInt(5)));
+        }
+        for (String input : inputs) {
+            assertEquals(TestSources.values(lexer.analyzeToBuffer(input)), TestSources.values(session.lex(input)));
+        }
+    }
+
+    @Test
+    void testBufferIsReusedAndReset() {
+        LexerSession session = new LexerSession(new LexicalAnalyzer());
+
+        TokenBuffer first = session.lex("a b c");
+        TokenBuffer second = session.lex("x\ny");
+
+        assertSame(first, second);
+        assertEquals(2, second.size());
+        assertEquals("y", second.text(1));
+        assertEquals(2, second.line(1));
+        session.reset();
+        assertEquals(0, second.size());
+        assertEquals("", second.source().toString());
+    }
+
+    @Test
+    void testKeepsSymbolsAndBracketsOfTheAnalyzer() {
+        SymbolTable symbols = new SymbolTable();
+        LexicalAnalyzer lexer = new LexicalAnalyzer(null, LexicalAnalyzer.Engine.DFA,
+            KeywordTable.java(), symbols);
+        lexer.setBracketMatching(true);
+        LexerSession session = new LexerSession(lexer);
+
+        session.lex("f(((x)");
+        TokenBuffer tokens = session.lex("g(x)");
+
+        assertEquals(symbols.id("x"), tokens.symbol(2));
+        assertEquals(3, tokens.brackets().partner(1));
+        assertTrue(tokens.brackets().isBalanced());
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = LexicalAnalyzer.Engine.class, names = {"REGEX", "DFA", "FSM"})
+    void testWarmSessionDoesNotAllocatePerCall(LexicalAnalyzer.Engine engine) {
+        assertTrue(THREADS.isThreadAllocatedMemorySupported());
+        LexerSession session = new LexerSession(new LexicalAnalyzer(null, engine));
+
+        allocatedWhileLexing(session, 20_000);
+
+        assertNoPerCallAllocation(session);
+    }
+
+    @Test
+    void testWarmSessionWithSymbolsAndBracketsDoesNotAllocatePerCall() {
+        LexicalAnalyzer lexer = new LexicalAnalyzer(null, LexicalAnalyzer.Engine.DFA,
+            KeywordTable.java(), new SymbolTable());
+        lexer.setBracketMatching(true);
+        LexerSession session = new LexerSession(lexer);
+
+        allocatedWhileLexing(session, 20_000);
+
+        assertNoPerCallAllocation(session);
+    }
+
+    @Test
+    void testAnalyzeToBufferAllocatesPerCall() {
+        // The baseline the session improves on, and a check that the counter sees allocation at all.
+        LexicalAnalyzer lexer = new LexicalAnalyzer();
+        long before = THREADS.getCurrentThreadAllocatedBytes();
+        for (String snippet : SNIPPETS) {
+            lexer.analyzeToBuffer(snippet);
+        }
+
+        assertTrue(THREADS.getCurrentThreadAllocatedBytes() - before > 0);
+    }
+}
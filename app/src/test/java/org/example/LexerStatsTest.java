@@ -0,0 +1,170 @@
+import org.example.LexerStats;
+import org.example.LexicalAnalyzer;
+import org.example.MappedFileReader;
+import org.example.TokenType;
+import org.example.TokenWriter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LexerStatsTest {
+    private static final String SOURCE = "int total = count + 42; // sum";
+
+    @ParameterizedTest
+    @EnumSource(value = LexicalAnalyzer.Engine.class, names = {"REGEX", "DFA", "FSM"})
+    void testCountsTokensByTypeAndLength(LexicalAnalyzer.Engine engine) {
+        LexerStats stats = new LexerStats();
+        LexicalAnalyzer lexer = new LexicalAnalyzer(engine);
+        lexer.setStats(stats);
+
+        lexer.analyzeToBuffer(SOURCE);
+
+        assertEquals(8, stats.getTokens());
+        assertEquals(2, stats.getTokens(TokenType.IDENTIFIER));
+        assertEquals(2, stats.getTokens(TokenType.OPERATOR));
+        assertEquals(1, stats.getTokens(TokenType.COMMENT));
+        assertEquals(SOURCE.length(), stats.getChars());
+        long[] histogram = stats.getTokenLengthHistogram();
+        assertEquals(3, histogram[1]);
+        assertEquals(2, histogram[2]);
+        assertEquals(3, histogram[3]);
+        assertEquals(0, histogram[4]);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = LexicalAnalyzer.Engine.class, names = {"REGEX", "DFA", "FSM"})
+    void testWritingTokensRecordsReadsAndTokens(LexicalAnalyzer.Engine engine) throws IOException {
+        LexerStats stats = new LexerStats();
+        LexicalAnalyzer lexer = new LexicalAnalyzer(engine);
+        lexer.setStats(stats);
+
+        try (TokenWriter writer = TokenWriter.toStream(new ByteArrayOutputStream(), TokenWriter.Format.TSV)) {
+            assertEquals(8, lexer.writeTokens(new StringReader(SOURCE), writer));
+        }
+
+        assertEquals(8, stats.getTokens());
+        assertEquals(1, stats.getTokens(TokenType.RESERVED_KEYWORD));
+        assertEquals(SOURCE.length(), stats.getChars());
+        assertTrue(stats.getIoNanos() > 0);
+    }
+
+    @Test
+    void testRecordsNothingWhenDisabled() {
+        LexerStats stats = new LexerStats();
+        LexicalAnalyzer lexer = new LexicalAnalyzer();
+        lexer.setStats(stats);
+        lexer.setStats(null);
+
+        lexer.analyzeToBuffer(SOURCE);
+
+        assertEquals(0, stats.getTokens());
+        assertEquals(0, stats.getScanNanos());
+    }
+
+    @Test
+    void testAnalyzingAFileRecordsIt(@TempDir Path tempDir) throws IOException {
+        Path file = Files.writeString(tempDir.resolve("Sum.java"), SOURCE);
+        LexerStats stats = new LexerStats();
+        LexicalAnalyzer lexer = new LexicalAnalyzer(new MappedFileReader(file));
+        lexer.setStats(stats);
+
+        lexer.analyzeFromFile();
+        lexer.analyzeFromSource();
+
+        assertEquals(2, stats.getFiles());
+        assertEquals(2L * SOURCE.length(), stats.getBytes());
+        assertEquals(16, stats.getTokens());
+        assertTrue(stats.getFileNanos() >= stats.getScanNanos());
+    }
+
+    @Test
+    void testFilesAndReset() {
+        LexerStats stats = new LexerStats();
+        stats.recordFile(100, 3_000_000);
+        stats.recordFile(50, 1_000_000);
+
+        assertEquals(2, stats.getFiles());
+        assertEquals(150, stats.getBytes());
+        assertEquals(3_000_000, stats.getMaxFileNanos());
+        assertTrue(stats.toString().startsWith("Files: 2, bytes: 150"));
+
+        stats.reset();
+        assertEquals(0, stats.getFiles());
+        assertEquals(0, stats.getMaxFileNanos());
+    }
+
+    @Test
+    void testReadableOverJmx() throws Exception {
+        LexerStats stats = new LexerStats();
+        LexicalAnalyzer lexer = new LexicalAnalyzer();
+        lexer.setStats(stats);
+        lexer.analyzeToBuffer(SOURCE);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        ObjectName name = stats.register();
+        try {
+            assertEquals(8L, server.getAttribute(name, "Tokens"));
+            TabularData byType = (TabularData) server.getAttribute(name, "TokensByType");
+            CompositeData identifiers = byType.get(new Object[] {"IDENTIFIER"});
+            assertEquals(2L, identifiers.get("value"));
+            server.invoke(name, "reset", null, null);
+            assertEquals(0L, server.getAttribute(name, "Tokens"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Test
+    void testTokensByTypeListsEveryType() {
+        Map<String, Long> counts = new LexerStats().getTokensByType();
+
+        assertEquals(TokenType.values().length, counts.size());
+        assertEquals(Long.valueOf(0), counts.get("INVALID"));
+    }
+
+    @Test
+    void testServerWithStatsRegistersTheMXBeanWhileServing() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(LexerStats.OBJECT_NAME);
+        boolean[] registered = new boolean[1];
+        InputStream stdin = new InputStream() {
+            @Override
+            public int read() {
+                // Requests are read only once the server is up; ending here stops it.
+                registered[0] = server.isRegistered(name);
+                return -1;
+            }
+        };
+        InputStream in = System.in;
+        PrintStream err = System.err;
+        System.setIn(stdin);
+        System.setErr(new PrintStream(new ByteArrayOutputStream()));
+        try {
+            LexicalAnalyzer.main(new String[]{"--stats", "--serve=-"});
+        } finally {
+            System.setIn(in);
+            System.setErr(err);
+        }
+
+        assertTrue(registered[0]);
+        assertFalse(server.isRegistered(name));
+    }
+}
@@ -0,0 +1,39 @@
+import org.example.LexicalAnalyzer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LexicalAnalyzerEngineTest {
+    private final LexicalAnalyzer regex = new LexicalAnalyzer(LexicalAnalyzer.Engine.REGEX);
+    private final LexicalAnalyzer dfa = new LexicalAnalyzer(LexicalAnalyzer.Engine.DFA);
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "public class Example { long x = 100_100L; float y = 3.14f; int z = 0x1A_FF; int o = 0123; }",
+        "int a = (7) * 8 / 2; // trailing comment",
+        "/* block\r\n comment */ x /* unterminated",
+        "\"unterminated string\n\"ok\" 'a' '\\n' '\\' 'ab'",
+        "0x 0X1F 0x1Fg 0128 0777f 08 1. 1.x 1.e5 1e 1e+5 1.5e 123a",
+        "interface iffy if_ _if =//x <<= && || !=",
+        "@@@ # é á   1f́"
+    })
+    void testEnginesProduceSameTokens(String input) {
+        assertEquals(regex.analyzeFromString(input), dfa.analyzeFromString(input));
+    }
+
+    @Test
+    void testDfaHandlesLongBlockComment() {
+        String comment = "/*" + "x".repeat(200_000) + "*/";
+
+        List<LexicalAnalyzer.Token> tokens = dfa.analyzeFromString(comment + " int");
+
+        assertEquals(2, tokens.size());
+        assertEquals(new LexicalAnalyzer.Token(comment, "COMMENT"), tokens.get(0));
+        assertEquals(new LexicalAnalyzer.Token("int", "RESERVED_KEYWORD"), tokens.get(1));
+    }
+}
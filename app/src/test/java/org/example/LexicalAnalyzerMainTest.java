@@ -22,7 +22,7 @@ public class LexicalAnalyzerMainTest {
         LexicalAnalyzer.main(new String[0]);
 
         String output = out.toString();
-        assertTrue(output.contains("Usage: java LexicalAnalyzer.java <file_path>"));
+        assertTrue(output.contains("Usage: java org.example.LexicalAnalyzer <file_path>"));
     }
 
     @Test
@@ -34,7 +34,7 @@ public class LexicalAnalyzerMainTest {
         LexicalAnalyzer.main(new String[]{"a", "b"});
 
         String output = out.toString();
-        assertTrue(output.contains("Usage: java LexicalAnalyzer.java <file_path>"));
+        assertTrue(output.contains("Usage: java org.example.LexicalAnalyzer <file_path>"));
     }
 
 
@@ -109,4 +109,50 @@ public class LexicalAnalyzerMainTest {
         assertTrue(output.contains("<int, RESERVED_KEYWORD>"));
         assertTrue(output.contains("<10, NUMBER>"));
     }
+
+    @Test
+    void testServeRejectsOutputAndBrackets() {
+        for (String option : new String[]{"--output=tokens.txt", "--brackets"}) {
+            var out = new ByteArrayOutputStream();
+            System.setErr(new PrintStream(out));
+
+            LexicalAnalyzer.main(new String[]{option, "--serve=-"});
+
+            assertTrue(out.toString().contains("Usage: java org.example.LexicalAnalyzer <file_path>"), option);
+        }
+    }
+
+    @Test
+    void testRulesRejectEngineAndKeywords(@TempDir Path tempDir) throws IOException {
+        Path rules = Files.writeString(tempDir.resolve("numbers.rules"), "NUMBER 0 emit \\d+\n");
+        Path keywords = Files.writeString(tempDir.resolve("keywords.txt"), "int\n");
+        Path source = Files.writeString(tempDir.resolve("Test.java"), "1 2");
+        String[][] conflicts = {
+            {"--engine=fsm", "--rules=" + rules},
+            {"--rules=" + rules, "--engine=dfa"},
+            {"--keywords=" + keywords, "--rules=" + rules},
+        };
+        for (String[] options : conflicts) {
+            var out = new ByteArrayOutputStream();
+            System.setErr(new PrintStream(out));
+
+            LexicalAnalyzer.main(new String[]{options[0], options[1], source.toString()});
+
+            String output = out.toString();
+            assertTrue(output.contains("cannot be combined"), output);
+            assertTrue(output.contains("Usage: java org.example.LexicalAnalyzer <file_path>"), output);
+        }
+    }
+
+    @Test
+    void testRulesThatDoNotCompileNameTheirFile(@TempDir Path tempDir) throws IOException {
+        Path rules = Files.writeString(tempDir.resolve("empty.rules"), "NUMBER 0 emit \\d*\n");
+        Path source = Files.writeString(tempDir.resolve("Test.java"), "1 2");
+        var out = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(out));
+
+        LexicalAnalyzer.main(new String[]{"--rules=" + rules, source.toString()});
+
+        assertTrue(out.toString().contains("Error: " + rules + ": Rule matches the empty string: NUMBER"), out.toString());
+    }
 }
@@ -0,0 +1,74 @@
+import org.example.LexicalAnalyzer;
+import org.example.LineIndex;
+import org.example.StreamingLexer;
+import org.example.TokenBuffer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LineIndexTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"\n", "\r", "\r\n", "\u000B", "\f", "\u0085", "\u2028", "\u2029"})
+    void testEveryLineTerminatorStartsOneLine(String terminator) {
+        String text = "ab" + terminator + "cd" + terminator;
+        LineIndex index = new LineIndex(text);
+        int secondLine = 2 + terminator.length();
+
+        assertEquals(3, index.lineCount());
+        assertEquals(1, index.line(1));
+        assertEquals(2, index.line(secondLine));
+        assertEquals(2, index.column(secondLine + 1));
+        assertEquals(3, index.line(text.length()));
+        assertEquals(secondLine, index.lineStart(2));
+    }
+
+    @Test
+    void testRejectsOffsetsOutsideText() {
+        LineIndex index = new LineIndex("abc");
+
+        assertThrows(IndexOutOfBoundsException.class, () -> index.line(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.line(4));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.lineStart(2));
+    }
+
+    @Test
+    void testTokensAfterMultiLineCommentKeepTheirLine() {
+        String source = "int a;\r\n/* one\n two\r three */ b\n  c";
+        TokenBuffer tokens = new LexicalAnalyzer().analyzeToBuffer(source);
+
+        assertEquals("/* one\n two\r three */", tokens.text(3));
+        assertEquals(2, tokens.line(3));
+        assertEquals(4, tokens.endLine(3));
+        assertEquals("b", tokens.text(4));
+        assertEquals(4, tokens.line(4));
+        assertEquals(11, tokens.column(4));
+        assertEquals("c", tokens.text(5));
+        assertEquals(5, tokens.line(5));
+        assertEquals(3, tokens.column(5));
+    }
+
+    @Test
+    void testTokensCarryTheirOffset() {
+        String source = "x = 1;\n  y";
+        List<LexicalAnalyzer.Token> tokens = new LexicalAnalyzer().analyzeFromString(source);
+
+        assertEquals(List.of(0L, 2L, 4L, 5L, 9L), tokens.stream().map(token -> token.offset).toList());
+    }
+
+    @Test
+    void testStreamedTokensCarryAbsoluteOffsets() {
+        String source = "alpha beta gamma delta";
+        StreamingLexer lexer = new StreamingLexer(new StringReader(source), 4);
+
+        List<Long> offsets = lexer.stream().map(token -> token.offset).toList();
+
+        assertEquals(List.of(0L, 6L, 11L, 17L), offsets);
+    }
+}
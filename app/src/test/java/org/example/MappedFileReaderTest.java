@@ -0,0 +1,95 @@
+import org.example.LexicalAnalyzer;
+import org.example.MappedFileReader;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedFileReaderTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testAsciiFileMatchesStringInput() throws IOException {
+        String code = "public class Example { int z = 0x1A_FF; /* comment */ String s = \"text\"; }";
+        Path file = tempDir.resolve("Ascii.java");
+        Files.writeString(file, code);
+
+        List<LexicalAnalyzer.Token> tokens = new LexicalAnalyzer(new MappedFileReader(file)).analyzeFromSource();
+
+        assertEquals(new LexicalAnalyzer().analyzeFromString(code), tokens);
+    }
+
+    @Test
+    void testUtf8FileMatchesStringInput() throws IOException {
+        String code = "String s = \"héllo 世界\"; char c = 'é';";
+        Path file = tempDir.resolve("Utf8.java");
+        Files.writeString(file, code);
+
+        List<LexicalAnalyzer.Token> tokens = new LexicalAnalyzer(new MappedFileReader(file)).analyzeFromSource();
+
+        assertEquals(new LexicalAnalyzer().analyzeFromString(code), tokens);
+    }
+
+    @Test
+    void testInvalidUtf8FallsBackToReplacement() throws IOException {
+        Path file = tempDir.resolve("Latin1.java");
+        Files.write(file, "int x = 1; // café".getBytes(StandardCharsets.ISO_8859_1));
+
+        List<LexicalAnalyzer.Token> tokens = new LexicalAnalyzer(new MappedFileReader(file)).analyzeFromSource();
+
+        assertEquals(new LexicalAnalyzer.Token("// caf�", "COMMENT"), tokens.get(tokens.size() - 1));
+    }
+
+    @Test
+    void testNonAsciiHeaderOverAsciiBody() throws IOException {
+        String code = "// Copyright \u00A9 2026 \u00E9quipe\n" + "int total = count + 0x1F; /* sum */\n".repeat(500);
+        Path file = tempDir.resolve("Header.java");
+        Files.writeString(file, code);
+
+        CharSequence content = new MappedFileReader(file).readSequence();
+        List<LexicalAnalyzer.Token> tokens = new LexicalAnalyzer(new MappedFileReader(file)).analyzeFromSource();
+
+        assertEquals(code.length(), content.length());
+        assertEquals(code, content.toString());
+        assertEquals(new LexicalAnalyzer().analyzeFromString(code), tokens);
+    }
+
+    @Test
+    void testMixedBytesDecodeLikeAString() throws IOException {
+        byte[][] pieces = {
+            "x".getBytes(StandardCharsets.UTF_8), " y = 1;\n".getBytes(StandardCharsets.UTF_8),
+            "abcdefghijklmnop".getBytes(StandardCharsets.UTF_8), "\u00E9".getBytes(StandardCharsets.UTF_8),
+            "\u4E16\u754C".getBytes(StandardCharsets.UTF_8), "\uD83D\uDE00".getBytes(StandardCharsets.UTF_8),
+            {(byte) 0xE9}, {(byte) 0xF0, (byte) 0x9F}, {(byte) 0x80},
+        };
+        Random random = new Random(3);
+        for (int round = 0; round < 200; round++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            for (int i = random.nextInt(40); i > 0; i--) {
+                bytes.writeBytes(pieces[random.nextInt(pieces.length)]);
+            }
+            Path file = Files.write(tempDir.resolve("Mixed" + round + ".java"), bytes.toByteArray());
+            String expected = bytes.toString(StandardCharsets.UTF_8);
+
+            CharSequence content = new MappedFileReader(file).readSequence();
+
+            assertEquals(expected, content.toString());
+            for (int i = expected.length() - 1; i >= 0; i--) {
+                assertEquals(expected.charAt(i), content.charAt(i));
+            }
+            int start = random.nextInt(expected.length() + 1);
+            int end = start + random.nextInt(expected.length() - start + 1);
+            assertEquals(expected.substring(start, end), content.subSequence(start, end).toString());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+import org.example.LexicalAnalyzer;
+import org.example.ParallelLexer;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelLexerTest {
+    private static final String SOURCE = String.join("\n",
+        "public class Example {",
+        "    /* a block comment",
+        "       spanning several lines, with \"quotes\" and 'c' inside",
+        "       and // slashes */",
+        "    String s = \"a string // not a comment\"; char c = '\\n';",
+        "    int z = 0x1A_FF + 0123 - 1.5e10; // line comment /* not a block",
+        "    float f = 3.14f; @@@ invalid",
+        "}");
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 5, 17, 64, 100_000})
+    void testParallelMatchesSequential(int chunkSize) {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            String input = SOURCE.repeat(20);
+
+            var parallel = new ParallelLexer(pool, chunkSize).tokenize(input);
+
+            assertEquals(new LexicalAnalyzer().analyzeFromString(input), parallel.asList());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+import org.example.LexerSession;
+import org.example.LexicalAnalyzer;
+import org.example.RuleLexer;
+import org.example.TokenBuffer;
+import org.example.TokenLimitException;
+import org.example.TokenRules;
+import org.example.TokenType;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Inputs that make a backtracking or rescanning lexer take quadratic time or
+ * deep recursion. Each runs in milliseconds when lexing is linear and would
+ * take hours otherwise, so the timeouts only trip on a regression.
+ */
+public class PathologicalInputTest {
+    private static final Duration LIMIT = Duration.ofSeconds(20);
+    private static final int MEGABYTES = 4 * 1024 * 1024;
+
+    private static TokenBuffer lex(LexicalAnalyzer.Engine engine, String content) {
+        TokenBuffer[] result = new TokenBuffer[1];
+        assertTimeoutPreemptively(LIMIT, () -> result[0] = new LexicalAnalyzer(null, engine).analyzeToBuffer(content));
+        return result[0];
+    }
+
+    private static void assertSingleToken(LexicalAnalyzer.Engine engine, String content, TokenType type) {
+        TokenBuffer tokens = lex(engine, content);
+        assertEquals(1, tokens.size());
+        assertEquals(type, tokens.type(0));
+        assertEquals(content.length(), tokens.length(0));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = LexicalAnalyzer.Engine.class, names = {"DFA", "FSM"})
+    void testManyUnterminatedBlockComments(LexicalAnalyzer.Engine engine) {
+        // Every "/*" would search to the end of the input for its "*/".
+        String content = "/* x ".repeat(MEGABYTES / 5);
+
+        TokenBuffer tokens = lex(engine, content);
+
+        assertEquals(2 * (MEGABYTES / 5), tokens.size());
+        assertEquals(TokenType.OPERATOR, tokens.type(tokens.size() - 2));
+        assertEquals(TokenType.IDENTIFIER, tokens.type(tokens.size() - 1));
+    }
+
+    @Test
+    void testUnterminatedBlockCommentsOnEveryPath() {
+        String content = "/* x ".repeat(MEGABYTES / 5);
+        int expected = 2 * (MEGABYTES / 5);
+        LexicalAnalyzer lexer = new LexicalAnalyzer();
+
+        assertTimeoutPreemptively(LIMIT, () -> {
+            assertEquals(expected, lexer.analyzeInParallel(content).size());
+            assertEquals(expected, new LexerSession(lexer).lex(content).size());
+            try (Stream<LexicalAnalyzer.Token> stream = lexer.streamFromReader(new StringReader(content))) {
+                assertEquals(expected, stream.count());
+            }
+        });
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = LexicalAnalyzer.Engine.class, names = {"DFA", "FSM"})
+    void testSkippingUnterminatedCommentsKeepsTheTokens(LexicalAnalyzer.Engine engine) {
+        // The closed comment after the unterminated ones must still be found, and so must those before it.
+        String content = "/* a */ " + "/* x ".repeat(50) + "*/ y /* z\n/* w */ /*";
+
+        assertEquals(new LexicalAnalyzer(LexicalAnalyzer.Engine.REGEX).analyzeFromString(content),
+            new LexicalAnalyzer(null, engine).analyzeFromString(content));
+        assertEquals(TokenType.COMMENT, new LexicalAnalyzer(null, engine).analyzeToBuffer(content).type(0));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = LexicalAnalyzer.Engine.class, names = {"DFA", "FSM"})
+    void testUnterminatedStringsAndCharLiterals(LexicalAnalyzer.Engine engine) {
+        assertSingleToken(engine, "\"" + "x".repeat(MEGABYTES), TokenType.INVALID);
+        assertSingleToken(engine, "'" + "x".repeat(MEGABYTES), TokenType.INVALID);
+        assertEquals(MEGABYTES / 2, lex(engine, "\"\n".repeat(MEGABYTES / 2)).size());
+        assertEquals(MEGABYTES / 2, lex(engine, "'\n".repeat(MEGABYTES / 2)).size());
+        assertEquals(MEGABYTES / 3, lex(engine, "'\\\n".repeat(MEGABYTES / 3)).size());
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = LexicalAnalyzer.Engine.class, names = {"DFA", "FSM"})
+    void testMultiMegabyteSingleTokens(LexicalAnalyzer.Engine engine) {
+        assertSingleToken(engine, "x".repeat(MEGABYTES), TokenType.IDENTIFIER);
+        assertSingleToken(engine, "1".repeat(MEGABYTES), TokenType.NUMBER);
+        assertSingleToken(engine, "\"" + "s".repeat(MEGABYTES) + "\"", TokenType.STRING);
+        assertSingleToken(engine, "/*" + "*\n".repeat(MEGABYTES / 2) + "*/", TokenType.COMMENT);
+        assertSingleToken(engine, "//" + "/".repeat(MEGABYTES), TokenType.COMMENT);
+        assertSingleToken(engine, "+".repeat(MEGABYTES), TokenType.OPERATOR);
+        assertSingleToken(engine, "#".repeat(MEGABYTES), TokenType.INVALID);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = LexicalAnalyzer.Engine.class, names = {"DFA", "FSM"})
+    void testLongTokensFailWithTheirOffset(LexicalAnalyzer.Engine engine) {
+        LexicalAnalyzer lexer = new LexicalAnalyzer(null, engine);
+        lexer.setMaxTokenLength(1000);
+        String content = "a b\n\"" + "s".repeat(998) + "\" " + "/*" + " ".repeat(MEGABYTES) + "*/";
+
+        TokenLimitException e = assertThrows(TokenLimitException.class, () -> lexer.analyzeToBuffer(content));
+
+        assertEquals(content.indexOf("/*"), e.offset());
+        assertEquals(1000, e.limit());
+        assertEquals(3, lexer.analyzeToBuffer(content.substring(0, content.indexOf("/*"))).size());
+    }
+
+    @Test
+    void testLimitOnEveryPath() {
+        LexicalAnalyzer lexer = new LexicalAnalyzer();
+        lexer.setMaxTokenLength(100);
+        String content = "a ".repeat(100_000) + "x".repeat(101);
+        long offset = content.indexOf('x');
+
+        assertEquals(offset, assertThrows(TokenLimitException.class, () -> lexer.analyzeInParallel(content)).offset());
+        assertEquals(offset, assertThrows(TokenLimitException.class, () -> new LexerSession(lexer).lex(content)).offset());
+        assertEquals(offset, assertThrows(TokenLimitException.class,
+            () -> lexer.relex(new LexicalAnalyzer().analyzeToBuffer(content), 0, 1, "b")).offset());
+        assertEquals(offset, assertThrows(TokenLimitException.class, () -> {
+            try (Stream<LexicalAnalyzer.Token> stream = lexer.streamFromReader(new StringReader(content))) {
+                stream.count();
+            }
+        }).offset());
+        assertEquals(100_001, lexer.analyzeInParallel(content.substring(0, content.length() - 1)).size());
+    }
+
+    @Test
+    void testRulesEngineBoundsItsSearchByTheLimit() {
+        // From every "a" the automaton runs to the end looking for a "b".
+        RuleLexer rules = new TokenRules(List.of(
+            new TokenRules.Rule("IDENTIFIER", "a+b", 0, false),
+            new TokenRules.Rule("WS", "\\s+", 0, true))).compile();
+        LexicalAnalyzer lexer = new LexicalAnalyzer(null, rules);
+        lexer.setMaxTokenLength(1000);
+
+        assertEquals(2, lexer.analyzeToBuffer("aab " + "a".repeat(999) + "b").size());
+        assertTimeoutPreemptively(LIMIT, () -> {
+            TokenLimitException e = assertThrows(TokenLimitException.class,
+                () -> lexer.analyzeToBuffer("ab " + "a".repeat(MEGABYTES)));
+            assertEquals(3, e.offset());
+        });
+        assertThrows(TokenLimitException.class, () -> lexer.analyzeToBuffer("ab " + "#".repeat(1001)));
+    }
+
+    @Test
+    void testRulesEngineOnlyFailsOnTokensPastTheLimit() {
+        // The comment rule is still alive 1000 chars after every "/*", but never accepts.
+        RuleLexer rules = new TokenRules(List.of(
+            new TokenRules.Rule("COMMENT", "/\\*([^*]|\\*+[^*/])*\\*+/", 0, false),
+            new TokenRules.Rule("OPERATOR", "[+\\-*/=<>!&|]+", 0, false),
+            new TokenRules.Rule("IDENTIFIER", "[A-Za-z_]\\w*", 0, false),
+            new TokenRules.Rule("WS", "\\s+", 0, true))).compile();
+        LexicalAnalyzer lexer = new LexicalAnalyzer(null, rules);
+        lexer.setMaxTokenLength(1000);
+        LexicalAnalyzer dfa = new LexicalAnalyzer();
+        dfa.setMaxTokenLength(1000);
+        String content = "/*" + " x".repeat(MEGABYTES / 2);
+
+        TokenBuffer[] tokens = new TokenBuffer[1];
+        assertTimeoutPreemptively(LIMIT, () -> tokens[0] = lexer.analyzeToBuffer(content));
+
+        assertEquals(dfa.analyzeToBuffer(content).asList(), tokens[0].asList());
+        String closed = "/*" + " x".repeat(1000) + "*/";
+        assertEquals(0, assertThrows(TokenLimitException.class, () -> lexer.analyzeToBuffer(closed)).offset());
+        assertEquals(0, assertThrows(TokenLimitException.class, () -> dfa.analyzeToBuffer(closed)).offset());
+    }
+
+    @Test
+    void testRegexEngineTakesNoLimit() {
+        LexicalAnalyzer lexer = new LexicalAnalyzer(LexicalAnalyzer.Engine.REGEX);
+
+        assertThrows(IllegalArgumentException.class, () -> lexer.setMaxTokenLength(1000));
+        assertThrows(IllegalArgumentException.class, () -> new LexicalAnalyzer().setMaxTokenLength(0));
+    }
+}
@@ -0,0 +1,151 @@
+import org.example.LexicalAnalyzer;
+import org.example.RuleLexer;
+import org.example.TokenBuffer;
+import org.example.TokenRules;
+import org.example.TokenType;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RuleLexerTest {
+    private static final String JAVA_RULES = """
+        # name priority emit|skip pattern
+        WS                0 skip \\s+
+        COMMENT           0 emit //[^\\n\\r]*|/\\*([^*]|\\*+[^*/])*\\*+/
+        STRING            0 emit "([^"\\\\\\n]|\\\\.)*"
+        CHAR              0 emit '([^'\\\\\\n]|\\\\.)'
+        HEX_NUMBER        1 emit 0[xX][0-9A-Fa-f_]+[lL]?
+        OCTAL_NUMBER      1 emit 0[0-7_]+
+        FLOAT_NUMBER      0 emit \\d[\\d_]*(\\.[\\d_]*)?([eE][+-]?\\d+)?[fF]
+        NUMBER            0 emit \\d[\\d_]*(\\.[\\d_]*)?([eE][+-]?\\d+)?[lL]?
+        RESERVED_KEYWORD  1 emit int|return|if|else|while
+        IDENTIFIER        0 emit [A-Za-z_]\\w*
+        OPERATOR          0 emit [+\\-*/=<>!&|]+
+        DELIMITER         0 emit [,;(){}\\[\\]]
+        """;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testJavaLikeRulesMatchTheBuiltInLexer() throws IOException {
+        RuleLexer rules = TokenRules.read(write("java.rules", JAVA_RULES)).compile();
+        String source = "int x = 0x1F; // note\nwhile (x >= 017) { x = x - 1.5e3f * 'c'; }\n"
+            + "return \"a b\" + iffy /* block\n */ ;";
+
+        List<LexicalAnalyzer.Token> expected = new LexicalAnalyzer().analyzeFromString(source);
+
+        assertEquals(expected, new LexicalAnalyzer(null, rules).analyzeFromString(source));
+    }
+
+    @Test
+    void testDialectRulesCanDifferFromTheBuiltInLexer() throws IOException {
+        RuleLexer rules = TokenRules.read(write("java.rules", JAVA_RULES)).compile();
+
+        List<LexicalAnalyzer.Token> tokens = new LexicalAnalyzer(null, rules).analyzeFromString("\"a \\\" b\"");
+
+        assertEquals(List.of(new LexicalAnalyzer.Token("\"a \\\" b\"", "STRING")), tokens);
+    }
+
+    @Test
+    void testLongestMatchThenPriorityThenOrder() {
+        RuleLexer rules = new TokenRules(List.of(
+            new TokenRules.Rule("IDENTIFIER", "[a-z]+", 0, false),
+            new TokenRules.Rule("RESERVED_KEYWORD", "if|iff", 1, false),
+            new TokenRules.Rule("OPERATOR", "[a-z]+", 0, false),
+            new TokenRules.Rule("WS", " ", 0, true))).compile();
+
+        assertEquals(List.of(
+            new LexicalAnalyzer.Token("if", "RESERVED_KEYWORD"),
+            new LexicalAnalyzer.Token("iffy", "IDENTIFIER"),
+            new LexicalAnalyzer.Token("iff", "RESERVED_KEYWORD")),
+            new LexicalAnalyzer(null, rules).analyzeFromString("if iffy iff"));
+    }
+
+    @Test
+    void testUnmatchedCharactersBecomeInvalidRuns() {
+        RuleLexer rules = new TokenRules(List.of(new TokenRules.Rule("NUMBER", "\\d+", 0, false))).compile();
+        TokenBuffer tokens = new TokenBuffer("12ab 3#");
+
+        rules.tokenize(tokens.source(), tokens::add);
+
+        assertEquals(4, tokens.size());
+        assertEquals(TokenType.INVALID, tokens.type(1));
+        assertEquals("ab ", tokens.text(1));
+        assertEquals("3", tokens.text(2));
+        assertEquals("#", tokens.text(3));
+    }
+
+    @Test
+    void testAutomatonIsMinimized() {
+        RuleLexer rules = new TokenRules(List.of(new TokenRules.Rule("IDENTIFIER", "(a|b)*abb", 0, false))).compile();
+
+        assertEquals(4, rules.stateCount());
+        assertEquals(4, rules.classCount());
+    }
+
+    @Test
+    void testRepetitionCounts() {
+        RuleLexer rules = new TokenRules(List.of(
+            new TokenRules.Rule("NUMBER", "\\d{2,3}", 0, false),
+            new TokenRules.Rule("HEX_NUMBER", "\\x41{2}", 0, false))).compile();
+        TokenBuffer tokens = new TokenBuffer("12345AAA");
+
+        rules.tokenize(tokens.source(), tokens::add);
+
+        assertEquals(List.of("123", "45", "AA", "A"), tokens.asList().stream().map(LexicalAnalyzer.Token::value).toList());
+        assertEquals(TokenType.INVALID, tokens.type(3));
+    }
+
+    @Test
+    void testTablesAreReloadedWhileTheRulesAreUnchanged() throws IOException {
+        Path spec = write("java.rules", JAVA_RULES);
+        Path tables = tempDir.resolve("java.rules.dfa");
+        TokenRules rules = TokenRules.read(spec);
+
+        RuleLexer compiled = RuleLexer.load(rules, tables);
+        assertTrue(Files.exists(tables));
+        RuleLexer reloaded = RuleLexer.read(tables);
+        assertEquals(compiled.fingerprint(), reloaded.fingerprint());
+        assertEquals(compiled.stateCount(), reloaded.stateCount());
+
+        TokenRules changed = TokenRules.read(write("java.rules", JAVA_RULES.replace("while", "for")));
+        RuleLexer recompiled = RuleLexer.load(changed, tables);
+        assertEquals(changed.fingerprint(), recompiled.fingerprint());
+        assertEquals(changed.fingerprint(), RuleLexer.read(tables).fingerprint());
+    }
+
+    @Test
+    void testDamagedTablesAreRejected() throws IOException {
+        Path tables = Files.write(tempDir.resolve("bad.dfa"), new byte[] {'L', 'X', 'R', 'D', 0, 0, 0, 1, 7});
+
+        IOException error = assertThrows(IOException.class, () -> RuleLexer.read(tables));
+        assertEquals("Error: Damaged rule table file: " + tables, error.getMessage());
+    }
+
+    @Test
+    void testRejectsBadSpecs() throws IOException {
+        Path unknown = write("unknown.rules", "WORD 0 emit [a-z]+\n");
+        Path malformed = write("malformed.rules", "NUMBER zero emit \\d+\n");
+
+        assertEquals("Error: " + unknown + ": Rule name is not a token type: WORD",
+            assertThrows(IllegalArgumentException.class, () -> TokenRules.read(unknown)).getMessage());
+        assertEquals("Error: " + malformed + ":1: Bad priority: zero",
+            assertThrows(IllegalArgumentException.class, () -> TokenRules.read(malformed)).getMessage());
+        assertThrows(IllegalArgumentException.class,
+            () -> new TokenRules(List.of(new TokenRules.Rule("NUMBER", "\\d*", 0, false))).compile());
+        assertThrows(IllegalArgumentException.class,
+            () -> new TokenRules(List.of(new TokenRules.Rule("NUMBER", "(\\d", 0, false))).compile());
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(tempDir.resolve(name), content);
+    }
+}
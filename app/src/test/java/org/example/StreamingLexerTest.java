@@ -0,0 +1,49 @@
+import org.example.LexicalAnalyzer;
+import org.example.StreamingLexer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamingLexerTest {
+    private static final String SOURCE = String.join("\n",
+        "public class Example {",
+        "    /* a block comment that is longer than the buffer */",
+        "    long x = 100_100L; float y = 3.14f; // line comment",
+        "    String s = \"a string literal\"; char c = '\\n';",
+        "    int z = 0x1A_FF + 0123 - 1.5e10;",
+        "}");
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 3, 7, 16, 4096})
+    void testTokensAcrossBufferBoundaries(int bufferSize) {
+        List<LexicalAnalyzer.Token> tokens = new ArrayList<>();
+        new StreamingLexer(new StringReader(SOURCE), bufferSize).forEachRemaining(tokens::add);
+
+        assertEquals(new LexicalAnalyzer().analyzeFromString(SOURCE), tokens);
+    }
+
+    @Test
+    void testUnterminatedCommentAtEndOfInput() {
+        String input = "x /* never closed " + "y ".repeat(1000);
+
+        List<LexicalAnalyzer.Token> tokens = new StreamingLexer(new StringReader(input), 8).stream().toList();
+
+        assertEquals(new LexicalAnalyzer().analyzeFromString(input), tokens);
+    }
+
+    @Test
+    void testStreamFromReaderWithRegexEngine() throws Exception {
+        LexicalAnalyzer lexer = new LexicalAnalyzer(LexicalAnalyzer.Engine.REGEX);
+
+        List<LexicalAnalyzer.Token> tokens = lexer.streamFromReader(new StringReader(SOURCE)).toList();
+
+        assertEquals(lexer.analyzeFromString(SOURCE), tokens);
+    }
+}
@@ -0,0 +1,114 @@
+import org.example.KeywordTable;
+import org.example.LexicalAnalyzer;
+import org.example.StreamingLexer;
+import org.example.SymbolTable;
+import org.example.TokenBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SymbolTableTest {
+
+    @Test
+    void testIdsAreDenseInFirstSeenOrder() {
+        SymbolTable symbols = new SymbolTable();
+
+        assertEquals(0, symbols.intern("alpha"));
+        assertEquals(1, symbols.intern("beta"));
+        assertEquals(0, symbols.intern("alpha"));
+        assertEquals(2, symbols.size());
+        assertEquals("beta", symbols.name(1));
+        assertEquals(1, symbols.id("beta"));
+        assertEquals(-1, symbols.id("gamma"));
+        assertThrows(IndexOutOfBoundsException.class, () -> symbols.name(2));
+    }
+
+    @Test
+    void testInternsRangeWithoutCopyingTheSource() {
+        SymbolTable symbols = new SymbolTable();
+        StringBuilder source = new StringBuilder("x = count + count;");
+
+        int first = symbols.intern(source, 4, 9);
+        int second = symbols.intern(source, 12, 17);
+
+        assertEquals(first, second);
+        assertEquals("count", symbols.name(first));
+    }
+
+    @Test
+    void testKeepsIdsWhileGrowing() {
+        SymbolTable symbols = new SymbolTable();
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, symbols.intern("name" + i));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, symbols.id("name" + i));
+            assertEquals("name" + i, symbols.name(i));
+        }
+    }
+
+    @Test
+    void testConcurrentInterningAgreesOnIds() throws Exception {
+        SymbolTable symbols = new SymbolTable();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int offset = t;
+                results.add(pool.submit(() -> {
+                    int[] ids = new int[5_000];
+                    for (int i = 0; i < ids.length; i++) {
+                        int n = (i + offset * 617) % ids.length;
+                        ids[n] = symbols.intern("v" + n);
+                    }
+                    return ids;
+                }));
+            }
+            int[] expected = results.get(0).get();
+            for (Future<int[]> result : results) {
+                assertArrayEquals(expected, result.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(5_000, symbols.size());
+        for (int n = 0; n < 5_000; n++) {
+            assertEquals("v" + n, symbols.name(symbols.id("v" + n)));
+        }
+    }
+
+    @Test
+    void testIdentifierTokensShareTheInternedName() {
+        SymbolTable symbols = new SymbolTable();
+        LexicalAnalyzer lexer = new LexicalAnalyzer(null, LexicalAnalyzer.Engine.DFA, KeywordTable.java(), symbols);
+
+        TokenBuffer first = lexer.analyzeToBuffer("int total = total + 1;");
+        TokenBuffer second = lexer.analyzeToBuffer("total++;");
+
+        assertEquals(-1, first.symbol(0));
+        assertEquals(0, first.symbol(1));
+        assertEquals(0, first.symbol(3));
+        assertEquals(0, second.symbol(0));
+        assertSame(first.token(1).value(), second.token(0).value());
+        assertEquals(0, second.token(0).symbol);
+    }
+
+    @Test
+    void testStreamedIdentifiersAreInterned() {
+        SymbolTable symbols = new SymbolTable();
+        StreamingLexer lexer = new StreamingLexer(new StringReader("a b a"), 2);
+        lexer.internIdentifiers(symbols);
+
+        List<Integer> ids = lexer.stream().map(token -> token.symbol).toList();
+
+        assertEquals(List.of(0, 1, 0), ids);
+    }
+}
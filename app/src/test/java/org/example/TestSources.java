@@ -0,0 +1,30 @@
+import org.example.TokenBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Inputs and token listings shared by the lexer tests. */
+public final class TestSources {
+    private TestSources() {
+    }
+
+    /** Joins {@code count} pieces picked at random from {@code pieces}, the same for the same seed. */
+    public static String randomSource(long seed, int count, String... pieces) {
+        Random random = new Random(seed);
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            source.append(pieces[random.nextInt(pieces.length)]);
+        }
+        return source.toString();
+    }
+
+    /** Each token as its type, start and text, so token lists compare and print readably. */
+    public static List<String> values(TokenBuffer tokens) {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            values.add(tokens.type(i) + " " + tokens.start(i) + " " + tokens.text(i));
+        }
+        return values;
+    }
+}
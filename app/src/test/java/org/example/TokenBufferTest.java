@@ -0,0 +1,89 @@
+import org.example.LexicalAnalyzer;
+import org.example.TokenBuffer;
+import org.example.TokenType;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBufferTest {
+    private static final String SOURCE = "int x = 0x1F; // done";
+
+    @Test
+    void testRandomAccessToColumns() {
+        TokenBuffer tokens = new LexicalAnalyzer().analyzeToBuffer(SOURCE);
+
+        assertEquals(6, tokens.size());
+        assertEquals(TokenType.RESERVED_KEYWORD, tokens.type(0));
+        assertEquals(TokenType.HEX_NUMBER, tokens.type(3));
+        assertEquals(8, tokens.start(3));
+        assertEquals(4, tokens.length(3));
+        assertEquals(12, tokens.end(3));
+        assertEquals("0x1F", tokens.text(3));
+        assertEquals(new LexicalAnalyzer.Token("// done", "COMMENT"), tokens.token(5));
+        assertThrows(IndexOutOfBoundsException.class, () -> tokens.type(6));
+    }
+
+    @Test
+    void testIterationMatchesListAdapter() {
+        TokenBuffer tokens = new LexicalAnalyzer().analyzeToBuffer(SOURCE);
+
+        List<LexicalAnalyzer.Token> iterated = new ArrayList<>();
+        tokens.forEach(iterated::add);
+
+        assertEquals(new LexicalAnalyzer().analyzeFromString(SOURCE), iterated);
+    }
+
+    @Test
+    void testBothEnginesFillTheSameColumns() {
+        TokenBuffer dfa = new LexicalAnalyzer(LexicalAnalyzer.Engine.DFA).analyzeToBuffer(SOURCE);
+        TokenBuffer regex = new LexicalAnalyzer(LexicalAnalyzer.Engine.REGEX).analyzeToBuffer(SOURCE);
+
+        assertEquals(regex.size(), dfa.size());
+        for (int i = 0; i < dfa.size(); i++) {
+            assertEquals(regex.type(i), dfa.type(i));
+            assertEquals(regex.start(i), dfa.start(i));
+            assertEquals(regex.length(i), dfa.length(i));
+        }
+    }
+
+    @Test
+    void testBufferGrowsPastInitialCapacity() {
+        TokenBuffer tokens = new TokenBuffer("; ".repeat(100), 1);
+        for (int i = 0; i < 100; i++) {
+            tokens.add(TokenType.DELIMITER, 2 * i, 2 * i + 1);
+        }
+
+        assertEquals(100, tokens.size());
+        assertEquals(";", tokens.text(99));
+    }
+
+    @Test
+    void testTokenTextIsAViewOfTheSource() {
+        StringBuilder source = new StringBuilder("count = 42;");
+        LexicalAnalyzer.Token token = new LexicalAnalyzer().analyzeToBuffer(source).token(0);
+
+        CharSequence text = token.text();
+        assertEquals("count", text.toString());
+        source.setCharAt(0, 'm');
+        assertEquals('m', text.charAt(0));
+
+        String value = token.value();
+        assertEquals("mount", value);
+        assertSame(value, token.value());
+    }
+
+    @Test
+    void testLazyTokensEqualCopiedTokens() {
+        LexicalAnalyzer.Token lazy = new LexicalAnalyzer.Token(SOURCE, 8, 12, "HEX_NUMBER", 8, -1);
+        LexicalAnalyzer.Token copied = new LexicalAnalyzer.Token("0x1F", "HEX_NUMBER");
+
+        assertEquals(copied, lazy);
+        assertEquals(copied.hashCode(), lazy.hashCode());
+        assertEquals("<0x1F, HEX_NUMBER>", lazy.toString());
+        assertNotEquals(new LexicalAnalyzer.Token("0x1", "HEX_NUMBER"), lazy);
+    }
+}
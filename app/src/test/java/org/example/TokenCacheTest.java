@@ -0,0 +1,125 @@
+import org.example.KeywordTable;
+import org.example.LexicalAnalyzer;
+import org.example.TokenBuffer;
+import org.example.TokenCache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenCacheTest {
+    private static final String SOURCE = "int x = 0x1F; // done\nString s = \"é\";";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSecondLookupIsServedFromDisk() throws IOException {
+        Path file = write("A.java", SOURCE);
+        LexicalAnalyzer lexer = new LexicalAnalyzer();
+        List<LexicalAnalyzer.Token> expected = lexer.analyzeFromString(SOURCE);
+
+        TokenBuffer first = new TokenCache(tempDir.resolve("cache")).analyze(file, lexer);
+        TokenCache reopened = new TokenCache(tempDir.resolve("cache"));
+        TokenBuffer second = reopened.analyze(file, lexer);
+
+        assertEquals(expected, first.asList());
+        assertEquals(expected, second.asList());
+        assertEquals(1, reopened.hits());
+        assertEquals(0, reopened.misses());
+        assertEquals(second.start(3), lexer.analyzeToBuffer(SOURCE).start(3));
+    }
+
+    @Test
+    void testChangedContentOrKeywordsMiss() throws IOException {
+        Path file = write("A.java", SOURCE);
+        TokenCache cache = new TokenCache(tempDir.resolve("cache"));
+
+        cache.analyze(file, new LexicalAnalyzer());
+        cache.analyze(file, new LexicalAnalyzer(null, LexicalAnalyzer.Engine.DFA, KeywordTable.of(List.of("x"))));
+        write("A.java", SOURCE + " ");
+        cache.analyze(file, new LexicalAnalyzer());
+
+        assertEquals(0, cache.hits());
+        assertEquals(3, cache.misses());
+    }
+
+    @Test
+    void testDamagedEntryIsLexedAgain() throws IOException {
+        Path file = write("A.java", SOURCE);
+        Path directory = tempDir.resolve("cache");
+        new TokenCache(directory).analyze(file, new LexicalAnalyzer());
+        for (Path entry : entries(directory)) {
+            Files.write(entry, new byte[] {'L', 'X', 'C', 1, 0});
+        }
+
+        TokenCache cache = new TokenCache(directory);
+        TokenBuffer tokens = cache.analyze(file, new LexicalAnalyzer());
+
+        assertEquals(new LexicalAnalyzer().analyzeFromString(SOURCE), tokens.asList());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedEntry() throws IOException {
+        Path a = write("A.java", "a1");
+        Path b = write("B.java", "b1");
+        Path c = write("C.java", "c1");
+        Path directory = tempDir.resolve("cache");
+        LexicalAnalyzer lexer = new LexicalAnalyzer();
+        new TokenCache(directory).analyze(a, lexer);
+        long entrySize = new TokenCache(directory).size();
+
+        // Room for two entries after evicting down to nine tenths of the cap, but not for three.
+        TokenCache cache = new TokenCache(directory, 3 * entrySize - 1);
+        cache.analyze(b, lexer);
+        for (Path entry : entries(directory)) {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        }
+        cache.analyze(a, lexer);
+        cache.analyze(c, lexer);
+
+        assertEquals(2, entries(directory).size());
+        assertEquals(2 * entrySize, cache.size());
+        cache.analyze(a, lexer);
+        cache.analyze(b, lexer);
+        assertEquals(2, cache.hits());
+        assertEquals(3, cache.misses());
+    }
+
+    @Test
+    void testEvictsBelowTheCapSoLaterStoresFit() throws IOException {
+        Path directory = tempDir.resolve("cache");
+        LexicalAnalyzer lexer = new LexicalAnalyzer();
+        new TokenCache(directory).analyze(write("F0.java", "f0"), lexer);
+        long entrySize = new TokenCache(directory).size();
+        TokenCache cache = new TokenCache(directory, 10 * entrySize);
+
+        for (int i = 1; i <= 10; i++) {
+            cache.analyze(write("F" + i + ".java", "f" + i), lexer);
+        }
+        assertEquals(9, entries(directory).size());
+
+        cache.analyze(write("G.java", "g1"), lexer);
+        assertEquals(10, entries(directory).size());
+        assertEquals(10 * entrySize, cache.size());
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(tempDir.resolve(name), content);
+    }
+
+    private static List<Path> entries(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+import org.example.LexicalAnalyzer;
+import org.example.TokenBuffer;
+import org.example.TokenFileReader;
+import org.example.TokenFileWriter;
+import org.example.TokenType;
+import org.example.TokenWriter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenFileTest {
+    private static final String SOURCE = "int x = 0x1F; // é\nString s = \"😀\"; x = x + 1;";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRoundTripsTokensWithValues() throws IOException {
+        TokenBuffer expected = new LexicalAnalyzer().analyzeToBuffer(SOURCE);
+        Path file = tempDir.resolve("tokens.lxtf");
+        try (TokenFileWriter writer = TokenFileWriter.open(file, true)) {
+            new LexicalAnalyzer().analyze(SOURCE, writer.sinkFor(SOURCE));
+        }
+
+        try (TokenFileReader reader = TokenFileReader.open(file)) {
+            assertTrue(reader.hasValues());
+            assertEquals(expected.size(), reader.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.type(i), reader.type(i));
+                assertEquals(expected.start(i), reader.start(i));
+                assertEquals(expected.end(i), reader.end(i));
+                assertEquals(expected.token(i), reader.token(i));
+            }
+        }
+    }
+
+    @Test
+    void testRandomAccessAcrossBlocks() throws IOException {
+        String source = "alpha beta; ".repeat(500);
+        TokenBuffer expected = new LexicalAnalyzer().analyzeToBuffer(source);
+        Path file = tempDir.resolve("tokens.lxtf");
+        try (TokenFileWriter writer = TokenFileWriter.open(file, false)) {
+            writer.write(expected);
+        }
+
+        try (TokenFileReader reader = TokenFileReader.open(file)) {
+            assertFalse(reader.hasValues());
+            assertThrows(IllegalStateException.class, () -> reader.text(0));
+            for (int i : new int[] {1499, 0, 64, 63, 700, 701, 65, 1000}) {
+                assertEquals(expected.type(i), reader.type(i));
+                assertEquals(expected.start(i), reader.start(i));
+                assertEquals(expected.length(i), reader.length(i));
+            }
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.type(1500));
+
+            TokenBuffer read = new TokenBuffer(source);
+            reader.forEach(read::add);
+            assertEquals(expected.asList(), read.asList());
+        }
+    }
+
+    @Test
+    void testRepeatedValuesShareOneString() throws IOException {
+        Path small = tempDir.resolve("small.lxtf");
+        Path large = tempDir.resolve("large.lxtf");
+        String once = "someLongIdentifierName ";
+        write(small, once);
+        write(large, once.repeat(100));
+
+        long perToken = (Files.size(large) - Files.size(small)) / 99;
+
+        assertTrue(perToken <= 4, "bytes per repeated token: " + perToken);
+    }
+
+    @Test
+    void testEmptyFile() throws IOException {
+        Path file = tempDir.resolve("empty.lxtf");
+        write(file, "");
+
+        try (TokenFileReader reader = TokenFileReader.open(file)) {
+            assertEquals(0, reader.size());
+            List<TokenType> types = new ArrayList<>();
+            reader.forEach((type, start, end) -> types.add(type));
+            assertTrue(types.isEmpty());
+        }
+    }
+
+    @Test
+    void testRejectsOtherFiles() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("tokens.txt"), "<int, RESERVED_KEYWORD>\n");
+
+        IOException error = assertThrows(IOException.class, () -> TokenFileReader.open(file));
+        assertEquals("Error: Not a token file", error.getMessage());
+    }
+
+    private static void write(Path file, String source) throws IOException {
+        try (TokenFileWriter writer = TokenFileWriter.open(file, true)) {
+            writer.write(new LexicalAnalyzer().analyzeToBuffer(source));
+        }
+    }
+
+    @Test
+    void testBinaryOutputUsesTheTokenFileRecords() throws IOException {
+        TokenBuffer tokens = new LexicalAnalyzer().analyzeToBuffer("alpha  beta");
+        Path file = tempDir.resolve("tokens.lxtf");
+        try (TokenFileWriter writer = TokenFileWriter.open(file, false)) {
+            writer.write(tokens);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TokenWriter writer = TokenWriter.toStream(out, TokenWriter.Format.BINARY)) {
+            writer.write(tokens);
+        }
+
+        // Each record is a kind byte, the gap and the length; BINARY follows it with the UTF-8 length and text.
+        byte[] records = Files.readAllBytes(file);
+        byte[] binary = out.toByteArray();
+        assertArrayEquals(Arrays.copyOfRange(records, 6, 9), Arrays.copyOfRange(binary, 4, 7));
+        assertArrayEquals(Arrays.copyOfRange(records, 9, 12), Arrays.copyOfRange(binary, 13, 16));
+        assertArrayEquals(new byte[] {(byte) TokenType.IDENTIFIER.ordinal(), 2, 4}, Arrays.copyOfRange(binary, 13, 16));
+    }
+}
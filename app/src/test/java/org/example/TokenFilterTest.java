@@ -0,0 +1,170 @@
+import org.example.KeywordTable;
+import org.example.LexerSession;
+import org.example.LexicalAnalyzer;
+import org.example.SymbolTable;
+import org.example.TokenBuffer;
+import org.example.TokenLimitException;
+import org.example.TokenType;
+import org.example.TokenWriter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenFilterTest {
+    private static final String[] PARTS = {
+        "int", "x", " ", "\n", "=", "0x1F", "017", "1.5e3f", "42", ";", "(", ")", "{", "}",
+        "\"text\"", "'c'", "// line\n", "/* block\n */", "/*", "*/", "return", "@@", "\"", "'",
+    };
+
+    private static final List<EnumSet<TokenType>> FILTERS = List.of(
+        EnumSet.complementOf(EnumSet.of(TokenType.COMMENT)),
+        EnumSet.of(TokenType.IDENTIFIER, TokenType.RESERVED_KEYWORD),
+        EnumSet.of(TokenType.RESERVED_KEYWORD),
+        EnumSet.of(TokenType.IDENTIFIER),
+        EnumSet.of(TokenType.COMMENT, TokenType.INVALID),
+        EnumSet.of(TokenType.DELIMITER),
+        EnumSet.noneOf(TokenType.class));
+
+    private static String randomSource(long seed, int parts) {
+        return TestSources.randomSource(seed, parts, PARTS);
+    }
+
+    /** The tokens of the unfiltered {@code tokens} that a filter on {@code kinds} keeps. */
+    private static List<String> selected(TokenBuffer tokens, EnumSet<TokenType> kinds) {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (kinds.contains(tokens.type(i))) {
+                values.add(tokens.type(i) + " " + tokens.start(i) + " " + tokens.text(i));
+            }
+        }
+        return values;
+    }
+
+    private static LexicalAnalyzer filtered(LexicalAnalyzer.Engine engine, EnumSet<TokenType> kinds) {
+        LexicalAnalyzer lexer = new LexicalAnalyzer(null, engine);
+        lexer.setTokenFilter(kinds);
+        return lexer;
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = LexicalAnalyzer.Engine.class, names = {"REGEX", "DFA", "FSM"})
+    void testFilteredTokensAreTheSelectedUnfilteredOnes(LexicalAnalyzer.Engine engine) {
+        String content = randomSource(25, 20_000);
+        TokenBuffer all = new LexicalAnalyzer(LexicalAnalyzer.Engine.REGEX).analyzeToBuffer(content);
+
+        for (EnumSet<TokenType> kinds : FILTERS) {
+            LexicalAnalyzer lexer = filtered(engine, kinds);
+            List<String> expected = selected(all, kinds);
+
+            assertEquals(expected, TestSources.values(lexer.analyzeToBuffer(content)));
+            assertEquals(expected, TestSources.values(new LexerSession(lexer).lex(content)));
+            List<String> pushed = new ArrayList<>();
+            lexer.analyze(content, (type, start, end) ->
+                pushed.add(type + " " + start + " " + content.substring(start, end)));
+            assertEquals(expected, pushed);
+        }
+    }
+
+    @Test
+    void testParallelAndStreamingPathsFilterToo() throws IOException {
+        // Large enough for several chunks, with block comments across the chunk boundaries.
+        String content = randomSource(26, 400_000);
+        TokenBuffer all = new LexicalAnalyzer().analyzeToBuffer(content);
+
+        for (EnumSet<TokenType> kinds : FILTERS) {
+            LexicalAnalyzer lexer = filtered(LexicalAnalyzer.Engine.DFA, kinds);
+            List<String> expected = selected(all, kinds);
+
+            assertEquals(expected, TestSources.values(lexer.analyzeInParallel(content)));
+            try (Stream<LexicalAnalyzer.Token> stream = lexer.streamFromReader(new StringReader(content))) {
+                assertEquals(expected.size(), stream.count());
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (TokenWriter writer = TokenWriter.toStream(out, TokenWriter.Format.TSV)) {
+                assertEquals(expected.size(), lexer.writeTokens(new StringReader(content), writer));
+            }
+        }
+    }
+
+    @Test
+    void testFilterCanBeReadAndCleared() {
+        LexicalAnalyzer lexer = new LexicalAnalyzer();
+        assertEquals(EnumSet.allOf(TokenType.class), lexer.tokenFilter());
+
+        lexer.setTokenFilter(EnumSet.of(TokenType.IDENTIFIER));
+        assertEquals(EnumSet.of(TokenType.IDENTIFIER), lexer.tokenFilter());
+        assertEquals(List.of(new LexicalAnalyzer.Token("x", "IDENTIFIER")), lexer.analyzeFromString("int x; // x"));
+
+        lexer.setTokenFilter(null);
+        assertEquals(4, lexer.analyzeFromString("int x; // x").size());
+    }
+
+    @Test
+    void testSkippedIdentifiersAreNotInterned() {
+        SymbolTable symbols = new SymbolTable();
+        LexicalAnalyzer lexer = new LexicalAnalyzer(null, LexicalAnalyzer.Engine.DFA, KeywordTable.java(), symbols);
+        lexer.setTokenFilter(EnumSet.of(TokenType.COMMENT));
+
+        TokenBuffer tokens = lexer.analyzeToBuffer("int alpha = beta; // gamma");
+
+        assertEquals(1, tokens.size());
+        assertEquals(0, symbols.size());
+    }
+
+    @Test
+    void testSkippedTokensStillCountAgainstTheLimit() {
+        LexicalAnalyzer lexer = new LexicalAnalyzer();
+        lexer.setMaxTokenLength(100);
+        lexer.setTokenFilter(EnumSet.of(TokenType.IDENTIFIER));
+        String content = "a ".repeat(200_000) + "/*" + " ".repeat(200) + "*/";
+        long offset = content.indexOf("/*");
+
+        assertEquals(offset, assertThrows(TokenLimitException.class, () -> lexer.analyzeToBuffer(content)).offset());
+        assertEquals(offset, assertThrows(TokenLimitException.class, () -> lexer.analyzeInParallel(content)).offset());
+    }
+
+    @Test
+    void testRelexOfAFilteredBufferLexesTheEditedSource() {
+        LexicalAnalyzer lexer = filtered(LexicalAnalyzer.Engine.DFA, EnumSet.of(TokenType.IDENTIFIER));
+        TokenBuffer previous = lexer.analyzeToBuffer("a = b; // c");
+
+        TokenBuffer edited = lexer.relex(previous, 4, 1, "d + e");
+
+        assertEquals(List.of("IDENTIFIER 0 a", "IDENTIFIER 4 d", "IDENTIFIER 8 e"), TestSources.values(edited));
+    }
+
+    @Test
+    void testMainOutputsOnlySelectedKinds(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("Main.java");
+        Files.writeString(file, "class Main { int x = 1; /* note */ }\n");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream previous = System.out;
+        System.setOut(new PrintStream(out, true, StandardCharsets.UTF_8));
+        try {
+            LexicalAnalyzer.main(new String[]{"--only=identifier,reserved_keyword", "--skip=RESERVED_KEYWORD", "--format=tsv",
+                file.toString()});
+        } finally {
+            System.setOut(previous);
+        }
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(2, lines.size());
+        assertTrue(lines.stream().allMatch(line -> line.contains("IDENTIFIER")));
+    }
+}
@@ -0,0 +1,104 @@
+import org.example.LexicalAnalyzer;
+import org.example.StreamingLexer;
+import org.example.TokenBuffer;
+import org.example.TokenType;
+import org.example.TokenWriter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenWriterTest {
+    private static final String SOURCE = "x = \"a\\tb\"; /* é\n😀 */";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testTextMatchesTokenToString() throws IOException {
+        LexicalAnalyzer lexer = new LexicalAnalyzer();
+        String expected = lexer.analyzeFromString(SOURCE).stream()
+            .map(token -> token + System.lineSeparator())
+            .collect(Collectors.joining());
+
+        assertEquals(expected, write(TokenWriter.Format.TEXT, lexer.analyzeToBuffer(SOURCE)));
+    }
+
+    @Test
+    void testTsvEscapesControlCharacters() throws IOException {
+        TokenBuffer tokens = new TokenBuffer("a\\\tb\n\u0001");
+        tokens.add(TokenType.INVALID, 0, 6);
+
+        assertEquals("INVALID\t0\t6\ta\\\\\\tb\\n\\u0001\n", write(TokenWriter.Format.TSV, tokens));
+    }
+
+    @Test
+    void testJsonLinesEscapesQuotesControlsAndLoneSurrogates() throws IOException {
+        TokenBuffer tokens = new TokenBuffer("\"\b\u2028\ud800é");
+        tokens.add(TokenType.STRING, 0, 5);
+
+        assertEquals("{\"type\":\"STRING\",\"start\":0,\"end\":5,\"text\":\"\\\"\\b\\u2028\\ud800é\"}\n",
+            write(TokenWriter.Format.JSONL, tokens));
+    }
+
+    @Test
+    void testBinaryEncodesGapsLengthsAndUtf8() throws IOException {
+        TokenBuffer tokens = new TokenBuffer("ab  é");
+        tokens.add(TokenType.IDENTIFIER, 0, 2);
+        tokens.add(TokenType.INVALID, 4, 5);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TokenWriter writer = TokenWriter.toStream(out, TokenWriter.Format.BINARY)) {
+            writer.write(tokens);
+        }
+
+        byte[] expected = {'L', 'X', 'T', 1,
+            10, 0, 2, 2, 'a', 'b',
+            11, 2, 1, 2, (byte) 0xC3, (byte) 0xA9};
+        assertArrayEquals(expected, out.toByteArray());
+    }
+
+    @Test
+    void testStreamingTransferUsesAbsoluteOffsets() throws IOException {
+        String source = "alpha beta gamma delta";
+        Path file = tempDir.resolve("tokens.tsv");
+
+        try (StreamingLexer lexer = new StreamingLexer(new StringReader(source), 4);
+             TokenWriter writer = TokenWriter.open(file, TokenWriter.Format.TSV)) {
+            assertEquals(4, lexer.transferTo(writer));
+        }
+
+        assertEquals("IDENTIFIER\t0\t5\talpha\nIDENTIFIER\t6\t10\tbeta\n"
+            + "IDENTIFIER\t11\t16\tgamma\nIDENTIFIER\t17\t22\tdelta\n", Files.readString(file));
+    }
+
+    @Test
+    void testFlushesWhenBufferIsFull() throws IOException {
+        String comment = "/*" + "é".repeat(1000) + "*/";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (TokenWriter writer = new TokenWriter(Channels.newChannel(out), TokenWriter.Format.TEXT, 64)) {
+            new LexicalAnalyzer().writeTokens(new StringReader(comment), writer);
+        }
+
+        assertEquals("<" + comment + ", COMMENT>" + System.lineSeparator(), out.toString(StandardCharsets.UTF_8));
+    }
+
+    private static String write(TokenWriter.Format format, TokenBuffer tokens) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TokenWriter writer = TokenWriter.toStream(out, format)) {
+            writer.write(tokens);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
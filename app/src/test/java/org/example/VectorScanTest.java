@@ -0,0 +1,91 @@
+import org.example.LexicalAnalyzer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VectorScanTest {
+    private static final String[] PIECES = {
+        " ", "\t", "\n", "\r\n", "\u000B", "\f", "                                        ",
+        "identifier", "some_really_long_identifier_name_that_spans_several_vectors_0123", "_x", "while",
+        "0x1F", "017", "12", "3.5e10f", "9L",
+        "\"", "\"a string with spaces and // slashes inside of it, longer than a vector\"",
+        "//", "// a line comment running past several vector widths of characters",
+        "/*", "*/", "*", "/", "/* a block comment * with / stars and slashes ** // spanning */",
+        "'c'", "'\\n'", "+=", "(", ";", "@@", "#",
+        "\u0085", "\u2028", "\u2029", "\u00E9", "\u0301", "\u65E5\u672C\u8A9E", "\uD83D\uDE00",
+    };
+
+    private static String randomSource(long seed, int pieces) {
+        return TestSources.randomSource(seed, pieces, PIECES);
+    }
+
+    private static LexicalAnalyzer analyzer(boolean vectorized) {
+        LexicalAnalyzer lexer = new LexicalAnalyzer();
+        lexer.setVectorized(vectorized);
+        return lexer;
+    }
+
+    @Test
+    void testVectorizedOnlyWithTheVectorModule() {
+        // The Gradle build adds the module; without it the scalar loops are used.
+        boolean available = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+        assertEquals(available, analyzer(true).isVectorized());
+        assertFalse(analyzer(false).isVectorized());
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 4, 5, 6, 7, 8})
+    void testVectorMatchesScalar(long seed) {
+        String source = randomSource(seed, 2_000);
+
+        List<LexicalAnalyzer.Token> scalar = analyzer(false).analyzeFromString(source);
+
+        assertEquals(scalar, analyzer(true).analyzeFromString(source));
+        assertEquals(scalar, analyzer(true).analyzeInParallel(source).asList());
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {11, 12, 13})
+    void testVectorStreamingMatchesScalar(long seed) throws IOException {
+        String source = randomSource(seed, 20_000);
+
+        List<LexicalAnalyzer.Token> scalar = analyzer(false).analyzeFromString(source);
+
+        assertEquals(scalar, analyzer(true).streamFromReader(new StringReader(source)).toList());
+    }
+
+    @Test
+    void testRunsEndingAtEveryOffset() {
+        // Each run ends at a different offset relative to the vector width.
+        for (int length = 0; length < 70; length++) {
+            for (String run : new String[]{" ", "a", "@"}) {
+                String source = "x" + run.repeat(length) + " /*" + "-".repeat(length) + "*/ \"" + "s".repeat(length)
+                    + "\" //" + "c".repeat(length) + "\n/*" + "*".repeat(length);
+                assertEquals(analyzer(false).analyzeFromString(source), analyzer(true).analyzeFromString(source),
+                    source);
+            }
+        }
+    }
+
+    @Test
+    void testOneAnalyzerReusesItsMirrorAcrossInputs() {
+        // A long input grows the mirror; shorter ones after it must not see its chars.
+        LexicalAnalyzer scalar = analyzer(false);
+        LexicalAnalyzer vectorized = analyzer(true);
+        for (long seed = 21; seed < 40; seed++) {
+            String source = randomSource(seed, seed == 21 ? 5_000 : (int) seed);
+            assertEquals(scalar.analyzeFromString(source), vectorized.analyzeFromString(source), source);
+        }
+        vectorized.setVectorized(false);
+        String source = randomSource(40, 100);
+        assertEquals(scalar.analyzeFromString(source), vectorized.analyzeFromString(source));
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Deterministic synthetic Java-like sources for benchmarking. Every mix keeps
+ * brackets balanced and ends on a line boundary close to the requested size.
+ */
+public final class Corpus {
+    public enum Mix {
+        COMMENT_HEAVY,
+        STRING_HEAVY,
+        IDENTIFIER_HEAVY,
+        NUMERIC_HEAVY
+    }
+
+    private static final String[] WORDS = {
+        "value", "count", "buffer", "index", "result", "node", "parent", "offset",
+        "length", "token", "state", "input", "output", "cache", "entry", "limit"
+    };
+    private static final String[] KEYWORDS = {"int", "float", "double", "char", "void", "static"};
+    private static final String[] NUMBERS = {
+        "0x1F_FF", "0755", "3.14f", "1.5e10", "100_000L", "42", "0.5", "2e-3F", "0xCAFEL", "017"
+    };
+
+    private Corpus() {}
+
+    public static String generate(Mix mix, int size) {
+        Random random = new Random(size * 31L + mix.ordinal());
+        StringBuilder out = new StringBuilder(size + 256);
+        out.append("public class Generated {\n");
+        while (out.length() < size) {
+            switch (mix) {
+                case COMMENT_HEAVY -> commentLine(out, random);
+                case STRING_HEAVY -> stringLine(out, random);
+                case IDENTIFIER_HEAVY -> identifierLine(out, random);
+                case NUMERIC_HEAVY -> numericLine(out, random);
+            }
+        }
+        out.append("}\n");
+        return out.toString();
+    }
+
+    private static void commentLine(StringBuilder out, Random random) {
+        if (random.nextBoolean()) {
+            out.append("    /* ").append(sentence(random, 12)).append('\n')
+                .append("     * ").append(sentence(random, 12)).append('\n')
+                .append("     */\n");
+        } else {
+            out.append("    // ").append(sentence(random, 10)).append('\n');
+        }
+        out.append("    ").append(word(random)).append("();\n");
+    }
+
+    private static void stringLine(StringBuilder out, Random random) {
+        out.append("    String ").append(word(random)).append(" = \"").append(sentence(random, 8))
+            .append("\" + \"").append(sentence(random, 4)).append("\";\n");
+    }
+
+    private static void identifierLine(StringBuilder out, Random random) {
+        out.append("    ").append(KEYWORDS[random.nextInt(KEYWORDS.length)]).append(' ')
+            .append(word(random)).append(" = ").append(word(random)).append(" + ")
+            .append(word(random)).append(" * ").append(word(random)).append('(')
+            .append(word(random)).append(", ").append(word(random)).append(");\n");
+    }
+
+    private static void numericLine(StringBuilder out, Random random) {
+        out.append("    x = ");
+        for (int i = 0; i < 6; i++) {
+            if (i > 0) {
+                out.append(i % 2 == 0 ? " + " : " * ");
+            }
+            out.append(NUMBERS[random.nextInt(NUMBERS.length)]);
+        }
+        out.append(";\n");
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            sentence.append(word(random));
+        }
+        return sentence.toString();
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)] + random.nextInt(100);
+    }
+}
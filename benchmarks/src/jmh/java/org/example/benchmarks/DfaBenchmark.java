@@ -0,0 +1,69 @@
+package org.example.benchmarks;
+
+import org.example.LexicalAnalyzer;
+import org.example.TokenBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Entry points of the DFA engine that the other engines do not have, with
+ * and without the vector paths. {@code analyzeToBuffer} is the sequential
+ * baseline for {@code analyzeInParallel} and {@code streamFromReader}.
+ */
+@State(Scope.Benchmark)
+public class DfaBenchmark {
+    @Param({"COMMENT_HEAVY", "STRING_HEAVY", "IDENTIFIER_HEAVY", "NUMERIC_HEAVY"})
+    public Corpus.Mix mix;
+
+    @Param({"4096", "262144", "4194304"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean vectorized;
+
+    private String source;
+    private LexicalAnalyzer lexer;
+
+    @Setup
+    public void setup() {
+        source = Corpus.generate(mix, size);
+        lexer = new LexicalAnalyzer(LexicalAnalyzer.Engine.DFA);
+        lexer.setVectorized(vectorized);
+    }
+
+    @Benchmark
+    public TokenBuffer analyzeToBuffer(LexerBenchmark.TokenCounter counter) {
+        TokenBuffer tokens = lexer.analyzeToBuffer(source);
+        counter.tokens += tokens.size();
+        return tokens;
+    }
+
+    @Benchmark
+    public TokenBuffer analyzeInParallel(LexerBenchmark.TokenCounter counter) {
+        TokenBuffer tokens = lexer.analyzeInParallel(source);
+        counter.tokens += tokens.size();
+        return tokens;
+    }
+
+    @Benchmark
+    public void streamFromReader(LexerBenchmark.TokenCounter counter, Blackhole blackhole) throws IOException {
+        int count = 0;
+        try (Stream<LexicalAnalyzer.Token> stream = lexer.streamFromReader(new StringReader(source))) {
+            Iterator<LexicalAnalyzer.Token> tokens = stream.iterator();
+            while (tokens.hasNext()) {
+                blackhole.consume(tokens.next());
+                count++;
+            }
+        }
+        counter.tokens += count;
+    }
+}
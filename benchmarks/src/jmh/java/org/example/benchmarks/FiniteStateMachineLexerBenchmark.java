@@ -0,0 +1,39 @@
+package org.example.benchmarks;
+
+import org.example.FiniteStateMachineLexer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks FiniteStateMachineLexer pushing into a sink that only consumes
+ * the token bounds, which isolates the scan from any token storage.
+ */
+@State(Scope.Benchmark)
+public class FiniteStateMachineLexerBenchmark {
+    @Param({"COMMENT_HEAVY", "STRING_HEAVY", "IDENTIFIER_HEAVY", "NUMERIC_HEAVY"})
+    public Corpus.Mix mix;
+
+    @Param({"4096", "262144"})
+    public int size;
+
+    private String source;
+    private FiniteStateMachineLexer lexer;
+
+    @Setup
+    public void setup() {
+        source = Corpus.generate(mix, size);
+        lexer = new FiniteStateMachineLexer();
+    }
+
+    @Benchmark
+    public void tokenize(Blackhole blackhole) {
+        lexer.tokenize(source, (type, start, end) -> {
+            blackhole.consume(type);
+            blackhole.consume(end - start);
+        });
+    }
+}
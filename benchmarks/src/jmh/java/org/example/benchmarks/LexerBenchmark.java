@@ -0,0 +1,109 @@
+package org.example.benchmarks;
+
+import org.example.LexerSession;
+import org.example.LexicalAnalyzer;
+import org.example.RuleLexer;
+import org.example.TokenBuffer;
+import org.example.TokenRules;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Compares the lexer engines and entry points over the synthetic corpora.
+ * The {@code tokens} counter reports tokens per second next to the per-call
+ * score, so time per token is comparable across corpus sizes.
+ * <p>
+ * The RULES engine runs the bundled {@code spec.rules}, with its compiled
+ * tables cached as {@code spec.dfa} in the temporary directory so only the
+ * first fork compiles them. Entry points that only the DFA engine has, and
+ * its vector paths, are measured in {@link DfaBenchmark}.
+ */
+@State(Scope.Benchmark)
+public class LexerBenchmark {
+    @Param({"COMMENT_HEAVY", "STRING_HEAVY", "IDENTIFIER_HEAVY", "NUMERIC_HEAVY"})
+    public Corpus.Mix mix;
+
+    @Param({"4096", "262144", "4194304"})
+    public int size;
+
+    @Param({"REGEX", "DFA", "FSM", "RULES"})
+    public LexicalAnalyzer.Engine engine;
+
+    private String source;
+    private LexicalAnalyzer lexer;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class TokenCounter {
+        public long tokens;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            tokens = 0;
+        }
+    }
+
+    /** A session per benchmark thread, as a server keeps one per worker. */
+    @State(Scope.Thread)
+    public static class Session {
+        LexerSession session;
+
+        @Setup
+        public void setup(LexerBenchmark benchmark) {
+            session = new LexerSession(benchmark.lexer);
+        }
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        source = Corpus.generate(mix, size);
+        lexer = engine == LexicalAnalyzer.Engine.RULES
+            ? new LexicalAnalyzer(null, rules())
+            : new LexicalAnalyzer(engine);
+    }
+
+    private static RuleLexer rules() throws IOException {
+        Path directory = Files.createDirectories(Path.of(System.getProperty("java.io.tmpdir"), "lexer-benchmarks"));
+        Path spec = directory.resolve("spec.rules");
+        try (InputStream in = LexerBenchmark.class.getResourceAsStream("/spec.rules")) {
+            Files.copy(in, spec, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return RuleLexer.load(TokenRules.read(spec), directory.resolve("spec.dfa"));
+    }
+
+    @Benchmark
+    public void analyzeFromString(TokenCounter counter, Blackhole blackhole) {
+        int count = 0;
+        for (LexicalAnalyzer.Token token : lexer.analyzeFromString(source)) {
+            blackhole.consume(token);
+            count++;
+        }
+        counter.tokens += count;
+    }
+
+    @Benchmark
+    public TokenBuffer analyzeToBuffer(TokenCounter counter) {
+        TokenBuffer tokens = lexer.analyzeToBuffer(source);
+        counter.tokens += tokens.size();
+        return tokens;
+    }
+
+    @Benchmark
+    public TokenBuffer sessionLex(Session session, TokenCounter counter) {
+        TokenBuffer tokens = session.session.lex(source);
+        counter.tokens += tokens.size();
+        return tokens;
+    }
+}